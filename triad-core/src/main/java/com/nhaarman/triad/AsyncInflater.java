@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates the views of {@link Screen}s on a background thread, and delivers them on the main thread.
+ * <p>
+ * If creating a view on the background thread fails, for example because the layout contains a view
+ * that requires a Looper, the view is created on the main thread instead.
+ */
+final class AsyncInflater {
+
+    @Nullable
+    private static Handler sharedBackgroundHandler;
+
+    @NonNull
+    private final Handler backgroundHandler;
+
+    @NonNull
+    private final Handler mainHandler;
+
+    /**
+     * Only used on the background thread, since inflaters are not thread safe.
+     */
+    @NonNull
+    private final LayoutInflater inflater;
+
+    /**
+     * Whether Screen classes use the default {@link Screen#createView(ViewGroup)}.
+     */
+    @NonNull
+    private final Map<Class<?>, Boolean> inflatesByDefault = new HashMap<>();
+
+    AsyncInflater(@NonNull final Context context) {
+        this(LayoutInflater.from(context).cloneInContext(context), sharedBackgroundHandler(), new Handler(Looper.getMainLooper()));
+    }
+
+    AsyncInflater(@NonNull final LayoutInflater inflater, @NonNull final Handler backgroundHandler, @NonNull final Handler mainHandler) {
+        this.inflater = inflater;
+        this.backgroundHandler = backgroundHandler;
+        this.mainHandler = mainHandler;
+    }
+
+    /**
+     * Returns whether the view of given screen can be created on the background thread.
+     */
+    boolean canInflate(@NonNull final Screen<?> screen) {
+        if (screen.getInflatesOnMainThread()) return false;
+
+        Class<?> screenClass = screen.getClass();
+        Boolean result = inflatesByDefault.get(screenClass);
+        if (result == null) {
+            result = declaringClassOfCreateView(screenClass) == Screen.class;
+            inflatesByDefault.put(screenClass, result);
+        }
+        return result;
+    }
+
+    /**
+     * Starts creating the view of given screen. Given callback is notified on the main thread, unless the returned
+     * request is cancelled first.
+     */
+    @NonNull
+    Request inflate(@NonNull final Screen<?> screen, @NonNull final ViewGroup parent, @NonNull final Callback callback) {
+        Request request = new Request(screen, parent, callback);
+        backgroundHandler.post(request);
+        return request;
+    }
+
+    @NonNull
+    private static synchronized Handler sharedBackgroundHandler() {
+        if (sharedBackgroundHandler == null) {
+            HandlerThread thread = new HandlerThread("TriadInflater");
+            thread.start();
+            sharedBackgroundHandler = new Handler(thread.getLooper());
+        }
+        return sharedBackgroundHandler;
+    }
+
+    @Nullable
+    private static Class<?> declaringClassOfCreateView(@NonNull final Class<?> screenClass) {
+        try {
+            return screenClass.getMethod("createView", ViewGroup.class).getDeclaringClass();
+        } catch (NoSuchMethodException ignored) {
+            return null;
+        }
+    }
+
+    interface Callback {
+
+        /**
+         * Called on the main thread with the fully created view.
+         */
+        void onInflated(@NonNull View view);
+    }
+
+    final class Request implements Runnable {
+
+        @NonNull
+        private final Screen<?> screen;
+
+        @NonNull
+        private final ViewGroup parent;
+
+        @NonNull
+        private final Callback callback;
+
+        private volatile boolean cancelled;
+
+        private boolean inflated;
+
+        @Nullable
+        private View view;
+
+        private Request(@NonNull final Screen<?> screen, @NonNull final ViewGroup parent, @NonNull final Callback callback) {
+            this.screen = screen;
+            this.parent = parent;
+            this.callback = callback;
+        }
+
+        /**
+         * Runs first on the background thread to create the view, and then on the main thread to deliver it.
+         */
+        @Override
+        public void run() {
+            if (!inflated) {
+                if (!cancelled) {
+                    try {
+                        view = screen.createView(parent, inflater);
+                    } catch (RuntimeException ignored) {
+                        /* Retried on the main thread. */
+                        view = null;
+                    }
+                }
+
+                inflated = true;
+                mainHandler.post(this);
+                return;
+            }
+
+            if (cancelled) return;
+
+            if (view == null) {
+                view = screen.createView(parent);
+            }
+            callback.onInflated(view);
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+}
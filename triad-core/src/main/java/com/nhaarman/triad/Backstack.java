@@ -18,60 +18,221 @@ package com.nhaarman.triad;
 
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import java.util.ArrayDeque;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Deque;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static com.nhaarman.triad.Preconditions.checkNotNull;
 
 /**
  * Describes the history of a {@link Triad} at a specific point in time.
+ * <p>
+ * A {@code Backstack} is an immutable, persistent stack: pushing or popping a
+ * screen results in a new {@code Backstack} instance that shares all remaining
+ * entries with the instance it was created from. This makes pushing, popping
+ * and taking snapshots O(1) operations, regardless of the size of the history.
+ * <p>
+ * A backstack that was truncated may still reference the entries below its bottom,
+ * which are left out of everything but the memory it uses, see {@link #truncate(int, List)}.
  */
 public class Backstack implements Iterable<Screen<?>> {
 
-    @NonNull
-    private final Deque<Entry<?>> mBackstack;
+    private static final Backstack EMPTY = new Backstack(null, null);
+
+    /**
+     * The top entry of this backstack, or {@code null} if this backstack is empty.
+     */
+    @Nullable
+    private final Entry<?> mTop;
+
+    /**
+     * The node below {@link #mTop}, or {@code null} if this backstack is empty.
+     * If this backstack was truncated, it may hold more entries than this backstack shows, see {@link #rest()}.
+     */
+    @Nullable
+    private final Backstack mRest;
+
+    /**
+     * The number of entries in this backstack, which are the first {@code mSize} entries of the chain of nodes.
+     */
+    private final int mSize;
+
+    /**
+     * The number of nodes in the chain, including the entries below the bottom of a truncated backstack.
+     */
+    private final int mLength;
+
+    /**
+     * The backstack below {@link #mTop} with as many entries as this backstack shows, if {@link #mRest} holds more.
+     * Created once it is needed.
+     */
+    @Nullable
+    private Backstack mLimitedRest;
+
+    private Backstack(@Nullable final Entry<?> top, @Nullable final Backstack rest) {
+        this(top, rest, rest == null ? 0 : rest.mSize + 1);
+    }
 
-    private Backstack(@NonNull final Deque<Entry<?>> backstack) {
-        mBackstack = backstack;
+    private Backstack(@Nullable final Entry<?> top, @Nullable final Backstack rest, final int size) {
+        mTop = top;
+        mRest = rest;
+        mSize = size;
+        mLength = rest == null ? 0 : rest.mLength + 1;
     }
 
     @Override
     public Iterator<Screen<?>> iterator() {
-        return new ReadIterator(mBackstack.iterator());
+        return new ReadIterator(new EntryReadIterator(this));
     }
 
     public Iterator<Screen<?>> reverseIterator() {
-        return new ReadIterator(mBackstack.descendingIterator());
+        return new ReadIterator(new ReverseEntryReadIterator(this));
     }
 
     public Iterator<Entry<?>> reverseEntryIterator() {
-        return new EntryReadIterator(mBackstack.descendingIterator());
+        return new ReverseEntryReadIterator(this);
     }
 
     public int size() {
-        return mBackstack.size();
+        return mSize;
     }
 
     @NonNull
+    @SuppressWarnings("unchecked")
     <T> Entry<T> current() {
-        return (Entry<T>) mBackstack.peek();
+        return (Entry<T>) mTop;
+    }
+
+    /**
+     * Returns the backstack below the current entry, or {@code null} if this backstack is empty.
+     */
+    @Nullable
+    Backstack rest() {
+        if (mRest == null || mRest.mSize < mSize) return mRest;
+
+        if (mLimitedRest == null) {
+            mLimitedRest = mRest.limit(mSize - 1);
+        }
+        return mLimitedRest;
+    }
+
+    /**
+     * Returns a backstack with the top {@code size} entries of this backstack, sharing its nodes.
+     */
+    @NonNull
+    private Backstack limit(final int size) {
+        return size == 0 ? EMPTY : new Backstack(mTop, mRest, size);
+    }
+
+    /**
+     * Returns a backstack with given screen on top of this backstack.
+     * Unlike {@link #buildUpon()}, this only allocates the new entry.
+     */
+    @NonNull
+    Backstack push(@NonNull final Screen<?> screen, @Nullable final TransitionAnimator animator) {
+        return new Backstack(new Entry<>(screen, animator), this);
+    }
+
+    /**
+     * Returns a backstack with the top {@code maxSize} entries of this backstack.
+     * The entries below them are added to given list, from top to bottom.
+     * <p>
+     * The removed entries are only left out, and stay referenced until the chain of nodes holds twice as many entries
+     * as the backstack shows. Only then are the retained entries copied, since entries are shared from the bottom.
+     * Pushing onto a backstack that is truncated to the same size each time thus copies {@code maxSize} entries
+     * once every {@code maxSize} pushes.
+     */
+    @NonNull
+    Backstack truncate(final int maxSize, @NonNull final List<Entry<?>> removed) {
+        if (mSize <= maxSize) return this;
+
+        Backstack node = this;
+        for (int i = 0; i < maxSize; i++) {
+            node = node.mRest;
+        }
+        for (int i = maxSize; i < mSize; i++, node = node.mRest) {
+            removed.add(node.mTop);
+        }
+
+        if (mLength <= 2 * maxSize) return limit(maxSize);
+
+        Entry<?>[] retained = new Entry<?>[maxSize];
+        node = this;
+        for (int i = 0; i < maxSize; i++, node = node.mRest) {
+            retained[i] = node.mTop;
+        }
+
+        Backstack result = EMPTY;
+        for (int i = maxSize - 1; i >= 0; i--) {
+            result = new Backstack(retained[i], result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a backstack without the entries whose screen has the same {@link Screen#getKey()} as a screen above it.
+     * The removed entries are added to given list, from top to bottom.
+     * Only the entries above the lowest removed entry are copied.
+     *
+     * @param keys An empty set to collect keys in, which is left empty.
+     */
+    @NonNull
+    Backstack withoutDuplicateKeys(@NonNull final Set<Object> keys, @NonNull final List<Entry<?>> removed) {
+        int lowestDuplicate = -1;
+        int depth = 0;
+        for (Backstack node = this; depth < mSize; node = node.mRest, depth++) {
+            Object key = node.mTop.screen.getKey();
+            if (key != null && !keys.add(key)) {
+                lowestDuplicate = depth;
+            }
+        }
+        keys.clear();
+        if (lowestDuplicate < 0) return this;
+
+        ArrayList<Entry<?>> retained = new ArrayList<>(lowestDuplicate);
+        Backstack node = this;
+        for (int i = 0; i <= lowestDuplicate; i++, node = node.rest()) {
+            Object key = node.mTop.screen.getKey();
+            if (key != null && !keys.add(key)) {
+                removed.add(node.mTop);
+            } else {
+                retained.add(node.mTop);
+            }
+        }
+        keys.clear();
+
+        Backstack result = node;
+        for (int i = retained.size() - 1; i >= 0; i--) {
+            result = new Backstack(retained.get(i), result);
+        }
+        return result;
     }
 
     /**
      * Get a builder to modify a copy of this backstack.
+     * This does not copy any entries: the resulting backstack shares its entries with this instance.
      */
     public Builder buildUpon() {
-        return new Builder(mBackstack);
+        return new Builder(this);
     }
 
     @Override
     public String toString() {
-        return mBackstack.toString();
+        StringBuilder builder = new StringBuilder("[");
+        Backstack node = this;
+        for (int i = 0; i < mSize; i++, node = node.mRest) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(node.mTop);
+        }
+        return builder.append(']').toString();
     }
 
     public static Builder emptyBuilder() {
-        return new Builder(Collections.<Entry<?>>emptyList());
+        return new Builder(EMPTY);
     }
 
     /**
@@ -126,10 +287,10 @@ public class Backstack implements Iterable<Screen<?>> {
     public static final class Builder {
 
         @NonNull
-        private final Deque<Entry<?>> mBackstack;
+        private Backstack mBackstack;
 
-        Builder(@NonNull final Collection<Entry<?>> backstack) {
-            mBackstack = new ArrayDeque<>(backstack);
+        Builder(@NonNull final Backstack backstack) {
+            mBackstack = backstack;
         }
 
         @NonNull
@@ -139,30 +300,40 @@ public class Backstack implements Iterable<Screen<?>> {
 
         @NonNull
         public Builder push(@NonNull final Screen<?> screen, @Nullable final TransitionAnimator animator) {
-            return push(new Entry(screen, animator));
+            return push(new Entry<>(screen, animator));
         }
 
         @NonNull
         public Builder push(@NonNull final Entry<?> entry) {
-            mBackstack.push(entry);
+            mBackstack = new Backstack(entry, mBackstack);
             return this;
         }
 
-        @Nullable
+        /**
+         * Removes the top entry.
+         *
+         * @throws NoSuchElementException if the backstack is empty.
+         */
+        @NonNull
         Entry<?> pop() {
-            return mBackstack.pop();
+            Backstack rest = mBackstack.rest();
+            if (rest == null) throw new NoSuchElementException();
+
+            Entry<?> entry = checkNotNull(mBackstack.mTop, "Top entry is null.");
+            mBackstack = rest;
+            return entry;
         }
 
         @NonNull
         public Builder clear() {
-            mBackstack.clear();
+            mBackstack = EMPTY;
 
             return this;
         }
 
         @NonNull
         public Backstack build() {
-            return new Backstack(mBackstack);
+            return mBackstack;
         }
     }
 
@@ -190,22 +361,72 @@ public class Backstack implements Iterable<Screen<?>> {
         }
     }
 
+    /**
+     * Iterates the entries of a backstack, from top to bottom.
+     */
     private static class EntryReadIterator implements Iterator<Entry<?>> {
 
-        private final Iterator<Entry<?>> mIterator;
+        @NonNull
+        private Backstack mNext;
 
-        EntryReadIterator(final Iterator<Entry<?>> iterator) {
-            mIterator = iterator;
+        private int mRemaining;
+
+        EntryReadIterator(@NonNull final Backstack backstack) {
+            mNext = backstack;
+            mRemaining = backstack.mSize;
         }
 
         @Override
         public boolean hasNext() {
-            return mIterator.hasNext();
+            return mRemaining > 0;
+        }
+
+        @Override
+        public Entry<?> next() {
+            if (mRemaining == 0) throw new NoSuchElementException();
+
+            Entry<?> entry = mNext.mTop;
+            mNext = mNext.mRest;
+            mRemaining--;
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Iterates the entries of a backstack, from bottom to top.
+     * Since the backstack is singly linked from the top, the entries are collected up front.
+     */
+    private static class ReverseEntryReadIterator implements Iterator<Entry<?>> {
+
+        @NonNull
+        private final Entry<?>[] mEntries;
+
+        private int mIndex;
+
+        ReverseEntryReadIterator(@NonNull final Backstack backstack) {
+            mEntries = new Entry<?>[backstack.mSize];
+
+            int i = mEntries.length;
+            for (Backstack node = backstack; i > 0; node = node.mRest) {
+                mEntries[--i] = node.mTop;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return mIndex < mEntries.length;
         }
 
         @Override
         public Entry<?> next() {
-            return mIterator.next();
+            if (mIndex >= mEntries.length) throw new NoSuchElementException();
+
+            return mEntries[mIndex++];
         }
 
         @Override
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad;
+
+import android.support.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Computes the minimal set of pops and pushes needed to go from one {@link Backstack} to another.
+ * <p>
+ * Two backstacks share the longest common prefix, counted from the bottom, of identical
+ * {@link Screen} instances. Screens in that prefix stay alive; every screen above it in the old
+ * backstack is popped, and every screen above it in the new backstack is pushed.
+ * <p>
+ * Instances can be reused for multiple computations to avoid allocations; see {@link #compute(Backstack, Backstack)}.
+ */
+final class BackstackDiff {
+
+    /**
+     * The entries that leave the backstack, from top to bottom.
+     */
+    @NonNull
+    final ArrayList<Backstack.Entry<?>> popped = new ArrayList<>();
+
+    /**
+     * The entries that enter the backstack, from bottom to top.
+     */
+    @NonNull
+    final ArrayList<Backstack.Entry<?>> pushed = new ArrayList<>();
+
+    /**
+     * Replaces the contents of this diff with the difference between given backstacks.
+     */
+    void compute(@NonNull final Backstack from, @NonNull final Backstack to) {
+        clear();
+
+        Backstack oldNode = from;
+        Backstack newNode = to;
+
+        /* Entries above the height of the other backstack can never be shared. */
+        while (oldNode.size() > newNode.size()) {
+            popped.add(oldNode.current());
+            oldNode = oldNode.rest();
+        }
+        while (newNode.size() > oldNode.size()) {
+            pushed.add(newNode.current());
+            newNode = newNode.rest();
+        }
+
+        /*
+         * Walk down both backstacks in lockstep. Everything at or above the lowest
+         * mismatching position changes; everything below it is shared.
+         * Identical nodes share their entire remainder, so we can stop early.
+         */
+        int changed = 0;
+        int depth = 0;
+        for (Backstack o = oldNode, n = newNode; o != n && o.size() > 0; o = o.rest(), n = n.rest()) {
+            depth++;
+            if (o.current().screen != n.current().screen) {
+                changed = depth;
+            }
+        }
+
+        for (int i = 0; i < changed; i++) {
+            popped.add(oldNode.current());
+            pushed.add(newNode.current());
+            oldNode = oldNode.rest();
+            newNode = newNode.rest();
+        }
+
+        Collections.reverse(pushed);
+    }
+
+    boolean isEmpty() {
+        return popped.isEmpty() && pushed.isEmpty();
+    }
+
+    /**
+     * Releases the references to the entries of the last computation.
+     */
+    void clear() {
+        popped.clear();
+        pushed.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "BackstackDiff(" +
+              "popped=" + popped +
+              ", pushed=" + pushed +
+              ')';
+    }
+}
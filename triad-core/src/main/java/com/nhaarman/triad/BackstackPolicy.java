@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad;
+
+import android.support.annotation.NonNull;
+
+import static com.nhaarman.triad.Preconditions.checkArgument;
+
+/**
+ * Limits what the backstack of a {@link Triad} retains, see {@link Triad#setBackstackPolicy(BackstackPolicy)}.
+ * <p>
+ * Policies are applied as part of each transition, so the listener is notified of the screens they remove
+ * like of any other popped screen. Screens are matched by their {@link Screen#getKey()}.
+ */
+public final class BackstackPolicy {
+
+    /**
+     * Retains every screen.
+     */
+    @NonNull
+    public static final BackstackPolicy NONE = new Builder().build();
+
+    private final int maxDepth;
+
+    private final boolean collapsesCycles;
+
+    private final boolean singleInstancePerKey;
+
+    private BackstackPolicy(final int maxDepth, final boolean collapsesCycles, final boolean singleInstancePerKey) {
+        this.maxDepth = maxDepth;
+        this.collapsesCycles = collapsesCycles;
+        this.singleInstancePerKey = singleInstancePerKey;
+    }
+
+    /**
+     * The maximum number of screens in the backstack, or 0 if unlimited.
+     */
+    int maxDepth() {
+        return maxDepth;
+    }
+
+    boolean collapsesCycles() {
+        return collapsesCycles;
+    }
+
+    boolean singleInstancePerKey() {
+        return singleInstancePerKey;
+    }
+
+    /**
+     * Whether this policy may remove screens from a backstack that a transition moves to.
+     */
+    boolean trims() {
+        return maxDepth > 0 || singleInstancePerKey;
+    }
+
+    @Override
+    public String toString() {
+        return "BackstackPolicy(" +
+              "maxDepth=" + maxDepth +
+              ", collapsesCycles=" + collapsesCycles +
+              ", singleInstancePerKey=" + singleInstancePerKey +
+              ')';
+    }
+
+    public static final class Builder {
+
+        private int maxDepth;
+
+        private boolean collapsesCycles;
+
+        private boolean singleInstancePerKey;
+
+        /**
+         * Removes the oldest screens once the backstack holds more than given number of screens.
+         *
+         * @param maxDepth The maximum number of screens, must be positive.
+         */
+        @NonNull
+        public Builder maxDepth(final int maxDepth) {
+            checkArgument(maxDepth > 0, "maxDepth must be positive, but was %d.", maxDepth);
+
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * Moves back instead of forward when going to a screen with the same key as the screen below the current one,
+         * so that navigating A, B, A results in the original A instead of three screens.
+         * The new screen is not used, so that the original screen keeps its state.
+         * If the new screen was prepared through {@link Triad#prepare(Screen)}, it is discarded.
+         */
+        @NonNull
+        public Builder collapseCycles() {
+            collapsesCycles = true;
+            return this;
+        }
+
+        /**
+         * Removes screens that have the same key as a screen above them,
+         * so that going to a screen removes the earlier screen with the same key.
+         */
+        @NonNull
+        public Builder singleInstancePerKey() {
+            singleInstancePerKey = true;
+            return this;
+        }
+
+        @NonNull
+        public BackstackPolicy build() {
+            return new BackstackPolicy(maxDepth, collapsesCycles, singleInstancePerKey);
+        }
+    }
+}
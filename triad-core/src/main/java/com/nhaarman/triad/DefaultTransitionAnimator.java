@@ -1,5 +1,13 @@
 package com.nhaarman.triad;
 
+import android.annotation.TargetApi;
+import android.app.ActivityManager;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.Settings;
 import android.support.annotation.NonNull;
 import android.view.View;
 import android.view.ViewGroup;
@@ -7,13 +15,45 @@ import com.nhaarman.triad.Triad.Callback;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-class DefaultTransitionAnimator implements TransitionAnimator {
+/**
+ * Cross-fades the old view into the new view.
+ * <p>
+ * Animated views are rendered into hardware layers for the duration of the animation,
+ * so that changing their alpha does not redraw their hierarchy every frame.
+ * When animations are disabled in the system settings, views are swapped immediately.
+ * The setting is read once, and read again whenever it changes.
+ * On low-RAM devices, only the new view is faded in, on top of the old view.
+ * <p>
+ * Interrupted fades are continued from the current alpha of the views, so a reversed transition does not jump.
+ * Backward transitions can be driven by a gesture, in which case the old view fades out over the new view.
+ */
+class DefaultTransitionAnimator implements TransitionAnimator.InterruptibleAnimator, TransitionAnimator.SeekableAnimator {
 
     public static final DefaultTransitionAnimator INSTANCE = new DefaultTransitionAnimator();
 
+    /**
+     * Whether the device is a low-RAM device, or {@code null} if not yet determined.
+     */
+    @Nullable
+    private Boolean lowRamDevice;
+
+    /**
+     * The animator duration scale from the system settings, or {@code NaN} if not yet read.
+     * Updated by a {@link ContentObserver} when the setting changes, which may happen on another thread.
+     */
+    private volatile float durationScale = Float.NaN;
+
     private DefaultTransitionAnimator() {
     }
 
+    /**
+     * Creates an instance that does not read the system, for testing.
+     */
+    DefaultTransitionAnimator(final float durationScale, final boolean lowRamDevice) {
+        this.durationScale = durationScale;
+        this.lowRamDevice = lowRamDevice;
+    }
+
     @Override
     public boolean forward(@Nullable final View oldView, @NotNull final View newView, @NotNull final ViewGroup parent, @NotNull final Callback callback) {
         executeAlphaTransition(oldView, newView, parent, callback);
@@ -26,26 +66,135 @@ class DefaultTransitionAnimator implements TransitionAnimator {
         return true;
     }
 
+    @Override
+    public void cancel(@Nullable final View oldView, @NotNull final View newView, @NotNull final ViewGroup parent) {
+        /* End actions do not run for cancelled animations. */
+        newView.animate().cancel();
+        newView.setAlpha(1f);
+
+        if (oldView != null) {
+            oldView.animate().cancel();
+            parent.removeView(oldView);
+        }
+    }
+
+    @Override
+    public void interrupt(@Nullable final View oldView, @NotNull final View newView, @NotNull final ViewGroup parent) {
+        newView.animate().cancel();
+
+        if (oldView != null) {
+            oldView.animate().cancel();
+        }
+    }
+
+    @Override
+    public void startSeek(@NotNull final View oldView, @NotNull final View newView, @NotNull final ViewGroup parent) {
+        newView.setAlpha(1f);
+        parent.addView(newView, Math.max(parent.indexOfChild(oldView), 0));
+    }
+
+    @Override
+    public void seek(@NotNull final View oldView, @NotNull final View newView, @NotNull final ViewGroup parent, final float progress) {
+        oldView.setAlpha(1f - progress);
+    }
+
+    @Override
+    public void finishSeek(@NotNull final View oldView, @NotNull final View newView, @NotNull final ViewGroup parent, @NotNull final Callback callback) {
+        settleSeek(oldView, 0f, parent, new Runnable() {
+            @Override
+            public void run() {
+                parent.removeView(oldView);
+                oldView.setAlpha(1f);
+                callback.onComplete();
+            }
+        });
+    }
+
+    @Override
+    public void cancelSeek(@NotNull final View oldView, @NotNull final View newView, @NotNull final ViewGroup parent, @NotNull final Callback callback) {
+        settleSeek(oldView, 1f, parent, new Runnable() {
+            @Override
+            public void run() {
+                parent.removeView(newView);
+                callback.onComplete();
+            }
+        });
+    }
+
+    @Override
+    public void abandonSeek(@NotNull final View oldView, @NotNull final View newView, @NotNull final ViewGroup parent) {
+        /* End actions do not run for cancelled animations. */
+        oldView.animate().cancel();
+        oldView.setAlpha(1f);
+
+        if (oldView.getParent() != parent) {
+            parent.addView(oldView);
+        }
+        parent.removeView(newView);
+    }
+
+    /**
+     * Fades the old view of a seeked transition to given alpha, in the remaining part of the regular duration.
+     */
+    private void settleSeek(@NonNull final View oldView, final float alpha, @NonNull final ViewGroup parent, @NonNull final Runnable endAction) {
+        Context context = parent.getContext();
+
+        if (durationScale(context) == 0f) {
+            oldView.setAlpha(alpha);
+            endAction.run();
+            return;
+        }
+
+        int durationMs = context.getResources().getInteger(android.R.integer.config_shortAnimTime);
+        oldView.animate()
+              .alpha(alpha)
+              .setDuration(Math.round(durationMs * Math.abs(alpha - oldView.getAlpha())))
+              .withLayer()
+              .withEndAction(endAction);
+    }
+
     private void executeAlphaTransition(
           @Nullable final View oldView,
           @NonNull final View newView,
           @NonNull final ViewGroup parent,
           @NonNull final Callback callback
     ) {
-        int durationMs = parent.getContext().getResources().getInteger(android.R.integer.config_shortAnimTime);
+        Context context = parent.getContext();
 
-        parent.addView(newView);
+        /* A view that is still shown is animated back in from its current alpha. */
+        boolean reversing = newView.getParent() == parent;
+        if (!reversing) {
+            parent.addView(newView);
+            newView.setAlpha(0f);
+        }
 
-        if (oldView != null) {
+        if (durationScale(context) == 0f) {
+            newView.setAlpha(1f);
+            if (oldView != null) {
+                parent.removeView(oldView);
+            }
+
+            callback.onComplete();
+            return;
+        }
+
+        int durationMs = context.getResources().getInteger(android.R.integer.config_shortAnimTime);
+        if (reversing) {
+            durationMs = Math.round(durationMs * (1f - newView.getAlpha()));
+        }
+
+        /* The new view of a reversed transition is below the old view, so the old view must fade out. */
+        if (oldView != null && (reversing || !isLowRamDevice(context))) {
             oldView.animate()
                   .alpha(0f)
-                  .setDuration(durationMs);
+                  .setDuration(durationMs)
+                  .withLayer();
         }
 
-        newView.setAlpha(0f);
         newView.animate()
               .alpha(1f)
               .setDuration(durationMs)
+              .withLayer()
               .withEndAction(new Runnable() {
                   @Override
                   public void run() {
@@ -57,4 +206,57 @@ class DefaultTransitionAnimator implements TransitionAnimator {
                   }
               });
     }
+
+    private boolean isLowRamDevice(@NonNull final Context context) {
+        if (lowRamDevice == null) {
+            lowRamDevice = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT && isLowRamDeviceKitKat(context);
+        }
+
+        return lowRamDevice;
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static boolean isLowRamDeviceKitKat(@NonNull final Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        return activityManager != null && activityManager.isLowRamDevice();
+    }
+
+    /**
+     * Returns the animator duration scale from the system settings, which is 0 when animations are disabled.
+     * The first call starts observing the setting, so that later calls do not have to query it.
+     */
+    private float durationScale(@NonNull final Context context) {
+        float scale = durationScale;
+        if (!Float.isNaN(scale)) return scale;
+
+        final ContentResolver contentResolver = context.getApplicationContext().getContentResolver();
+        contentResolver.registerContentObserver(animatorDurationScaleUri(), false, new ContentObserver(null) {
+            @Override
+            public void onChange(final boolean selfChange) {
+                durationScale = animatorDurationScale(contentResolver);
+            }
+        });
+
+        scale = animatorDurationScale(contentResolver);
+        durationScale = scale;
+        return scale;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Uri animatorDurationScaleUri() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return Settings.Global.getUriFor(Settings.Global.ANIMATOR_DURATION_SCALE);
+        }
+
+        return Settings.System.getUriFor(Settings.System.ANIMATOR_DURATION_SCALE);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static float animatorDurationScale(@NonNull final ContentResolver contentResolver) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return Settings.Global.getFloat(contentResolver, Settings.Global.ANIMATOR_DURATION_SCALE, 1f);
+        }
+
+        return Settings.System.getFloat(contentResolver, Settings.System.ANIMATOR_DURATION_SCALE, 1f);
+    }
 }
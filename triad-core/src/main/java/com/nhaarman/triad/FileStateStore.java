@@ -0,0 +1,247 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link StateStore} that keeps states in files in a directory, such as an app-private directory
+ * obtained from {@link android.content.Context#getDir(String, int)}.
+ * <p>
+ * Files are written on a background thread. States that are read before their file is written are returned from memory,
+ * other states are read from their file. A file that cannot be written is retried a few times, after which its state
+ * is dropped, so that a failing directory does not keep states on the heap. Files left behind by a previous process
+ * are deleted when the first store for a directory is created. Several stores can share a directory.
+ */
+public final class FileStateStore implements StateStore {
+
+    private static final String PREFIX = "state-";
+
+    /**
+     * The number of times writing a file is attempted before its state is dropped.
+     */
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    private static final long WRITE_RETRY_DELAY_MS = 1000;
+
+    /**
+     * Provides a distinct key prefix to each store in this process.
+     */
+    @NonNull
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    /**
+     * The directories that were cleaned up in this process. Guarded by the class.
+     */
+    @NonNull
+    private static final Set<File> cleanedDirectories = new HashSet<>();
+
+    @Nullable
+    private static Handler sharedBackgroundHandler;
+
+    @NonNull
+    private final File directory;
+
+    @NonNull
+    private final Handler backgroundHandler;
+
+    @NonNull
+    private final String keyPrefix;
+
+    /**
+     * The states whose files have not been written yet, by key. Guarded by itself.
+     */
+    @NonNull
+    private final Map<String, byte[]> pending = new HashMap<>();
+
+    /**
+     * The keys that were removed, but whose files may not be deleted yet. Guarded by {@link #pending}.
+     */
+    @NonNull
+    private final Set<String> removed = new HashSet<>();
+
+    private int nextKey;
+
+    public FileStateStore(@NonNull final File directory) {
+        this(directory, sharedBackgroundHandler());
+    }
+
+    FileStateStore(@NonNull final File directory, @NonNull final Handler backgroundHandler) {
+        this.directory = directory;
+        this.backgroundHandler = backgroundHandler;
+        keyPrefix = PREFIX + instances.getAndIncrement() + '-';
+
+        if (claimCleanup(directory)) {
+            /* Runs before any file of this process is written, since the background thread executes in order. */
+            backgroundHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    deleteFiles();
+                }
+            });
+        }
+    }
+
+    @NonNull
+    @Override
+    public String write(@NonNull final byte[] state) {
+        final String key = keyPrefix + nextKey++;
+        synchronized (pending) {
+            pending.put(key, state);
+        }
+
+        backgroundHandler.post(new WriteRequest(key));
+        return key;
+    }
+
+    @Nullable
+    @Override
+    public byte[] read(@NonNull final String key) {
+        synchronized (pending) {
+            if (removed.contains(key)) return null;
+
+            byte[] state = pending.get(key);
+            if (state != null) return state;
+        }
+
+        File file = new File(directory, key);
+        try {
+            DataInputStream stream = new DataInputStream(new FileInputStream(file));
+            try {
+                byte[] state = new byte[(int) file.length()];
+                stream.readFully(state);
+                return state;
+            } finally {
+                stream.close();
+            }
+        } catch (IOException ignored) {
+            return null;
+        }
+    }
+
+    @Override
+    public void remove(@NonNull final String key) {
+        synchronized (pending) {
+            pending.remove(key);
+            removed.add(key);
+        }
+
+        /* Posted after a pending write of the same file. */
+        backgroundHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                new File(directory, key).delete();
+                synchronized (pending) {
+                    removed.remove(key);
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes the file of a pending state, and retries after a delay if that fails.
+     */
+    private final class WriteRequest implements Runnable {
+
+        @NonNull
+        private final String key;
+
+        private int attempts;
+
+        WriteRequest(@NonNull final String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            byte[] state;
+            synchronized (pending) {
+                state = pending.get(key);
+            }
+            if (state == null) return;
+
+            attempts++;
+            boolean written = writeFile(key, state);
+            if (!written && attempts < MAX_WRITE_ATTEMPTS) {
+                backgroundHandler.postDelayed(this, WRITE_RETRY_DELAY_MS);
+                return;
+            }
+
+            synchronized (pending) {
+                pending.remove(key);
+            }
+        }
+    }
+
+    private boolean writeFile(@NonNull final String key, @NonNull final byte[] state) {
+        File file = new File(directory, key);
+        try {
+            directory.mkdirs();
+            FileOutputStream stream = new FileOutputStream(file);
+            try {
+                stream.write(state);
+            } finally {
+                stream.close();
+            }
+            return true;
+        } catch (IOException ignored) {
+            file.delete();
+            return false;
+        }
+    }
+
+    private void deleteFiles() {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+
+        for (File file : files) {
+            if (file.getName().startsWith(PREFIX)) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Returns whether the files in given directory are yet to be cleaned up in this process.
+     */
+    private static synchronized boolean claimCleanup(@NonNull final File directory) {
+        return cleanedDirectories.add(directory.getAbsoluteFile());
+    }
+
+    @NonNull
+    private static synchronized Handler sharedBackgroundHandler() {
+        if (sharedBackgroundHandler == null) {
+            HandlerThread thread = new HandlerThread("TriadStateStore");
+            thread.start();
+            sharedBackgroundHandler = new Handler(thread.getLooper());
+        }
+        return sharedBackgroundHandler;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad;
+
+/**
+ * A fixed-size histogram of non-negative values, with buckets on a logarithmic scale.
+ * <p>
+ * Every power of two is split into {@link #SUB_BUCKETS} buckets, so values are
+ * recorded with a relative error of at most 25%. Recording a value does not allocate.
+ */
+final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Values of 2^MAX_EXPONENT and up are all counted in the last bucket.
+     * For nanoseconds, this is a little over a minute.
+     */
+    private static final int MAX_EXPONENT = 36;
+
+    private final int[] counts = new int[(MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+
+    private long count;
+
+    private long max;
+
+    void record(final long value) {
+        long v = Math.max(value, 0);
+        counts[index(v)]++;
+        count++;
+        max = Math.max(max, v);
+    }
+
+    long count() {
+        return count;
+    }
+
+    /**
+     * Returns the value below which given percentage of the recorded values fall, or -1 if no values were recorded.
+     *
+     * @param percentile A value between 0 and 100.
+     */
+    long percentile(final double percentile) {
+        if (count == 0) return -1;
+
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= target) {
+                return Math.min(midpoint(i), max);
+            }
+        }
+
+        return max;
+    }
+
+    void clear() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        count = 0;
+        max = 0;
+    }
+
+    private int index(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return Math.min((exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket, counts.length - 1);
+    }
+
+    private static long midpoint(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKETS - 1;
+        long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowerBound + ((1L << shift) >> 1);
+    }
+}
@@ -0,0 +1,570 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.nhaarman.triad.Preconditions.checkState;
+
+/**
+ * A {@link Triad} that can be used from any thread.
+ * <p>
+ * Backstack operations requested on the main thread are executed immediately.
+ * Operations requested from other threads are put in a lock-free queue, which is drained in order on the main thread.
+ * Operations that are still waiting in that queue are always executed before a new operation from the main thread,
+ * so operations are executed in the order in which they were requested.
+ * <p>
+ * {@link #goBack()} reports whether it executes, so it can only be called on the main thread.
+ * Other threads can use {@code beginTransaction().goBack().commit()} instead.
+ * <p>
+ * {@link #getSnapshot()} can be read from any thread. Off the main thread, {@link #getBackstack()} and
+ * {@link #isTransitioning()} are read from that snapshot as well.
+ */
+final class MainThreadTriad implements Triad {
+
+    private static final Operation<Integer, OverflowPolicy> SET_MAX_QUEUE_DEPTH = new Operation<Integer, OverflowPolicy>() {
+        @Override
+        public void run(@NonNull final Triad triad, final Integer maxQueueDepth, final OverflowPolicy overflowPolicy) {
+            triad.setMaxQueueDepth(maxQueueDepth, overflowPolicy);
+        }
+    };
+
+    private static final Operation<BackstackPolicy, Void> SET_BACKSTACK_POLICY = new Operation<BackstackPolicy, Void>() {
+        @Override
+        public void run(@NonNull final Triad triad, final BackstackPolicy policy, final Void unused) {
+            triad.setBackstackPolicy(policy);
+        }
+    };
+
+    private static final Operation<Void, Void> RESET = new Operation<Void, Void>() {
+        @Override
+        public void run(@NonNull final Triad triad, final Void unused, final Void alsoUnused) {
+            triad.reset();
+        }
+    };
+
+    private static final Operation<Screen<?>, TransitionAnimator> START_WITH = new Operation<Screen<?>, TransitionAnimator>() {
+        @Override
+        public void run(@NonNull final Triad triad, final Screen<?> screen, final TransitionAnimator animator) {
+            triad.startWith(screen, animator);
+        }
+    };
+
+    private static final Operation<Backstack, Void> START_WITH_BACKSTACK = new Operation<Backstack, Void>() {
+        @Override
+        public void run(@NonNull final Triad triad, final Backstack backstack, final Void unused) {
+            triad.startWith(backstack);
+        }
+    };
+
+    private static final Operation<Screen<?>, TransitionAnimator> GO_TO = new Operation<Screen<?>, TransitionAnimator>() {
+        @Override
+        public void run(@NonNull final Triad triad, final Screen<?> screen, final TransitionAnimator animator) {
+            triad.goTo(screen, animator);
+        }
+    };
+
+    private static final Operation<Screen<?>, Void> PREPARE = new Operation<Screen<?>, Void>() {
+        @Override
+        public void run(@NonNull final Triad triad, final Screen<?> screen, final Void unused) {
+            triad.prepare(screen);
+        }
+    };
+
+    private static final Operation<PreparedScreen, Void> DISCARD = new Operation<PreparedScreen, Void>() {
+        @Override
+        public void run(@NonNull final Triad triad, final PreparedScreen preparedScreen, final Void unused) {
+            triad.discard(preparedScreen);
+        }
+    };
+
+    private static final Operation<Void, Void> SHOW_CURRENT = new Operation<Void, Void>() {
+        @Override
+        public void run(@NonNull final Triad triad, final Void unused, final Void alsoUnused) {
+            triad.showCurrent();
+        }
+    };
+
+    private static final Operation<Screen<?>, TransitionAnimator> POP_TO = new Operation<Screen<?>, TransitionAnimator>() {
+        @Override
+        public void run(@NonNull final Triad triad, final Screen<?> screen, final TransitionAnimator animator) {
+            triad.popTo(screen, animator);
+        }
+    };
+
+    private static final Operation<Screen<?>, TransitionAnimator> REPLACE_WITH = new Operation<Screen<?>, TransitionAnimator>() {
+        @Override
+        public void run(@NonNull final Triad triad, final Screen<?> screen, final TransitionAnimator animator) {
+            triad.replaceWith(screen, animator);
+        }
+    };
+
+    private static final Operation<Backstack, Void> FORWARD = new Operation<Backstack, Void>() {
+        @Override
+        public void run(@NonNull final Triad triad, final Backstack backstack, final Void unused) {
+            triad.forward(backstack);
+        }
+    };
+
+    private static final Operation<Backstack, Void> BACKWARD = new Operation<Backstack, Void>() {
+        @Override
+        public void run(@NonNull final Triad triad, final Backstack backstack, final Void unused) {
+            triad.backward(backstack);
+        }
+    };
+
+    private static final Operation<Backstack, Void> REPLACE = new Operation<Backstack, Void>() {
+        @Override
+        public void run(@NonNull final Triad triad, final Backstack backstack, final Void unused) {
+            triad.replace(backstack);
+        }
+    };
+
+    /**
+     * Commits the recorded transaction that is passed as the first argument. The triad itself is not used.
+     */
+    private static final Operation<Transaction, Direction> COMMIT = new Operation<Transaction, Direction>() {
+        @Override
+        public void run(@NonNull final Triad triad, final Transaction transaction, final Direction direction) {
+            transaction.commit(direction);
+        }
+    };
+
+    @NonNull
+    private final Triad delegate;
+
+    @NonNull
+    private final MainThread mainThread;
+
+    @NonNull
+    private final ConcurrentLinkedQueue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Whether a drain of {@link #pending} has been posted to the main thread and has not yet started.
+     */
+    @NonNull
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    @NonNull
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            drainPending();
+        }
+    };
+
+    MainThreadTriad(@NonNull final Triad delegate) {
+        this(delegate, new LooperMainThread());
+    }
+
+    MainThreadTriad(@NonNull final Triad delegate, @NonNull final MainThread mainThread) {
+        this.delegate = delegate;
+        this.mainThread = mainThread;
+    }
+
+    /**
+     * Executes given operation on the delegate, right away on the main thread, or queued from other threads.
+     * Operations are constants, so that calls on the main thread do not allocate.
+     */
+    private <A, B> void execute(@NonNull final Operation<A, B> operation, @Nullable final A first, @Nullable final B second) {
+        if (!mainThread.isCurrentThread()) {
+            post(new PendingOperation<>(operation, first, second));
+            return;
+        }
+
+        drainPending();
+        operation.run(delegate, first, second);
+    }
+
+    /**
+     * Queues given operation for execution on the main thread.
+     */
+    private void post(@NonNull final Runnable operation) {
+        pending.offer(operation);
+        if (drainScheduled.compareAndSet(false, true)) {
+            mainThread.post(drain);
+        }
+    }
+
+    /**
+     * Executes all queued operations. Must be called on the main thread.
+     */
+    private void drainPending() {
+        /* Operations offered after this point schedule a new drain, so none are left behind. */
+        drainScheduled.set(false);
+
+        Runnable operation;
+        while ((operation = pending.poll()) != null) {
+            operation.run();
+        }
+    }
+
+    @NonNull
+    @Override
+    public Backstack getBackstack() {
+        if (!mainThread.isCurrentThread()) {
+            return delegate.getSnapshot().getBackstack();
+        }
+
+        return delegate.getBackstack();
+    }
+
+    @Override
+    public boolean isTransitioning() {
+        if (!mainThread.isCurrentThread()) {
+            return delegate.getSnapshot().isTransitioning();
+        }
+
+        return delegate.isTransitioning();
+    }
+
+    @NonNull
+    @Override
+    public Snapshot getSnapshot() {
+        return delegate.getSnapshot();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return delegate.getQueueDepth();
+    }
+
+    @Override
+    public void setMaxQueueDepth(final int maxQueueDepth, @NonNull final OverflowPolicy overflowPolicy) {
+        execute(SET_MAX_QUEUE_DEPTH, maxQueueDepth, overflowPolicy);
+    }
+
+    @Override
+    public void setBackstackPolicy(@NonNull final BackstackPolicy policy) {
+        execute(SET_BACKSTACK_POLICY, policy, null);
+    }
+
+    @Override
+    public void setListener(@Nullable final Listener<?> listener) {
+        delegate.setListener(listener);
+    }
+
+    @Override
+    public void setMetrics(@Nullable final TransitionMetrics metrics) {
+        delegate.setMetrics(metrics);
+    }
+
+    @Nullable
+    @Override
+    public TransitionMetrics getMetrics() {
+        return delegate.getMetrics();
+    }
+
+    @Override
+    public void setActivity(@Nullable final Activity activity) {
+        delegate.setActivity(activity);
+    }
+
+    @Override
+    public void reset() {
+        execute(RESET, null, null);
+    }
+
+    @Override
+    public void startWith(final Screen<?> screen) {
+        startWith(screen, null);
+    }
+
+    @Override
+    public void startWith(@NonNull final Screen<?> screen, @Nullable final TransitionAnimator animator) {
+        execute(START_WITH, screen, animator);
+    }
+
+    @Override
+    public void startWith(@NonNull final Backstack backstack) {
+        execute(START_WITH_BACKSTACK, backstack, null);
+    }
+
+    @Override
+    public void goTo(@NonNull final Screen<?> screen) {
+        goTo(screen, null);
+    }
+
+    @Override
+    public void goTo(@NonNull final Screen<?> screen, @Nullable final TransitionAnimator animator) {
+        execute(GO_TO, screen, animator);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When called from a thread other than the main thread, the Screen is prepared on the main thread later on.
+     */
+    @NonNull
+    @Override
+    public PreparedScreen prepare(@NonNull final Screen<?> screen) {
+        execute(PREPARE, screen, null);
+        return new PreparedScreen(this, screen);
+    }
+
+    @Override
+    public void discard(@NonNull final PreparedScreen preparedScreen) {
+        execute(DISCARD, preparedScreen, null);
+    }
+
+    @Override
+    public void showCurrent() {
+        execute(SHOW_CURRENT, null, null);
+    }
+
+    @Override
+    public void popTo(@NonNull final Screen<?> screen) {
+        popTo(screen, null);
+    }
+
+    @Override
+    public void popTo(@NonNull final Screen<?> screen, @Nullable final TransitionAnimator animator) {
+        execute(POP_TO, screen, animator);
+    }
+
+    @Override
+    public void replaceWith(@NonNull final Screen<?> screen) {
+        replaceWith(screen, null);
+    }
+
+    @Override
+    public void replaceWith(@NonNull final Screen<?> screen, @Nullable final TransitionAnimator animator) {
+        execute(REPLACE_WITH, screen, animator);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Must be called on the main thread, since the result depends on the state at the time the operation executes.
+     * From other threads, use {@code beginTransaction().goBack().commit()}.
+     *
+     * @throws IllegalStateException when called from a thread other than the main thread.
+     */
+    @Override
+    public boolean goBack() {
+        checkState(mainThread.isCurrentThread(), "goBack() must be called on the main thread, use beginTransaction().goBack().commit() instead.");
+
+        drainPending();
+        return delegate.goBack();
+    }
+
+    @Override
+    public void forward(@NonNull final Backstack newBackstack) {
+        execute(FORWARD, newBackstack, null);
+    }
+
+    @Override
+    public void backward(@NonNull final Backstack newBackstack) {
+        execute(BACKWARD, newBackstack, null);
+    }
+
+    @Override
+    public void replace(@NonNull final Backstack newBackstack) {
+        execute(REPLACE, newBackstack, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The transaction itself is not thread safe, but may be built and committed on any thread.
+     */
+    @NonNull
+    @Override
+    public Transaction beginTransaction() {
+        return new MainThreadTransaction();
+    }
+
+    @Override
+    public boolean canStart(@NonNull final Intent intent) {
+        return delegate.canStart(intent);
+    }
+
+    @Override
+    public void startActivity(@NonNull final Intent intent) {
+        delegate.startActivity(intent);
+    }
+
+    @Override
+    public void startActivityForResult(@NonNull final Intent intent, @NonNull final ActivityResultListener listener) {
+        delegate.startActivityForResult(intent, listener);
+    }
+
+    @Override
+    public void onActivityResult(final int requestCode, final int resultCode, @Nullable final Intent data) {
+        delegate.onActivityResult(requestCode, resultCode, data);
+    }
+
+    /**
+     * Decides which thread is the main thread, and runs code on it.
+     */
+    interface MainThread {
+
+        boolean isCurrentThread();
+
+        void post(@NonNull Runnable runnable);
+    }
+
+    private static class LooperMainThread implements MainThread {
+
+        @NonNull
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public boolean isCurrentThread() {
+            return Looper.myLooper() == Looper.getMainLooper();
+        }
+
+        @Override
+        public void post(@NonNull final Runnable runnable) {
+            handler.post(runnable);
+        }
+    }
+
+    /**
+     * A backstack operation with up to two arguments.
+     */
+    private interface Operation<A, B> {
+
+        void run(@NonNull Triad triad, A first, B second);
+    }
+
+    /**
+     * An operation that was requested off the main thread, together with its arguments.
+     */
+    private class PendingOperation<A, B> implements Runnable {
+
+        @NonNull
+        private final Operation<A, B> operation;
+
+        @Nullable
+        private final A first;
+
+        @Nullable
+        private final B second;
+
+        PendingOperation(@NonNull final Operation<A, B> operation, @Nullable final A first, @Nullable final B second) {
+            this.operation = operation;
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void run() {
+            operation.run(delegate, first, second);
+        }
+    }
+
+    /**
+     * Records its operations on the calling thread, and begins and commits
+     * the actual transaction on the main thread.
+     */
+    private class MainThreadTransaction implements Transaction {
+
+        @Nullable
+        private Transaction operations;
+
+        private boolean committed;
+
+        /**
+         * Returns the transaction that records the operations.
+         * It is only committed on the main thread, so it may be begun here.
+         */
+        @NonNull
+        private Transaction operations() {
+            if (operations == null) {
+                operations = delegate.beginTransaction();
+            }
+            return operations;
+        }
+
+        @NonNull
+        @Override
+        public Transaction goTo(@NonNull final Screen<?> screen) {
+            operations().goTo(screen);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Transaction goTo(@NonNull final Screen<?> screen, @Nullable final TransitionAnimator animator) {
+            operations().goTo(screen, animator);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Transaction popTo(@NonNull final Screen<?> screen) {
+            operations().popTo(screen);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Transaction popTo(@NonNull final Screen<?> screen, @Nullable final TransitionAnimator animator) {
+            operations().popTo(screen, animator);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Transaction replaceWith(@NonNull final Screen<?> screen) {
+            operations().replaceWith(screen);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Transaction replaceWith(@NonNull final Screen<?> screen, @Nullable final TransitionAnimator animator) {
+            operations().replaceWith(screen, animator);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Transaction goBack() {
+            operations().goBack();
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Transaction set(@NonNull final Backstack backstack) {
+            operations().set(backstack);
+            return this;
+        }
+
+        @Override
+        public void commit() {
+            commit(null);
+        }
+
+        @Override
+        public void commit(@Nullable final Direction direction) {
+            checkState(!committed, "Transaction has already been committed.");
+            committed = true;
+
+            execute(COMMIT, operations(), direction);
+        }
+    }
+}
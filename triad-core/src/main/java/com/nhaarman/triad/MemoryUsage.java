@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad;
+
+import android.support.annotation.NonNull;
+
+/**
+ * The estimated memory retained for a {@link Screen} in the backstack, see {@link TriadDelegate#getMemoryUsage()}.
+ */
+public final class MemoryUsage {
+
+    @NonNull
+    private final Screen<?> screen;
+
+    private final int depth;
+
+    private final long viewBytes;
+
+    private final long stateBytes;
+
+    private final long retainedBytes;
+
+    MemoryUsage(@NonNull final Screen<?> screen, final int depth, final long viewBytes, final long stateBytes, final long retainedBytes) {
+        this.screen = screen;
+        this.depth = depth;
+        this.viewBytes = viewBytes;
+        this.stateBytes = stateBytes;
+        this.retainedBytes = retainedBytes;
+    }
+
+    @NonNull
+    public Screen<?> getScreen() {
+        return screen;
+    }
+
+    /**
+     * The position of the screen in the backstack, where the current screen is at depth 0.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * The estimated memory used by the cached view of the screen.
+     */
+    public long getViewBytes() {
+        return viewBytes;
+    }
+
+    /**
+     * The size of the marshalled saved view state of the screen that is held in memory.
+     */
+    public long getStateBytes() {
+        return stateBytes;
+    }
+
+    /**
+     * The memory retained by the screen itself, as reported by {@link Screen#getRetainedBytes()},
+     * or 0 if the screen does not allow dehydration or is dehydrated.
+     */
+    public long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    public long getTotalBytes() {
+        return viewBytes + stateBytes + retainedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryUsage{" +
+              "screen=" + screen +
+              ", depth=" + depth +
+              ", viewBytes=" + viewBytes +
+              ", stateBytes=" + stateBytes +
+              ", retainedBytes=" + retainedBytes +
+              '}';
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad;
+
+import android.os.MessageQueue.IdleHandler;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Prepares the screens that are most likely to be shown after the current screen, while the main thread is idle.
+ * <p>
+ * Candidates are the screens the current screen declares in {@link Screen#getLikelyNextScreens()},
+ * ranked by how often navigation moved between their classes before, as recorded by the {@link SuccessorModel}.
+ * At most one screen is prepared per idle pass, so a single pass stays short.
+ * <p>
+ * Prefetched screens that are still likely to be shown next are kept across transitions. Other prefetched screens
+ * are discarded, which destroys them, so a discarded screen instance is never prepared again.
+ * <p>
+ * The memory used by a prefetched screen is estimated as the memory of its view plus {@link Screen#getRetainedBytes()}.
+ */
+final class Prefetcher implements IdleHandler {
+
+    @NonNull
+    private final SuccessorModel model;
+
+    @NonNull
+    private final TriadDelegate.PhaseScheduler scheduler;
+
+    private final int maxScreens;
+
+    private final long maxBytes;
+
+    @NonNull
+    private final ArrayList<PreparedScreen> prefetched = new ArrayList<>();
+
+    /**
+     * The estimated memory used by the prefetched screens.
+     */
+    private long bytes;
+
+    @Nullable
+    private Triad triad;
+
+    @NonNull
+    private final ArrayList<Screen<?>> candidates = new ArrayList<>();
+
+    private int nextCandidate;
+
+    /**
+     * The estimated memory used by the view of a single prefetched screen.
+     */
+    private long viewBytes;
+
+    private boolean scheduled;
+
+    /**
+     * The screens that were discarded, and thus destroyed. Held weakly, since they are compared by identity only.
+     */
+    @NonNull
+    private final Set<Screen<?>> discarded = Collections.newSetFromMap(new WeakHashMap<Screen<?>, Boolean>());
+
+    Prefetcher(@NonNull final SuccessorModel model, @NonNull final TriadDelegate.PhaseScheduler scheduler, final int maxScreens, final long maxBytes) {
+        this.model = model;
+        this.scheduler = scheduler;
+        this.maxScreens = maxScreens;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Notifies this prefetcher that a transition from given old screen to given new screen starts.
+     * Navigation to a screen of one's choice is recorded to improve future predictions,
+     * and a prefetched new screen stops counting as prefetched.
+     */
+    void onTransition(@Nullable final Screen<?> oldScreen, @NonNull final Screen<?> newScreen,
+                      @NonNull final TransitionMetrics.Type type, final boolean backward) {
+        unschedule();
+        candidates.clear();
+
+        if (oldScreen != null && oldScreen != newScreen && isNavigation(type, backward)) {
+            model.record(oldScreen.getClass(), newScreen.getClass());
+        }
+
+        for (int i = prefetched.size() - 1; i >= 0; i--) {
+            if (prefetched.get(i).getScreen() == newScreen) {
+                prefetched.remove(i);
+                bytes -= bytesOf(newScreen);
+            }
+        }
+    }
+
+    /**
+     * Returns whether a transition of given type moves to a screen that was chosen,
+     * rather than back to where navigation came from or to the screen that was already shown.
+     */
+    static boolean isNavigation(@NonNull final TransitionMetrics.Type type, final boolean backward) {
+        switch (type) {
+            case START_WITH:
+            case SHOW_CURRENT:
+            case GO_BACK:
+            case UNKNOWN:
+                return false;
+            case COALESCED:
+                /* Queued requests only leave their net effect, which moves back for queued goBack() calls. */
+                return !backward;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Starts prefetching the likely successors of given screen once the main thread is idle.
+     *
+     * @param viewBytes The estimated memory used by the view of a single prefetched screen.
+     */
+    void onScreenShown(@NonNull final Triad triad, @NonNull final Screen<?> screen, final long viewBytes) {
+        this.triad = triad;
+        this.viewBytes = viewBytes;
+
+        candidates.clear();
+        candidates.addAll(screen.getLikelyNextScreens());
+        nextCandidate = 0;
+
+        /* Keep the prefetched screens that are still likely to be shown. */
+        bytes = 0;
+        for (int i = prefetched.size() - 1; i >= 0; i--) {
+            PreparedScreen preparedScreen = prefetched.get(i);
+            if (!containsScreen(candidates, preparedScreen.getScreen())) {
+                discard(preparedScreen);
+                prefetched.remove(i);
+            } else {
+                bytes += bytesOf(preparedScreen.getScreen());
+            }
+        }
+        if (candidates.isEmpty()) return;
+
+        final Class<?> screenClass = screen.getClass();
+        Collections.sort(candidates, new Comparator<Screen<?>>() {
+            @Override
+            public int compare(final Screen<?> first, final Screen<?> second) {
+                return model.count(screenClass, second.getClass()) - model.count(screenClass, first.getClass());
+            }
+        });
+
+        if (!scheduled) {
+            scheduled = true;
+            scheduler.addIdleHandler(this);
+        }
+    }
+
+    @Override
+    public boolean queueIdle() {
+        Triad triad = this.triad;
+        if (triad == null || !hasRoom()) {
+            scheduled = false;
+            return false;
+        }
+
+        while (nextCandidate < candidates.size()) {
+            Screen<?> candidate = candidates.get(nextCandidate++);
+            if (!contains(triad.getBackstack(), candidate) && !isPrefetched(candidate) && !discarded.contains(candidate)
+                  && bytes + bytesOf(candidate) <= maxBytes) {
+                prefetched.add(triad.prepare(candidate));
+                bytes += bytesOf(candidate);
+                break;
+            }
+        }
+
+        scheduled = nextCandidate < candidates.size() && hasRoom();
+        return scheduled;
+    }
+
+    /**
+     * Discards all prefetched screens, and stops prefetching until the next screen is shown.
+     */
+    void clear() {
+        unschedule();
+        candidates.clear();
+
+        for (int i = prefetched.size() - 1; i >= 0; i--) {
+            discard(prefetched.get(i));
+        }
+        prefetched.clear();
+        bytes = 0;
+    }
+
+    private void discard(@NonNull final PreparedScreen preparedScreen) {
+        discarded.add(preparedScreen.getScreen());
+        preparedScreen.discard();
+    }
+
+    private boolean isPrefetched(@NonNull final Screen<?> screen) {
+        for (int i = 0; i < prefetched.size(); i++) {
+            if (prefetched.get(i).getScreen() == screen) return true;
+        }
+        return false;
+    }
+
+    void save() {
+        model.save();
+    }
+
+    private boolean hasRoom() {
+        return prefetched.size() < maxScreens && bytes + viewBytes <= maxBytes;
+    }
+
+    private long bytesOf(@NonNull final Screen<?> screen) {
+        return viewBytes + screen.getRetainedBytes();
+    }
+
+    private void unschedule() {
+        if (scheduled) {
+            scheduled = false;
+            scheduler.removeIdleHandler(this);
+        }
+    }
+
+    private static boolean containsScreen(@NonNull final List<Screen<?>> screens, @NonNull final Screen<?> screen) {
+        for (int i = 0; i < screens.size(); i++) {
+            if (screens.get(i) == screen) return true;
+        }
+        return false;
+    }
+
+    private static boolean contains(@NonNull final Backstack backstack, @NonNull final Screen<?> screen) {
+        for (Screen<?> backstackScreen : backstack) {
+            if (backstackScreen == screen) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
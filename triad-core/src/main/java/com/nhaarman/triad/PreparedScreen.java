@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * A handle to a {@link Screen} that was prepared ahead of navigation, see {@link Triad#prepare(Screen)}.
+ * <p>
+ * Either navigate to the screen using {@link #goTo()}, or call {@link #discard()} when it turns out to be unneeded.
+ */
+public final class PreparedScreen {
+
+    @NonNull
+    private final Triad triad;
+
+    @NonNull
+    private final Screen<?> screen;
+
+    PreparedScreen(@NonNull final Triad triad, @NonNull final Screen<?> screen) {
+        this.triad = triad;
+        this.screen = screen;
+    }
+
+    @NonNull
+    public Screen<?> getScreen() {
+        return screen;
+    }
+
+    /**
+     * Pushes the prepared screen onto the backstack, reusing the work that was done ahead of time.
+     */
+    public void goTo() {
+        triad.goTo(screen);
+    }
+
+    /**
+     * Pushes the prepared screen onto the backstack, reusing the work that was done ahead of time.
+     */
+    public void goTo(@Nullable final TransitionAnimator animator) {
+        triad.goTo(screen, animator);
+    }
+
+    /**
+     * Releases the prepared screen, calling {@link Screen#onDestroy()}.
+     * Does nothing if the screen was already pushed onto the backstack or discarded.
+     */
+    public void discard() {
+        triad.discard(this);
+    }
+
+    @Override
+    public String toString() {
+        return "PreparedScreen[" + screen + "]";
+    }
+}
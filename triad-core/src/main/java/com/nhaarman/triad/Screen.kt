@@ -16,8 +16,10 @@
 
 package com.nhaarman.triad
 
+import android.os.Parcel
 import android.os.Parcelable
 import android.support.annotation.LayoutRes
+import android.support.annotation.RestrictTo
 import android.util.SparseArray
 import android.view.*
 
@@ -25,17 +27,76 @@ abstract class Screen<ApplicationComponent : Any> {
 
     private val state = SparseArray<Parcelable>()
 
+    /**
+     * The saved view state in marshalled form, or null if it is held in [state] or in [stateStore].
+     */
+    private var marshalledState: ByteArray? = null
+
+    /**
+     * The store the marshalled saved view state was written to, if any.
+     */
+    private var stateStore: StateStore? = null
+
+    /**
+     * The key under which the marshalled saved view state was written to [stateStore].
+     */
+    private var stateKey: String? = null
+
     lateinit var applicationComponent: ApplicationComponent
 
     @get:LayoutRes
     protected abstract val layoutResId: Int
 
     open fun createView(parent: ViewGroup): View {
-        return LayoutInflater.from(parent.context).inflate(layoutResId, parent, false)
+        return createView(parent, LayoutInflater.from(parent.context))
+    }
+
+    /**
+     * Creates the view of this Screen using given [inflater].
+     *
+     * When asynchronous inflation is enabled in [TriadDelegate], this method is called on a background thread,
+     * unless [createView] without an inflater is overridden or [inflatesOnMainThread] is true.
+     */
+    open fun createView(parent: ViewGroup, inflater: LayoutInflater): View {
+        return inflater.inflate(layoutResId, parent, false)
     }
 
+    /**
+     * Whether the view of this Screen must always be created on the main thread,
+     * for example because its layout contains views that require a Looper when they are constructed.
+     */
+    open val inflatesOnMainThread: Boolean
+        get() = false
+
+    /**
+     * Whether the view of this Screen can be shared with other screens that have the same [layoutResId].
+     *
+     * When a view pool is enabled in [TriadDelegate], a Screen that returns true may receive a view that
+     * was previously used by another Screen instead of a newly created view, and its own view is
+     * released into the pool once it is removed. The view is passed to [bindRecycledView] before it is shown.
+     *
+     * When such a Screen is replaced by another such Screen with the same [layoutResId], the existing view
+     * is kept in place and rebound to the new Screen, instead of being replaced by a new view.
+     */
+    open val recyclesView: Boolean
+        get() = false
+
+    /**
+     * Prepares a [view] that was previously used by another Screen with the same [layoutResId] to be used by this Screen.
+     * Implementations should reset any state the previous Screen may have left in the view.
+     * The saved state of this Screen is restored afterwards, and the presenter is attached as usual.
+     */
+    open fun bindRecycledView(view: View) {}
+
     abstract val presenter: Presenter<*>
 
+    /**
+     * Identifies the content this Screen shows, such as the id of a product, for the [BackstackPolicy] of [Triad].
+     * Screens with equal keys are considered to show the same content. Screens without a key are never considered equal.
+     */
+    open val key: Any?
+        get() = null
+
     open fun saveState(view: View) {
         view.saveHierarchyState(state)
     }
@@ -44,6 +105,155 @@ abstract class Screen<ApplicationComponent : Any> {
         view.restoreHierarchyState(state)
     }
 
+    /**
+     * Whether this Screen may be dehydrated while it is deep in the backstack.
+     *
+     * When dehydration is enabled in [TriadDelegate], such a Screen is destroyed through [onDestroy] once it is
+     * deep enough in the backstack, keeping only its saved view state in marshalled form. Before it is shown again,
+     * [onCreate] is called once more. Screens that return true should therefore release their presenter and
+     * other resources in [onDestroy], and be able to recreate them in [onCreate].
+     */
+    open val dehydrates: Boolean
+        get() = false
+
+    /**
+     * Whether this Screen is dehydrated, see [dehydrates].
+     */
+    var isDehydrated: Boolean = false
+        private set
+
+    /**
+     * An estimate of the memory retained by this Screen besides its views and saved view state, such as by its presenter,
+     * in bytes. When a memory budget is set in [TriadDelegate], this is taken into account for Screens that can be dehydrated.
+     * It also counts towards the memory limit of prefetched Screens.
+     */
+    open val retainedBytes: Long
+        get() = 0
+
+    /**
+     * The size of the marshalled saved view state of this Screen that is held in memory, see [marshalState].
+     */
+    val marshalledStateBytes: Int
+        get() = marshalledState?.size ?: 0
+
+    /**
+     * Marks this Screen as dehydrated, and marshals its saved view state, see [marshalState].
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    fun dehydrate() {
+        if (isDehydrated) return
+        isDehydrated = true
+
+        marshalState()
+    }
+
+    /**
+     * Marks this Screen as no longer dehydrated, and restores its saved view state, see [unmarshalState].
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    fun rehydrate() {
+        if (!isDehydrated) return
+        isDehydrated = false
+
+        unmarshalState()
+    }
+
+    /**
+     * Marshals the saved view state of this Screen into a compact byte array, releasing the saved [Parcelable]s.
+     * If the state cannot be marshalled, it is kept as it is.
+     *
+     * @return The size of the marshalled state that is held in memory.
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    fun marshalState(): Int {
+        marshalledState?.let { return it.size }
+        if (stateKey != null || state.size() == 0) return 0
+
+        val parcel = Parcel.obtain()
+        try {
+            @Suppress("UNCHECKED_CAST")
+            parcel.writeSparseArray(state as SparseArray<Any>)
+            val bytes = parcel.marshall()
+            marshalledState = bytes
+            state.clear()
+            return bytes.size
+        } catch (e: RuntimeException) {
+            /* The state contains objects that cannot be marshalled, such as binders. */
+            return 0
+        } finally {
+            parcel.recycle()
+        }
+    }
+
+    /**
+     * Moves the marshalled saved view state of this Screen out of memory into given [store],
+     * marshalling it first if necessary.
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    fun writeState(store: StateStore) {
+        marshalState()
+        val bytes = marshalledState ?: return
+
+        stateKey = store.write(bytes)
+        stateStore = store
+        marshalledState = null
+    }
+
+    /**
+     * Restores the saved view state of this Screen from its marshalled form,
+     * reading it back from the [StateStore] it was written to, if any.
+     * State that was saved since it was marshalled takes precedence.
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    fun unmarshalState() {
+        val store = stateStore
+        val key = stateKey
+        val bytes = if (store != null && key != null) store.read(key) else marshalledState
+        discardStoredState()
+        marshalledState = null
+        if (bytes == null) return
+
+        val parcel = Parcel.obtain()
+        try {
+            parcel.unmarshall(bytes, 0, bytes.size)
+            parcel.setDataPosition(0)
+
+            val restored = parcel.readSparseArray(javaClass.classLoader) ?: return
+            for (i in 0 until restored.size()) {
+                if (state.get(restored.keyAt(i)) == null) {
+                    state.put(restored.keyAt(i), restored.valueAt(i) as Parcelable)
+                }
+            }
+        } finally {
+            parcel.recycle()
+        }
+    }
+
+    /**
+     * Removes the saved view state of this Screen from the [StateStore] it was written to, if any.
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    fun discardStoredState() {
+        val store = stateStore
+        val key = stateKey
+        stateStore = null
+        stateKey = null
+
+        if (store != null && key != null) {
+            store.remove(key)
+        }
+    }
+
+    /**
+     * The screens that are likely to be navigated to from this Screen.
+     * When prefetching is enabled in [TriadDelegate], these screens are prepared ahead of time
+     * while the main thread is idle. Navigate to the same instances to benefit from this.
+     * A prefetched Screen that turns out to be unneeded is destroyed, and is not prefetched again,
+     * so return new instances to have them prefetched once more.
+     */
+    open val likelyNextScreens: List<Screen<ApplicationComponent>>
+        get() = emptyList()
+
     var rootView: ViewGroup? = null
         set(value) {
             if (field == value) return
@@ -59,6 +269,14 @@ abstract class Screen<ApplicationComponent : Any> {
 
     open fun onCreate() {}
 
+    /**
+     * Called when the system asks the app to trim its memory, while this Screen is in the backstack and not dehydrated.
+     * Screens can release their own heavy resources here, such as caches held by their presenter.
+     *
+     * @param level The trim level, see [android.content.ComponentCallbacks2].
+     */
+    open fun onTrimMemory(level: Int) {}
+
     abstract fun attach(root: ViewGroup)
 
     open fun onBackPressed(): Boolean {
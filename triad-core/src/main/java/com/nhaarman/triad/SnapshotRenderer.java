@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.widget.ImageView;
+import java.util.ArrayList;
+
+/**
+ * Replaces views by a static image of themselves, so that their hierarchy can be released
+ * while a transition animates the image instead.
+ * <p>
+ * The bitmaps backing the images are pooled, since consecutive transitions usually snapshot views of the same size.
+ * The image view itself is reused as well, since usually only one snapshot is shown at a time.
+ */
+class SnapshotRenderer {
+
+    /**
+     * The maximum number of unused bitmaps that are kept for reuse.
+     */
+    private static final int MAX_POOLED_BITMAPS = 2;
+
+    @NonNull
+    private final ArrayList<Bitmap> pool = new ArrayList<>(MAX_POOLED_BITMAPS);
+
+    @NonNull
+    private final Canvas canvas = new Canvas();
+
+    /**
+     * A released snapshot that can show the next image, if any.
+     */
+    @Nullable
+    private Snapshot spare;
+
+    /**
+     * Draws given view into a bitmap, and replaces it in its parent by an image showing that bitmap.
+     *
+     * @return The image that replaced the view, or {@code null} if the view could not be replaced,
+     * because it has no parent, has not been laid out yet or there is not enough memory for the bitmap.
+     */
+    @Nullable
+    Snapshot replace(@NonNull final View view) {
+        ViewParent parent = view.getParent();
+        if (!(parent instanceof ViewGroup) || view.getWidth() <= 0 || view.getHeight() <= 0) return null;
+
+        Bitmap bitmap = obtain(view.getWidth(), view.getHeight());
+        if (bitmap == null) return null;
+
+        canvas.setBitmap(bitmap);
+        int saveCount = canvas.save();
+        canvas.translate(-view.getScrollX(), -view.getScrollY());
+        view.draw(canvas);
+        canvas.restoreToCount(saveCount);
+        canvas.setBitmap(null);
+
+        Snapshot snapshot = spare;
+        spare = null;
+        if (snapshot == null) {
+            snapshot = new Snapshot(view);
+        }
+        snapshot.show(bitmap);
+
+        ViewGroup viewGroup = (ViewGroup) parent;
+        int index = viewGroup.indexOfChild(view);
+        ViewGroup.LayoutParams layoutParams = view.getLayoutParams();
+        viewGroup.removeView(view);
+        if (layoutParams != null) {
+            viewGroup.addView(snapshot, index, layoutParams);
+        } else {
+            viewGroup.addView(snapshot, index);
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Removes given snapshot from its parent if it is still attached, and returns its bitmap to the pool.
+     *
+     * @param animated Whether an animator may still be animating the snapshot, in which case the snapshot is not reused.
+     */
+    void release(@NonNull final Snapshot snapshot, final boolean animated) {
+        ViewParent parent = snapshot.getParent();
+        if (parent instanceof ViewGroup) {
+            ((ViewGroup) parent).removeView(snapshot);
+        }
+
+        Bitmap bitmap = snapshot.bitmap;
+        if (bitmap == null) return;
+
+        snapshot.show(null);
+        if (!animated && spare == null) {
+            spare = snapshot;
+        }
+
+        if (!bitmap.isRecycled()) {
+            if (pool.size() < MAX_POOLED_BITMAPS) {
+                pool.add(bitmap);
+            } else {
+                bitmap.recycle();
+            }
+        }
+    }
+
+    /**
+     * Recycles all pooled bitmaps, and drops the spare snapshot, which belongs to the current Activity.
+     */
+    void clear() {
+        for (int i = 0; i < pool.size(); i++) {
+            pool.get(i).recycle();
+        }
+        pool.clear();
+        spare = null;
+    }
+
+    @Nullable
+    private Bitmap obtain(final int width, final int height) {
+        for (int i = 0; i < pool.size(); i++) {
+            Bitmap bitmap = pool.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                pool.remove(i);
+                bitmap.eraseColor(Color.TRANSPARENT);
+                return bitmap;
+            }
+        }
+
+        try {
+            return createBitmap(width, height);
+        } catch (OutOfMemoryError ignored) {
+            /* Fall back to animating the view itself. */
+            clear();
+            return null;
+        }
+    }
+
+    /**
+     * Creates a new bitmap of given size. Overridden in tests.
+     */
+    @Nullable
+    Bitmap createBitmap(final int width, final int height) {
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * An image of a view, backed by a pooled bitmap.
+     */
+    static final class Snapshot extends ImageView {
+
+        @Nullable
+        private Bitmap bitmap;
+
+        private Snapshot(@NonNull final View view) {
+            super(view.getContext());
+        }
+
+        private void show(@Nullable final Bitmap bitmap) {
+            this.bitmap = bitmap;
+            setImageBitmap(bitmap);
+
+            /* Undo what the animator of the previous transition left behind. */
+            setAlpha(1f);
+            setTranslationX(0f);
+            setTranslationY(0f);
+            setScaleX(1f);
+            setScaleY(1f);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Holds the marshalled view states of {@link Screen}s outside of the heap,
+ * see {@link TriadDelegate#setStateStore(StateStore, int, long)}.
+ * <p>
+ * Methods are called on the main thread, so implementations should return quickly.
+ *
+ * @see FileStateStore
+ */
+public interface StateStore {
+
+    /**
+     * Stores given marshalled state.
+     *
+     * @return The key to read the state back with.
+     */
+    @NonNull
+    String write(@NonNull byte[] state);
+
+    /**
+     * Returns the state that was stored under given key, or {@code null} if it could not be read.
+     */
+    @Nullable
+    byte[] read(@NonNull String key);
+
+    /**
+     * Removes the state that was stored under given key.
+     */
+    void remove(@NonNull String key);
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad;
+
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Counts how often navigation moves from one {@link Screen} class to another,
+ * to predict which screens are likely to be shown next.
+ * <p>
+ * Counts are persisted in {@link SharedPreferences}, with one entry per source class of the form
+ * {@code "com.example.NextScreen=12;com.example.OtherScreen=3"}.
+ */
+final class SuccessorModel {
+
+    /**
+     * The maximum number of successors kept per screen class. The least frequent successor is dropped first.
+     */
+    private static final int MAX_SUCCESSORS = 8;
+
+    /**
+     * When a count reaches this value, all counts for its source are halved, so that the model adapts to changing behavior.
+     */
+    private static final int MAX_COUNT = 1024;
+
+    @NonNull
+    private final SharedPreferences preferences;
+
+    @NonNull
+    private final Map<String, Map<String, Integer>> counts = new HashMap<>();
+
+    private boolean dirty;
+
+    SuccessorModel(@NonNull final SharedPreferences preferences) {
+        this.preferences = preferences;
+
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            if (entry.getValue() instanceof String) {
+                counts.put(entry.getKey(), decode((String) entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Records a navigation from given screen class to given screen class.
+     */
+    void record(@NonNull final Class<?> from, @NonNull final Class<?> to) {
+        Map<String, Integer> successors = counts.get(from.getName());
+        if (successors == null) {
+            successors = new HashMap<>();
+            counts.put(from.getName(), successors);
+        }
+
+        Integer count = successors.get(to.getName());
+        int newCount = count == null ? 1 : count + 1;
+        successors.put(to.getName(), newCount);
+
+        if (newCount >= MAX_COUNT) {
+            halve(successors);
+        }
+        if (successors.size() > MAX_SUCCESSORS) {
+            removeLeastFrequent(successors);
+        }
+
+        dirty = true;
+    }
+
+    /**
+     * Returns how often navigation moved from given screen class to given screen class.
+     */
+    int count(@NonNull final Class<?> from, @NonNull final Class<?> to) {
+        Map<String, Integer> successors = counts.get(from.getName());
+        if (successors == null) return 0;
+
+        Integer count = successors.get(to.getName());
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Writes the recorded counts to the preferences, if they changed.
+     */
+    void save() {
+        if (!dirty) return;
+
+        SharedPreferences.Editor editor = preferences.edit();
+        for (Map.Entry<String, Map<String, Integer>> entry : counts.entrySet()) {
+            editor.putString(entry.getKey(), encode(entry.getValue()));
+        }
+        editor.apply();
+
+        dirty = false;
+    }
+
+    private static void halve(@NonNull final Map<String, Integer> successors) {
+        for (Iterator<Map.Entry<String, Integer>> iterator = successors.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<String, Integer> entry = iterator.next();
+            int count = entry.getValue() / 2;
+            if (count == 0) {
+                iterator.remove();
+            } else {
+                entry.setValue(count);
+            }
+        }
+    }
+
+    private static void removeLeastFrequent(@NonNull final Map<String, Integer> successors) {
+        String leastFrequent = null;
+        int lowestCount = Integer.MAX_VALUE;
+        for (Map.Entry<String, Integer> entry : successors.entrySet()) {
+            if (entry.getValue() < lowestCount) {
+                leastFrequent = entry.getKey();
+                lowestCount = entry.getValue();
+            }
+        }
+        successors.remove(leastFrequent);
+    }
+
+    @NonNull
+    private static String encode(@NonNull final Map<String, Integer> successors) {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : successors.entrySet()) {
+            if (builder.length() > 0) {
+                builder.append(';');
+            }
+            builder.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return builder.toString();
+    }
+
+    @NonNull
+    private static Map<String, Integer> decode(@Nullable final String value) {
+        Map<String, Integer> successors = new HashMap<>();
+        if (value == null || value.isEmpty()) return successors;
+
+        for (String pair : value.split(";")) {
+            int separator = pair.lastIndexOf('=');
+            if (separator <= 0) continue;
+
+            try {
+                successors.put(pair.substring(0, separator), Integer.parseInt(pair.substring(separator + 1)));
+            } catch (NumberFormatException ignored) {
+                /* Skip corrupt entries. */
+            }
+        }
+        return successors;
+    }
+}
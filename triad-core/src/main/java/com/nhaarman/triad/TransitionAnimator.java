@@ -32,4 +32,122 @@ public interface TransitionAnimator {
                      @NonNull View newView,
                      @NonNull ViewGroup parent,
                      @NonNull Triad.Callback callback);
+
+    /**
+     * A {@link TransitionAnimator} whose animations can be ended early, when their transition is cancelled.
+     * Animators that do not implement this interface are left running, and their callback is ignored.
+     */
+    interface CancellableAnimator extends TransitionAnimator {
+
+        /**
+         * Ends the animation that was started for given views immediately,
+         * without calling {@link Triad.Callback#onComplete()}.
+         * <p>
+         * Afterwards, the new view must be a child of given parent in its final state,
+         * and the old view must no longer be a child of given parent.
+         *
+         * @param oldView The old view that was passed to the animator, or {@code null} if there was none
+         *                or the content of a single view changed.
+         * @param newView The new view that was passed to the animator.
+         */
+        void cancel(@Nullable View oldView,
+                    @NonNull View newView,
+                    @NonNull ViewGroup parent);
+    }
+
+    /**
+     * A {@link TransitionAnimator} whose animations can be stopped halfway, when their transition is interrupted
+     * by a new transition. The animation of the new transition then starts from where the views were left.
+     * <p>
+     * When the new transition moves back to the screen of the old view, the old view is passed to the animator
+     * as the new view while it is still a child of the parent, so the animator can reverse the animation.
+     */
+    interface InterruptibleAnimator extends CancellableAnimator {
+
+        /**
+         * Stops the animation that was started for given views at its current progress,
+         * without calling {@link Triad.Callback#onComplete()}. Both views remain children of given parent.
+         */
+        void interrupt(@Nullable View oldView,
+                       @NonNull View newView,
+                       @NonNull ViewGroup parent);
+    }
+
+    /**
+     * A {@link TransitionAnimator} whose backward animation can be driven by the progress of a gesture,
+     * see {@link TriadDelegate#startBackGesture()}.
+     * <p>
+     * The old view is the view of the current screen, and the new view is the view of the screen below it.
+     * {@link #seek(View, View, ViewGroup, float)} is called for every frame of the gesture, and must not allocate.
+     * If the gesture is abandoned, {@link #abandonSeek(View, View, ViewGroup)} is called,
+     * possibly while {@link #finishSeek(View, View, ViewGroup, Triad.Callback)} is still animating.
+     */
+    interface SeekableAnimator extends TransitionAnimator {
+
+        /**
+         * Adds given new view to given parent, and shows the state at progress 0.
+         */
+        void startSeek(@NonNull View oldView,
+                       @NonNull View newView,
+                       @NonNull ViewGroup parent);
+
+        /**
+         * Shows the state at given progress.
+         *
+         * @param progress The progress of the gesture, from 0 (only the old view is visible) to 1 (only the new view is visible).
+         */
+        void seek(@NonNull View oldView,
+                  @NonNull View newView,
+                  @NonNull ViewGroup parent,
+                  float progress);
+
+        /**
+         * Animates from the current progress to 1, removes the old view from given parent,
+         * and calls {@link Triad.Callback#onComplete()}.
+         */
+        void finishSeek(@NonNull View oldView,
+                        @NonNull View newView,
+                        @NonNull ViewGroup parent,
+                        @NonNull Triad.Callback callback);
+
+        /**
+         * Animates from the current progress back to 0, removes the new view from given parent,
+         * and calls {@link Triad.Callback#onComplete()}.
+         */
+        void cancelSeek(@NonNull View oldView,
+                        @NonNull View newView,
+                        @NonNull ViewGroup parent,
+                        @NonNull Triad.Callback callback);
+
+        /**
+         * Immediately shows the state at progress 0, ending any running animation
+         * without calling {@link Triad.Callback#onComplete()}.
+         * <p>
+         * Afterwards, the old view must be a child of given parent,
+         * and the new view must no longer be a child of given parent.
+         */
+        void abandonSeek(@NonNull View oldView,
+                         @NonNull View newView,
+                         @NonNull ViewGroup parent);
+    }
+
+    /**
+     * A {@link TransitionAnimator} that can also animate a replacement in which the view stays in place,
+     * and only its content changes because it is rebound to the new {@link Screen}.
+     *
+     * @see Screen#getRecyclesView()
+     */
+    interface ContentChangeAnimator extends TransitionAnimator {
+
+        /**
+         * Animates the change of content of given view, which is already a child of given parent.
+         * The view must not be removed from the parent.
+         *
+         * @return true if the change is animated, in which case {@link Triad.Callback#onComplete()} must be called
+         * once the animation ends.
+         */
+        boolean contentChanged(@NonNull View view,
+                               @NonNull ViewGroup parent,
+                               @NonNull Triad.Callback callback);
+    }
 }
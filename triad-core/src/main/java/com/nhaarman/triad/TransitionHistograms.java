@@ -0,0 +1,203 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.nhaarman.triad.Preconditions.checkArgument;
+
+/**
+ * A {@link TransitionMetrics} implementation that keeps latency histograms per {@link Screen} class
+ * and per transition {@link Type}, as well as a histogram of the transition queue depth.
+ * <p>
+ * Recording is cheap and does not allocate, except the first time a Screen class or transition type is seen,
+ * so this class can be left enabled in production:
+ * <pre>{@code
+ * TransitionHistograms histograms = new TransitionHistograms();
+ * triad.setMetrics(histograms);
+ * // Later:
+ * Log.d("Triad", histograms.report());
+ * }</pre>
+ * This class is thread safe: results can be read from any thread.
+ */
+public final class TransitionHistograms implements TransitionMetrics {
+
+    @NonNull
+    private static final Phase[] PHASES = Phase.values();
+
+    @NonNull
+    private static final Type[] TYPES = Type.values();
+
+    @NonNull
+    private final Map<Class<?>, Histogram[]> byScreen = new HashMap<>();
+
+    @NonNull
+    private final Histogram[][] byType = new Histogram[TYPES.length][];
+
+    @NonNull
+    private final Histogram queueDepths = new Histogram();
+
+    @Override
+    public synchronized void onRequested(@NonNull final Type type, final int queueDepth) {
+        queueDepths.record(queueDepth);
+    }
+
+    @Override
+    public synchronized void onPhase(
+          @NonNull final Phase phase,
+          @NonNull final Type type,
+          @Nullable final Class<?> screenClass,
+          final long startNanos,
+          final long endNanos
+    ) {
+        long duration = endNanos - startNanos;
+
+        Histogram[] typeHistograms = byType[type.ordinal()];
+        if (typeHistograms == null) {
+            typeHistograms = newHistograms();
+            byType[type.ordinal()] = typeHistograms;
+        }
+        typeHistograms[phase.ordinal()].record(duration);
+
+        if (screenClass != null) {
+            Histogram[] screenHistograms = byScreen.get(screenClass);
+            if (screenHistograms == null) {
+                screenHistograms = newHistograms();
+                byScreen.put(screenClass, screenHistograms);
+            }
+            screenHistograms[phase.ordinal()].record(duration);
+        }
+    }
+
+    /**
+     * Returns the duration in nanoseconds below which given percentage of the phases for given Screen class fall,
+     * or -1 if no such phases were recorded.
+     *
+     * @param percentile A value between 0 and 100, e.g. 99 for the p99 latency.
+     */
+    public synchronized long percentile(@NonNull final Phase phase, @NonNull final Class<?> screenClass, final double percentile) {
+        checkPercentile(percentile);
+
+        Histogram[] histograms = byScreen.get(screenClass);
+        return histograms == null ? -1 : histograms[phase.ordinal()].percentile(percentile);
+    }
+
+    /**
+     * Returns the duration in nanoseconds below which given percentage of the phases for given transition type fall,
+     * or -1 if no such phases were recorded.
+     *
+     * @param percentile A value between 0 and 100, e.g. 99 for the p99 latency.
+     */
+    public synchronized long percentile(@NonNull final Phase phase, @NonNull final Type type, final double percentile) {
+        checkPercentile(percentile);
+
+        Histogram[] histograms = byType[type.ordinal()];
+        return histograms == null ? -1 : histograms[phase.ordinal()].percentile(percentile);
+    }
+
+    /**
+     * Returns the queue depth below which given percentage of the transition requests fall,
+     * or -1 if no transitions were requested.
+     *
+     * @param percentile A value between 0 and 100.
+     */
+    public synchronized long queueDepthPercentile(final double percentile) {
+        checkPercentile(percentile);
+
+        return queueDepths.percentile(percentile);
+    }
+
+    /**
+     * Clears all recorded values.
+     */
+    public synchronized void reset() {
+        byScreen.clear();
+        for (int i = 0; i < byType.length; i++) {
+            byType[i] = null;
+        }
+        queueDepths.clear();
+    }
+
+    /**
+     * Returns a human readable overview of the p50, p90 and p99 latencies in milliseconds,
+     * per transition type and per Screen class.
+     */
+    @NonNull
+    public synchronized String report() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("Queue depth: ");
+        appendPercentiles(builder, queueDepths, 1);
+        builder.append('\n');
+
+        for (int i = 0; i < byType.length; i++) {
+            if (byType[i] != null) {
+                appendHistograms(builder, TYPES[i].name(), byType[i]);
+            }
+        }
+
+        for (Map.Entry<Class<?>, Histogram[]> entry : byScreen.entrySet()) {
+            appendHistograms(builder, entry.getKey().getSimpleName(), entry.getValue());
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return report();
+    }
+
+    private static void appendHistograms(@NonNull final StringBuilder builder, @NonNull final String name, @NonNull final Histogram[] histograms) {
+        builder.append(name).append('\n');
+        for (int i = 0; i < histograms.length; i++) {
+            if (histograms[i].count() > 0) {
+                builder.append("  ").append(PHASES[i].name()).append(": ");
+                appendPercentiles(builder, histograms[i], 1000000d);
+                builder.append('\n');
+            }
+        }
+    }
+
+    private static void appendPercentiles(@NonNull final StringBuilder builder, @NonNull final Histogram histogram, final double divisor) {
+        builder.append(String.format(
+              Locale.US,
+              "p50=%.2f p90=%.2f p99=%.2f (n=%d)",
+              histogram.percentile(50) / divisor,
+              histogram.percentile(90) / divisor,
+              histogram.percentile(99) / divisor,
+              histogram.count()
+        ));
+    }
+
+    @NonNull
+    private static Histogram[] newHistograms() {
+        Histogram[] histograms = new Histogram[PHASES.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+        return histograms;
+    }
+
+    private static void checkPercentile(final double percentile) {
+        checkArgument(percentile >= 0 && percentile <= 100, "Percentile must be between 0 and 100, but was %s.", percentile);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Receives timings of the phases of transitions, as measured by {@link Triad} and {@link TriadDelegate}.
+ * <p>
+ * All timestamps are obtained from {@link System#nanoTime()}.
+ * Methods are called on the main thread, in the middle of a transition, so implementations should return quickly.
+ *
+ * @see TransitionHistograms
+ */
+public interface TransitionMetrics {
+
+    /**
+     * Called when a transition is requested.
+     *
+     * @param type       The type of the requested transition.
+     * @param queueDepth The number of transitions waiting for the current transition to finish,
+     *                   including the requested transition. Zero if the transition executes immediately.
+     */
+    void onRequested(@NonNull Type type, int queueDepth);
+
+    /**
+     * Called when a phase of a transition has ended.
+     *
+     * @param phase       The phase that ended.
+     * @param type        The type of the transition the phase belongs to.
+     * @param screenClass The class of the Screen the phase applies to, or {@code null} if the backstack is empty.
+     * @param startNanos  The time at which the phase started.
+     * @param endNanos    The time at which the phase ended.
+     */
+    void onPhase(@NonNull Phase phase, @NonNull Type type, @Nullable Class<?> screenClass, long startNanos, long endNanos);
+
+    /**
+     * The phases of a transition, in the order in which they happen.
+     */
+    enum Phase {
+
+        /**
+         * The time between requesting a transition and its execution.
+         */
+        QUEUE,
+
+        /**
+         * Determining the new backstack and notifying the listener of the pushed and popped screens.
+         */
+        EXECUTE,
+
+        /**
+         * Notifying the listener of a pushed screen, which includes {@link Screen#onCreate()}.
+         * Reported once for every pushed screen, when it is created; see {@link Triad.DeferringListener}.
+         */
+        CREATE,
+
+        /**
+         * Creating the view of the new screen.
+         */
+        INFLATE,
+
+        /**
+         * Restoring the view state of the new screen.
+         */
+        RESTORE_STATE,
+
+        /**
+         * From the start of the {@link TransitionAnimator} until it calls {@link Triad.Callback#onComplete()}.
+         */
+        ANIMATE,
+
+        /**
+         * Attaching the new screen and detaching the old screen.
+         */
+        ATTACH,
+
+        /**
+         * The entire transition, from the request until the listener calls {@link Triad.Callback#onComplete()}.
+         */
+        TRANSITION
+    }
+
+    /**
+     * The kinds of transitions, corresponding to the operations on {@link Triad}.
+     */
+    enum Type {
+
+        START_WITH,
+        GO_TO,
+        GO_BACK,
+        POP_TO,
+        REPLACE_WITH,
+        FORWARD,
+        BACKWARD,
+        REPLACE,
+        SHOW_CURRENT,
+        TRANSACTION,
+
+        /**
+         * Several queued transitions that are executed as one.
+         */
+        COALESCED,
+
+        /**
+         * A transition that was not started by Triad.
+         */
+        UNKNOWN
+    }
+}
@@ -12,8 +12,46 @@ public interface Triad {
 
     boolean isTransitioning();
 
+    /**
+     * Returns the backstack and whether a transition is running, as a single consistent value.
+     * Unlike {@link #getBackstack()} followed by {@link #isTransitioning()}, the returned values
+     * always belong together, which makes this the way to read the state from threads other than the main thread.
+     */
+    @NonNull
+    Snapshot getSnapshot();
+
+    /**
+     * Returns the number of transitions that are waiting for the current transition to finish.
+     */
+    int getQueueDepth();
+
+    /**
+     * Limits the number of transitions that can wait for the current transition to finish.
+     * When a transition is requested while the queue is full, given policy decides what happens.
+     * By default, the queue is unbounded.
+     *
+     * @param maxQueueDepth  The maximum number of queued transitions, must be positive.
+     * @param overflowPolicy What to do when a transition is requested while the queue is full.
+     */
+    void setMaxQueueDepth(int maxQueueDepth, @NonNull OverflowPolicy overflowPolicy);
+
+    /**
+     * Sets the policy that limits which screens the backstack retains, such as a maximum depth.
+     * The policy applies to transitions that execute afterwards. By default, every screen is retained.
+     */
+    void setBackstackPolicy(@NonNull BackstackPolicy policy);
+
     void setListener(@Nullable Listener<?> listener);
 
+    /**
+     * Sets the {@link TransitionMetrics} to report the timings of transitions to.
+     * When no metrics are set, transitions are not timed.
+     */
+    void setMetrics(@Nullable TransitionMetrics metrics);
+
+    @Nullable
+    TransitionMetrics getMetrics();
+
     /**
      * Sets the current Activity, to be able to start other Activities from the Triad instance.
      */
@@ -64,6 +102,24 @@ public interface Triad {
      */
     void goTo(@NonNull Screen<?> screen, @Nullable TransitionAnimator animator);
 
+    /**
+     * Prepares given Screen ahead of navigation, for example when the user touches a list item
+     * that will most likely lead to it. Preparing creates the Screen, and lets the listener do work such as
+     * creating its view if it implements {@link PreparingListener}.
+     * <p>
+     * A subsequent {@link #goTo(Screen)} with the same Screen instance reuses that work.
+     * If the Screen is not navigated to, the returned handle must be {@link PreparedScreen#discard() discarded}.
+     *
+     * @param screen The Screen to prepare.
+     */
+    @NonNull
+    PreparedScreen prepare(@NonNull Screen<?> screen);
+
+    /**
+     * Discards given prepared Screen if it was not pushed onto the backstack.
+     */
+    void discard(@NonNull PreparedScreen preparedScreen);
+
     /**
      * Forces a notification of the current screen.
      */
@@ -93,6 +149,7 @@ public interface Triad {
 
     /**
      * Replaces the current Screen with given Screen.
+     * If given Screen is the current Screen, it is popped and pushed again, and shown with a new view.
      *
      * One must first initialize this instance with [.startWith] before this method is called.
      *
@@ -102,6 +159,7 @@ public interface Triad {
 
     /**
      * Replaces the current Screen with given Screen.
+     * If given Screen is the current Screen, it is popped and pushed again, and shown with a new view.
      *
      * One must first initialize this instance with [.startWith] before this method is called.
      *
@@ -112,6 +170,8 @@ public interface Triad {
     /**
      * Pops the current screen off the backstack.
      * Does nothing if the backstack would be empty afterwards.
+     * <p>
+     * While a transition is running, this does nothing unless the listener is an {@link InterruptibleListener}.
      *
      * One must first initialize this instance with [.startWith] before this method is called.
      *
@@ -146,6 +206,15 @@ public interface Triad {
      */
     void replace(@NonNull Backstack newBackstack);
 
+    /**
+     * Starts a transaction that applies several backstack operations as a single change.
+     * The listener is notified only once, for the net result of the transaction, when it is committed.
+     *
+     * One must first initialize this instance with [.startWith] before the transaction is committed.
+     */
+    @NonNull
+    Transaction beginTransaction();
+
     /**
      * Returns whether the given Intent can be launched.
      */
@@ -206,6 +275,71 @@ public interface Triad {
         void replace(@NonNull Screen<T> newScreen, @Nullable TransitionAnimator animator, @NonNull Callback callback);
     }
 
+    /**
+     * A {@link Listener} that can do work for a Screen before it is pushed onto the backstack, see {@link #prepare(Screen)}.
+     * A prepared Screen that is pushed later on is not passed to {@link #screenPushed(Screen)} again.
+     */
+    interface PreparingListener<T> extends Listener<T> {
+
+        void screenPrepared(@NonNull Screen<T> preparedScreen);
+
+        /**
+         * Notifies the listener that given prepared Screen will not be pushed.
+         */
+        void screenDiscarded(@NonNull Screen<T> discardedScreen);
+    }
+
+    /**
+     * A {@link Listener} that may call {@link Screen#onCreate()} of a pushed Screen after {@link #screenPushed(Screen)} has returned.
+     * Triad only reports the {@link TransitionMetrics.Phase#CREATE} phase of Screens that are created right away;
+     * the listener reports the others once it creates them.
+     */
+    interface DeferringListener<T> extends Listener<T> {
+
+        /**
+         * Returns whether the creation of Screens that are pushed from now on is deferred.
+         */
+        boolean defersCreate();
+    }
+
+    /**
+     * A {@link Listener} that is notified when a transition it is performing is cancelled,
+     * for example by {@link #reset()} or {@link #showCurrent()}.
+     */
+    interface CancellationListener<T> extends Listener<T> {
+
+        /**
+         * Notifies the listener that the transition that would be completed by given callback is cancelled.
+         * Calling {@link Callback#onComplete()} on the callback has no effect anymore,
+         * so the listener should stop any work for the transition.
+         */
+        void transitionCancelled(@NonNull Callback callback);
+    }
+
+    /**
+     * A {@link Listener} whose transitions can be interrupted by new transitions.
+     * <p>
+     * By default, transitions that are requested while a transition is running wait until it completes,
+     * and {@link #goBack()} does nothing. With an interruptible listener that {@link #interruptsTransitions() interrupts transitions},
+     * a new transition is executed right away, as if the running transition had completed.
+     */
+    interface InterruptibleListener<T> extends CancellationListener<T> {
+
+        /**
+         * Returns whether transitions requested while a transition is running interrupt it.
+         * If false, they wait until the running transition completes, as for any other listener,
+         * and are coalesced into a single transition to the screen they lead to.
+         */
+        boolean interruptsTransitions();
+
+        /**
+         * Notifies the listener that the transition that would be completed by given callback is interrupted.
+         * The backstack is updated as if the transition had completed, and the interrupting transition is passed
+         * to the listener right after this call. Calling {@link Callback#onComplete()} on given callback has no effect anymore.
+         */
+        void transitionInterrupted(@NonNull Callback callback);
+    }
+
     /**
      * Supplied by Triad to the Listener, which is responsible for calling onComplete().
      */
@@ -220,8 +354,139 @@ public interface Triad {
         void onComplete();
     }
 
+    /**
+     * A {@link Callback} that knows which kind of transition it completes.
+     * The callbacks Triad passes to its {@link Listener} implement this interface.
+     */
+    interface TypedCallback extends Callback {
+
+        @NonNull
+        TransitionMetrics.Type type();
+    }
+
+    /**
+     * A set of backstack operations that are applied as a single change.
+     * Operations are applied in order, and only take effect when {@link #commit()} is called.
+     */
+    interface Transaction {
+
+        @NonNull
+        Transaction goTo(@NonNull Screen<?> screen);
+
+        @NonNull
+        Transaction goTo(@NonNull Screen<?> screen, @Nullable TransitionAnimator animator);
+
+        @NonNull
+        Transaction popTo(@NonNull Screen<?> screen);
+
+        @NonNull
+        Transaction popTo(@NonNull Screen<?> screen, @Nullable TransitionAnimator animator);
+
+        @NonNull
+        Transaction replaceWith(@NonNull Screen<?> screen);
+
+        @NonNull
+        Transaction replaceWith(@NonNull Screen<?> screen, @Nullable TransitionAnimator animator);
+
+        @NonNull
+        Transaction goBack();
+
+        /**
+         * Replaces the entire backstack with given backstack.
+         */
+        @NonNull
+        Transaction set(@NonNull Backstack backstack);
+
+        /**
+         * Applies the operations of this transaction.
+         * The direction of the change is derived from its net result: a change that only pushes
+         * screens moves forward, a change that only pops screens moves backward.
+         */
+        void commit();
+
+        /**
+         * Applies the operations of this transaction, animating in given direction.
+         *
+         * @param direction The direction to notify the listener with, or {@code null} to derive it from the net result.
+         */
+        void commit(@Nullable Direction direction);
+    }
+
+    /**
+     * The direction in which a backstack change is shown.
+     */
+    enum Direction {
+
+        /**
+         * Notifies {@link Listener#forward(Screen, TransitionAnimator, Callback)}.
+         */
+        FORWARD,
+
+        /**
+         * Notifies {@link Listener#backward(Screen, TransitionAnimator, Callback)}.
+         */
+        BACKWARD,
+
+        /**
+         * Notifies {@link Listener#replace(Screen, TransitionAnimator, Callback)}.
+         */
+        REPLACE
+    }
+
+    /**
+     * Describes what happens when a transition is requested while the transition queue is full.
+     */
+    enum OverflowPolicy {
+
+        /**
+         * The requested transition is discarded.
+         */
+        DROP_NEWEST,
+
+        /**
+         * The transition that has been waiting longest is discarded.
+         */
+        DROP_OLDEST,
+
+        /**
+         * All queued transitions and the requested transition are folded into a single transition,
+         * which moves to the backstack they would have produced together.
+         */
+        COLLAPSE
+    }
+
     interface ActivityResultListener {
 
         void onActivityResult(int resultCode, @Nullable Intent data);
     }
+
+    /**
+     * An immutable view of the state of a Triad instance at some point in time.
+     */
+    final class Snapshot {
+
+        @NonNull
+        private final Backstack backstack;
+
+        private final boolean transitioning;
+
+        Snapshot(@NonNull final Backstack backstack, final boolean transitioning) {
+            this.backstack = backstack;
+            this.transitioning = transitioning;
+        }
+
+        @NonNull
+        public Backstack getBackstack() {
+            return backstack;
+        }
+
+        public boolean isTransitioning() {
+            return transitioning;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot[transitioning=" + transitioning + ", backstack=" + backstack + ']';
+        }
+    }
 }
\ No newline at end of file
@@ -72,6 +72,26 @@ public abstract class TriadActivity<ApplicationComponent> extends Activity {
         super.onDestroy();
     }
 
+    @Override
+    public void onTrimMemory(final int level) {
+        super.onTrimMemory(level);
+        delegate.onTrimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        delegate.onLowMemory();
+    }
+
+    /**
+     * Returns the {@link TriadDelegate} this Activity proxies to, to configure it.
+     */
+    @NonNull
+    protected TriadDelegate<ApplicationComponent> getTriadDelegate() {
+        return delegate;
+    }
+
     /**
      * Returns the {@link Triad} instance to be used to navigate between {@link Screen}s.
      */
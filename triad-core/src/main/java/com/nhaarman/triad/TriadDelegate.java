@@ -17,14 +17,25 @@
 package com.nhaarman.triad;
 
 import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
 import android.content.Intent;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.MessageQueue.IdleHandler;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.view.Choreographer;
+import android.view.Choreographer.FrameCallback;
 import android.view.View;
 import android.view.ViewGroup;
 import com.nhaarman.triad.Triad.Callback;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 
+import static com.nhaarman.triad.Preconditions.checkArgument;
 import static com.nhaarman.triad.Preconditions.checkNotNull;
 import static com.nhaarman.triad.Preconditions.checkState;
 import static com.nhaarman.triad.TriadIntents.createBackstack;
@@ -43,11 +54,21 @@ import static com.nhaarman.triad.TriadIntents.createScreen;
  * <li>{@link #onBackPressed()}</li>
  * <li>{@link #onActivityResult(int, int, Intent)}</li>
  * </ul>
+ * Optionally, {@link #onTrimMemory(int)} and {@link #onLowMemory()} can be proxied
+ * to release memory held by Triad.
  *
  * @param <ApplicationComponent> The {@code ApplicationComponent} to use for {@code BasePresenter} creation.
  */
 public class TriadDelegate<ApplicationComponent> {
 
+    @NonNull
+    private static final Phase[] PHASES = Phase.values();
+
+    /**
+     * The name of the preferences in which the visit frequencies for prefetching are stored.
+     */
+    private static final String SUCCESSOR_PREFERENCES = "triad_successors";
+
     /**
      * The {@link Activity} instance this {@code TriadDelegate} is bound to.
      */
@@ -72,18 +93,157 @@ public class TriadDelegate<ApplicationComponent> {
     @Nullable
     private Screen<ApplicationComponent> currentScreen;
 
+    /**
+     * The view that shows the current screen, or is animating in to show it.
+     */
+    @Nullable
+    private View currentView;
+
+    /**
+     * The screen whose view was animating out when its transition was interrupted, if its view is still shown.
+     * If the next transition moves back to this screen, the view is animated back in from where it was.
+     */
+    @Nullable
+    private Screen<ApplicationComponent> interruptedScreen;
+
+    @Nullable
+    private View interruptedView;
+
+    /**
+     * Whether {@link #interruptedView} may be kept in the view cache once it is removed.
+     */
+    private boolean interruptedViewCacheable;
+
     /**
      * An optional {@link OnScreenChangedListener} that is notified of screen changes.
      */
     @Nullable
     private OnScreenChangedListener<ApplicationComponent> onScreenChangedListener;
 
+    /**
+     * Reused for every transition that starts after the previous one completed.
+     */
+    @NonNull
+    private final ScreenTransition sharedTransition = new ScreenTransition();
+
+    /**
+     * The transition that was started last, if any.
+     */
+    @Nullable
+    private ScreenTransition currentTransition;
+
+    @NonNull
+    private final PhasePolicy[] phasePolicies = new PhasePolicy[PHASES.length];
+
+    /**
+     * The maximum time a transition may spend executing phases within a single frame, or 0 if unlimited.
+     */
+    private long frameBudgetNanos;
+
+    /**
+     * Whether transitions requested while a transition is running interrupt it.
+     */
+    private boolean interruptsTransitions;
+
+    /**
+     * Runs deferred phases at the start of a frame or when the main thread is idle.
+     */
+    @NonNull
+    private PhaseScheduler phaseScheduler = LooperPhaseScheduler.INSTANCE;
+
+    /**
+     * Screens that were pushed onto the backstack, but of which {@link Screen#onCreate()} is deferred
+     * until the {@link Phase#CREATE} phase of the next transition.
+     */
+    @NonNull
+    private final List<Screen<ApplicationComponent>> pendingCreates = new ArrayList<>();
+
+    /**
+     * Holds the views of screens that were covered by a new screen, if enabled.
+     */
+    @Nullable
+    private ViewCache viewCache;
+
+    /**
+     * Holds released views for reuse by screens with the same layout, if enabled.
+     */
+    @Nullable
+    private ViewPool viewPool;
+
+    /**
+     * Replaces outgoing views by images during transitions, if enabled.
+     */
+    @Nullable
+    private SnapshotRenderer snapshotRenderer;
+
+    /**
+     * Screens that were prepared through {@link Triad#prepare(Screen)}, and have not been shown or discarded yet.
+     */
+    @NonNull
+    private final List<Screen<ApplicationComponent>> preparedScreens = new ArrayList<>();
+
+    /**
+     * The views that were created for prepared screens.
+     */
+    @NonNull
+    private final ViewCache preparedViews = new ViewCache(Integer.MAX_VALUE, Long.MAX_VALUE);
+
+    /**
+     * Creates the views of new screens on a background thread, if enabled.
+     */
+    @Nullable
+    private AsyncInflater asyncInflater;
+
+    /**
+     * Prepares the likely next screens while the main thread is idle, if enabled.
+     */
+    @Nullable
+    private Prefetcher prefetcher;
+
+    /**
+     * Whether the current screen was popped in the transition that is about to start.
+     */
+    private boolean currentScreenPopped;
+
+    /**
+     * The number of screens at the top of the backstack that are never dehydrated, or 0 if dehydration is disabled.
+     */
+    private int dehydrationDepth;
+
+    /**
+     * The store the saved view states of screens deep in the backstack are written to, if enabled.
+     */
+    @Nullable
+    private StateStore stateStore;
+
+    /**
+     * The number of screens at the top of the backstack whose saved view states are kept in memory.
+     */
+    private int stateStoreDepth;
+
+    /**
+     * The maximum size of the marshalled saved view states that are kept in memory.
+     */
+    private long maxStateBytes;
+
+    /**
+     * The maximum estimated memory retained for the screens in the backstack, or 0 if unlimited.
+     */
+    private long memoryBudget;
+
+    /**
+     * The back gesture that is in progress, or that was committed and awaits its transition.
+     */
+    @Nullable
+    private BackGesture backGesture;
+
     private TriadDelegate(
           @NonNull final Activity activity,
           @NonNull final TransitionAnimator transitionAnimator
     ) {
         this.activity = activity;
         defaultTransitionAnimator = transitionAnimator;
+        Arrays.fill(phasePolicies, PhasePolicy.IMMEDIATE);
     }
 
     @NonNull
@@ -146,16 +306,150 @@ public class TriadDelegate<ApplicationComponent> {
         if (currentScreen != null) {
             currentScreen.detach();
         }
+
+        if (prefetcher != null) {
+            prefetcher.save();
+        }
     }
 
     public void onDestroy() {
         checkState(triad != null, "Triad is null. Make sure to call TriadDelegate.onCreate()");
 
-        if (!activity.isFinishing()) return;
+        if (currentTransition != null) {
+            currentTransition.cancel();
+        }
+        currentTransition = null;
+        if (backGesture != null) {
+            backGesture.abandon();
+        }
+        currentView = null;
+        interruptedScreen = null;
+        interruptedView = null;
+
+        if (prefetcher != null) {
+            prefetcher.clear();
+        }
+
+        /* Cached views belong to this Activity. */
+        if (viewCache != null) {
+            viewCache.clear();
+        }
+        if (viewPool != null) {
+            viewPool.clear();
+        }
+        if (snapshotRenderer != null) {
+            snapshotRenderer.clear();
+        }
+        if (activity.isFinishing()) {
+            /* Prepared screens that were never pushed are not in the backstack, and would otherwise never be destroyed. */
+            for (int i = preparedScreens.size() - 1; i >= 0; i--) {
+                triad.discard(new PreparedScreen(triad, preparedScreens.get(i)));
+            }
+        }
+        preparedViews.clear();
+        preparedScreens.clear();
+
+        if (!activity.isFinishing()) {
+            /* The screens outlive this Activity, so they must not miss their onCreate(). */
+            createPendingScreens(null, TransitionMetrics.Type.UNKNOWN);
+            return;
+        }
 
         for (Iterator<Screen<?>> iterator = triad.getBackstack().reverseIterator(); iterator.hasNext(); ) {
             Screen<?> screen = iterator.next();
-            screen.onDestroy();
+            screen.discardStoredState();
+            if (!pendingCreates.contains(screen) && !screen.isDehydrated()) {
+                screen.onDestroy();
+            }
+        }
+        pendingCreates.clear();
+    }
+
+    /**
+     * Releases memory held by Triad, depending on given trim level:
+     * <ul>
+     * <li>From {@link ComponentCallbacks2#TRIM_MEMORY_UI_HIDDEN}, cached and pooled views, snapshot bitmaps,
+     * the views of prepared screens and prefetched screens are released.</li>
+     * <li>At {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW} and {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_CRITICAL},
+     * the covered screens that allow it are dehydrated, releasing their presenters,
+     * and the saved view states of the other covered screens are marshalled.</li>
+     * <li>At {@link ComponentCallbacks2#TRIM_MEMORY_COMPLETE}, views are released and every screen but the top one is dehydrated
+     * as far as it allows, and the saved view states of the covered screens are also written to the store set through
+     * {@link #setStateStore(StateStore, int, long)}.</li>
+     * </ul>
+     * Screens that are shown by a transition or a back gesture in progress are left untouched.
+     * Afterwards, the screens in the backstack that are not dehydrated are notified through {@link Screen#onTrimMemory(int)}.
+     *
+     * @param level The trim level, see {@link ComponentCallbacks2}.
+     */
+    public void onTrimMemory(final int level) {
+        boolean runningLow = level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL;
+        boolean complete = level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE;
+
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            releaseViews();
+        }
+        if (runningLow || complete) {
+            compactBackstack(complete);
+        }
+
+        if (triad == null) return;
+
+        for (Iterator<Screen<?>> iterator = triad.getBackstack().iterator(); iterator.hasNext(); ) {
+            Screen<?> screen = iterator.next();
+            if (!screen.isDehydrated() && !pendingCreates.contains(screen)) {
+                screen.onTrimMemory(level);
+            }
+        }
+    }
+
+    /**
+     * Releases memory held by Triad, as {@link #onTrimMemory(int)} does at {@link ComponentCallbacks2#TRIM_MEMORY_COMPLETE}.
+     */
+    public void onLowMemory() {
+        onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+
+    /**
+     * Releases the views that are not shown, and the prefetched screens.
+     */
+    private void releaseViews() {
+        if (viewCache != null) {
+            viewCache.clear();
+        }
+        if (viewPool != null) {
+            viewPool.clear();
+        }
+        if (snapshotRenderer != null) {
+            snapshotRenderer.clear();
+        }
+        if (prefetcher != null) {
+            prefetcher.clear();
+        }
+        preparedViews.clear();
+    }
+
+    /**
+     * Dehydrates the covered screens that allow it, and marshals the saved view states of the others.
+     *
+     * @param storeStates Whether to write the marshalled states to the {@link #stateStore}, if any.
+     */
+    private void compactBackstack(final boolean storeStates) {
+        if (triad == null) return;
+
+        for (Iterator<Screen<?>> iterator = triad.getBackstack().iterator(); iterator.hasNext(); ) {
+            Screen<?> screen = iterator.next();
+            if (isInUse(screen)) continue;
+
+            if (canDehydrate(screen)) {
+                dehydrate(screen);
+            } else {
+                screen.marshalState();
+            }
+
+            if (storeStates && stateStore != null) {
+                screen.writeState(stateStore);
+            }
         }
     }
 
@@ -192,155 +486,1559 @@ public class TriadDelegate<ApplicationComponent> {
         return new TriadDelegate(activity, defaultTransitionAnimator);
     }
 
-    private class MyTriadListener implements Triad.Listener<ApplicationComponent> {
+    /**
+     * Sets when given phase of a transition is executed.
+     * By default, all phases are executed immediately.
+     * <p>
+     * Deferring phases spreads the work of a transition over several frames,
+     * at the cost of the transition taking longer to complete.
+     */
+    public void setPhasePolicy(@NonNull final Phase phase, @NonNull final PhasePolicy policy) {
+        phasePolicies[phase.ordinal()] = policy;
+    }
 
-        @Override
-        public void screenPushed(@NonNull final Screen<ApplicationComponent> pushedScreen) {
-            checkState(applicationComponent != null, "ApplicationComponent is null. Make sure to call TriadDelegate.onCreate().");
+    @NonNull
+    public PhasePolicy getPhasePolicy(@NonNull final Phase phase) {
+        return phasePolicies[phase.ordinal()];
+    }
 
-            pushedScreen.setApplicationComponent(applicationComponent);
-            pushedScreen.onCreate();
-        }
+    /**
+     * Limits the time a transition spends executing its phases within a single frame.
+     * Once a phase brings the time spent since the transition started or resumed over given budget,
+     * the remaining {@link PhasePolicy#IMMEDIATE} phases are deferred to the next frame.
+     * At least one phase is executed per frame, so a single phase may still overrun the budget.
+     * By default, there is no budget.
+     *
+     * @param budgetNanos The budget in nanoseconds, for example a part of the display's frame interval, or 0 for no budget.
+     */
+    public void setFrameBudget(final long budgetNanos) {
+        checkArgument(budgetNanos >= 0, "Budget must not be negative.");
 
-        @Override
-        public void screenPopped(@NonNull final Screen<ApplicationComponent> poppedScreen) {
-            poppedScreen.onDestroy();
-        }
+        frameBudgetNanos = budgetNanos;
+    }
 
-        @Override
-        public void forward(@NonNull final Screen<ApplicationComponent> newScreen, @Nullable final TransitionAnimator animator, @NonNull final Triad.Callback callback) {
-            checkState(rootView != null, "Root view is null. Make sure to call TriadDelegate.onCreate().");
+    /**
+     * Sets whether transitions that are requested while a transition is running interrupt it.
+     * <p>
+     * When enabled, a new transition starts right away, and if the {@link TransitionAnimator} is a
+     * {@link TransitionAnimator.InterruptibleAnimator}, from where the running animation was stopped.
+     * Every requested screen is then shown, however briefly. When disabled, requested transitions wait
+     * until the running transition completes, and are coalesced into a single transition to the screen they lead to,
+     * so that screens that are navigated past are never created. {@link Triad#goBack()} does nothing while waiting.
+     * By default, transitions are not interrupted.
+     */
+    public void setInterruptibleTransitions(final boolean enabled) {
+        interruptsTransitions = enabled;
+    }
 
-            final View oldView = rootView.getChildAt(0);
-            final Screen<ApplicationComponent> oldScreen = currentScreen;
-            if (oldView != null && oldScreen != null) {
-                oldScreen.saveState(oldView);
-            }
+    /**
+     * Replaces the Choreographer and the message queue that deferred phases and prefetching are scheduled on, for testing.
+     * Prefetching keeps the scheduler that was set when it was enabled.
+     */
+    void setPhaseScheduler(@NonNull final PhaseScheduler phaseScheduler) {
+        this.phaseScheduler = phaseScheduler;
+    }
 
-            currentScreen = newScreen;
-            final View newView = newScreen.createView(rootView);
+    /**
+     * Enables a cache for the views of screens that are covered by a new screen,
+     * so that moving back to such a screen reuses its view instead of creating a new one.
+     * Reused views are passed to the {@link TransitionAnimator} in the state the previous animation left them in.
+     * <p>
+     * Views are evicted from the cache when their screen is popped, when the cache exceeds given limits,
+     * and in {@link #onTrimMemory(int)}. The memory used by a view is estimated from its dimensions.
+     * By default, the cache is disabled.
+     *
+     * @param maxViews The maximum number of cached views, or 0 to disable the cache.
+     * @param maxBytes The maximum estimated memory used by the cached views.
+     */
+    public void setViewCache(final int maxViews, final long maxBytes) {
+        viewCache = maxViews > 0 ? new ViewCache(maxViews, maxBytes) : null;
+    }
 
-            boolean handled = false;
-            if (animator != null) {
-                handled = animator.forward(oldView, newView, rootView, new Callback() {
-                    @Override
-                    public void onComplete() {
-                        newScreen.attach(rootView);
+    /**
+     * Enables a pool of released views, keyed by layout resource id, so that a new screen can reuse
+     * the view of a removed screen with the same layout instead of creating a new one.
+     * Only screens for which {@link Screen#getRecyclesView()} returns true take part;
+     * they receive reused views through {@link Screen#bindRecycledView(View)}.
+     * <p>
+     * A view is released into the pool once a transition removed it, unless it is kept in the view cache.
+     * The pool is cleared in {@link #onTrimMemory(int)}. By default, the pool is disabled.
+     *
+     * @param maxViewsPerLayout The maximum number of pooled views per layout, or 0 to disable the pool.
+     */
+    public void setViewPool(final int maxViewsPerLayout) {
+        viewPool = maxViewsPerLayout > 0 ? new ViewPool(maxViewsPerLayout) : null;
+    }
 
-                        if (oldScreen != null) {
-                            oldScreen.detach();
-                        }
+    /**
+     * Sets whether outgoing views are replaced by a static image of themselves during transitions.
+     * The old screen is detached as soon as its image is in place, and its view hierarchy is removed,
+     * so that only a single image instead of a full hierarchy is drawn besides the new view while animating.
+     * The {@link TransitionAnimator} receives the image as the old view.
+     * <p>
+     * The bitmaps backing the images are reused across transitions, and released in {@link #onTrimMemory(int)}.
+     * Views that have not been laid out are animated as usual. By default, views are animated as usual.
+     */
+    public void setSnapshotTransitions(final boolean enabled) {
+        if (snapshotRenderer != null) {
+            snapshotRenderer.clear();
+        }
 
-                        callback.onComplete();
-                    }
-                });
-            }
+        setSnapshotRenderer(enabled ? new SnapshotRenderer() : null);
+    }
 
-            if (!handled) {
-                defaultTransitionAnimator.forward(oldView, newView, rootView, new Callback() {
-                    @Override
-                    public void onComplete() {
-                        newScreen.attach(rootView);
+    /**
+     * Replaces the renderer that replaces outgoing views by images, for testing.
+     */
+    void setSnapshotRenderer(@Nullable final SnapshotRenderer snapshotRenderer) {
+        this.snapshotRenderer = snapshotRenderer;
+    }
 
-                        if (oldScreen != null) {
-                            oldScreen.detach();
-                        }
+    /**
+     * Sets whether the views of new screens are created on a background thread.
+     * The transition continues on the main thread once the view is created,
+     * so the {@link TransitionAnimator} only ever receives fully created views.
+     * <p>
+     * Only screens that do not override {@link Screen#createView(ViewGroup)} are inflated in the background,
+     * using {@link Screen#createView(ViewGroup, android.view.LayoutInflater)}. Screens can opt out through
+     * {@link Screen#getInflatesOnMainThread()}. If inflation fails on the background thread,
+     * the view is created on the main thread instead. By default, views are created on the main thread.
+     */
+    public void setAsyncInflation(final boolean enabled) {
+        setAsyncInflater(enabled ? new AsyncInflater(activity) : null);
+    }
 
-                        callback.onComplete();
-                    }
-                });
-            }
+    /**
+     * Replaces the inflater that creates views on a background thread, for testing.
+     */
+    void setAsyncInflater(@Nullable final AsyncInflater asyncInflater) {
+        this.asyncInflater = asyncInflater;
+    }
 
-            onScreenChanged(newScreen);
+    /**
+     * Enables prefetching of the screens that are likely to be shown next.
+     * Once a transition completes, the screens declared by {@link Screen#getLikelyNextScreens()} of the new screen
+     * are prepared through {@link Triad#prepare(Screen)} while the main thread is idle,
+     * most frequently visited first.
+     * <p>
+     * Visit frequencies are learned from earlier navigation and persisted in {@link #onPause()}.
+     * Prefetched screens that are no longer likely to be shown are discarded once the next screen is shown,
+     * and all of them in {@link #onTrimMemory(int)}. A discarded screen instance is not prefetched again.
+     * The memory used by a prefetched screen is estimated as that of a view filling the root view,
+     * plus {@link Screen#getRetainedBytes()}.
+     * By default, prefetching is disabled.
+     *
+     * @param maxScreens The maximum number of prefetched screens, or 0 to disable prefetching.
+     * @param maxBytes   The maximum estimated memory used by the prefetched screens.
+     */
+    public void setPrefetching(final int maxScreens, final long maxBytes) {
+        if (prefetcher != null) {
+            prefetcher.clear();
         }
 
-        @Override
-        public void backward(@NonNull final Screen<ApplicationComponent> newScreen, @Nullable final TransitionAnimator animator, @NonNull final Triad.Callback callback) {
-            checkState(rootView != null, "Root view is null. Make sure to call TriadDelegate.onCreate().");
-
-            final Screen<ApplicationComponent> oldScreen = currentScreen;
-            currentScreen = newScreen;
+        prefetcher = maxScreens > 0
+              ? new Prefetcher(new SuccessorModel(activity.getSharedPreferences(SUCCESSOR_PREFERENCES, Context.MODE_PRIVATE)), phaseScheduler, maxScreens, maxBytes)
+              : null;
+    }
 
-            final View oldView = rootView.getChildAt(0);
-            final View newView = newScreen.createView(rootView);
-            newScreen.restoreState(newView);
+    /**
+     * Enables dehydration of screens deep in the backstack.
+     * Screens for which {@link Screen#getDehydrates()} returns true are destroyed once a transition leaves them
+     * below the top {@code depth} screens, keeping only their saved view state in marshalled form.
+     * When such a screen is shown again, for example by moving back to it, {@link Screen#onCreate()} is called again
+     * before its view is created. By default, dehydration is disabled.
+     *
+     * @param depth The number of screens at the top of the backstack that are never dehydrated, or 0 to disable dehydration.
+     */
+    public void setDehydrationDepth(final int depth) {
+        checkArgument(depth >= 0, "Depth must not be negative.");
 
-            boolean handled = false;
-            if (animator != null) {
-                handled = animator.backward(oldView, newView, rootView, new Callback() {
-                    @Override
-                    public void onComplete() {
-                        newScreen.attach(rootView);
+        dehydrationDepth = depth;
+    }
 
-                        if (oldScreen != null) {
-                            oldScreen.detach();
-                        }
+    /**
+     * Moves the saved view states of screens deep in the backstack out of the heap.
+     * Once a transition completes, the saved view states of the covered screens are marshalled into compact byte arrays.
+     * The states of the top {@code depth} screens are kept in memory, up to {@code maxBytes} in total;
+     * the states of the screens below them are written to given store, as well as the states that exceed {@code maxBytes},
+     * deepest first. A state is read back when its screen is shown again. By default, saved view states are kept in memory as they are.
+     *
+     * @param store    The store to write states to, for example a {@link FileStateStore}, or {@code null} to keep states in memory.
+     * @param depth    The number of screens at the top of the backstack whose states are kept in memory.
+     * @param maxBytes The maximum size of the marshalled states that are kept in memory.
+     */
+    public void setStateStore(@Nullable final StateStore store, final int depth, final long maxBytes) {
+        checkArgument(depth >= 0, "Depth must not be negative.");
 
-                        callback.onComplete();
-                    }
-                });
-            }
+        stateStore = store;
+        stateStoreDepth = depth;
+        maxStateBytes = maxBytes;
+    }
 
-            if (!handled) {
-                defaultTransitionAnimator.backward(oldView, newView, rootView, new Callback() {
-                    @Override
-                    public void onComplete() {
-                        newScreen.attach(rootView);
+    /**
+     * Limits the estimated memory retained for the screens in the backstack.
+     * Once a transition completes, the saved view state of the screen it covered is marshalled so that its size is known,
+     * and if the total of the cached views, the marshalled states and the {@link Screen#getRetainedBytes()} of the screens
+     * that allow dehydration exceeds given budget,
+     * memory is released until it fits: first by evicting cached views, least recently used first, then by writing
+     * saved view states to the store set through {@link #setStateStore(StateStore, int, long)}, and finally by dehydrating
+     * the screens that allow it, deepest first. The current screen is never touched. By default, there is no budget.
+     *
+     * @param maxBytes The maximum estimated memory, or 0 for no budget.
+     * @see #getMemoryUsage()
+     */
+    public void setMemoryBudget(final long maxBytes) {
+        checkArgument(maxBytes >= 0, "Budget must not be negative.");
 
-                        if (oldScreen != null) {
-                            oldScreen.detach();
-                        }
+        memoryBudget = maxBytes;
+    }
 
-                        callback.onComplete();
-                    }
-                });
-            }
+    /**
+     * Returns the estimated memory retained for each screen in the backstack, from top to bottom, for diagnostics.
+     * Saved view states are only accounted for once they are marshalled.
+     */
+    @NonNull
+    public List<MemoryUsage> getMemoryUsage() {
+        checkState(triad != null, "Triad is null. Make sure to call TriadDelegate.onCreate().");
 
-            onScreenChanged(newScreen);
+        List<MemoryUsage> result = new ArrayList<>(triad.getBackstack().size());
+        int depth = 0;
+        for (Iterator<Screen<?>> iterator = triad.getBackstack().iterator(); iterator.hasNext(); depth++) {
+            Screen<?> screen = iterator.next();
+            result.add(new MemoryUsage(
+                  screen,
+                  depth,
+                  viewCache != null ? viewCache.bytesOf(screen) : 0,
+                  screen.getMarshalledStateBytes(),
+                  budgetedRetainedBytesOf(screen)
+            ));
         }
+        return result;
+    }
 
-        @Override
-        public void replace(@NonNull final Screen<ApplicationComponent> newScreen, @Nullable final TransitionAnimator animator, @NonNull final Triad.Callback callback) {
-            checkState(rootView != null, "Root view is null. Make sure to call TriadDelegate.onCreate().");
-
-            final Screen<ApplicationComponent> oldScreen = currentScreen;
-            currentScreen = newScreen;
+    /**
+     * Starts a back gesture, such as a predictive back gesture, which drives the transition to the previous screen
+     * through {@link BackGesture#setProgress(float)}. The view of the previous screen is created and its state is restored
+     * right away, so that it can be revealed from the first frame of the gesture.
+     * <p>
+     * The backstack is left untouched until the gesture is committed through {@link BackGesture#commit()},
+     * after which Triad moves back without animating again. A gesture that is cancelled through
+     * {@link BackGesture#cancel()} leaves the current screen in place. Any other transition abandons the gesture.
+     * <p>
+     * The gesture is animated by the animator of the current screen if it is a {@link TransitionAnimator.SeekableAnimator},
+     * and by the default animator otherwise.
+     *
+     * @return The started gesture, or {@code null} if there is no previous screen, a transition or another gesture is in progress,
+     * or neither animator is a {@link TransitionAnimator.SeekableAnimator}.
+     */
+    @Nullable
+    public BackGesture startBackGesture() {
+        checkState(triad != null, "Triad is null. Make sure to call TriadDelegate.onCreate().");
 
-            final View oldView = rootView.getChildAt(0);
-            final View newView = newScreen.createView(rootView);
+        Backstack backstack = triad.getBackstack();
+        Screen<ApplicationComponent> screen = currentScreen;
+        View view = currentView;
+        if (backGesture != null || triad.isTransitioning() || backstack.size() < 2
+              || screen == null || view == null || rootView == null || view.getParent() != rootView) {
+            return null;
+        }
 
-            boolean handled = false;
-            if (animator != null) {
-                handled = animator.forward(oldView, newView, rootView, new Callback() {
-                    @Override
-                    public void onComplete() {
-                        newScreen.attach(rootView);
+        TransitionAnimator animator = backstack.current().animator;
+        if (!(animator instanceof TransitionAnimator.SeekableAnimator)) {
+            animator = defaultTransitionAnimator;
+        }
+        if (!(animator instanceof TransitionAnimator.SeekableAnimator)) return null;
 
-                        if (oldScreen != null) {
-                            oldScreen.detach();
-                        }
+        Screen<ApplicationComponent> previousScreen = checkNotNull(backstack.rest(), "Backstack rest is null.").<ApplicationComponent>current().screen;
+        rehydrate(previousScreen);
+        previousScreen.unmarshalState();
+        if (interruptedView != null) {
+            removeInterruptedView();
+        }
 
-                        callback.onComplete();
-                    }
-                });
+        View previousView = viewCache != null ? viewCache.take(previousScreen) : null;
+        if (previousView == null) {
+            previousView = takeRecycledView(previousScreen);
+            if (previousView == null) {
+                previousView = previousScreen.createView(rootView);
             }
+            previousScreen.restoreState(previousView);
+        }
 
-            if (!handled) {
-                defaultTransitionAnimator.forward(oldView, newView, rootView, new Callback() {
-                    @Override
-                    public void onComplete() {
-                        newScreen.attach(rootView);
-
-                        if (oldScreen != null) {
-                            oldScreen.detach();
-                        }
+        screen.saveState(view);
+        backGesture = new BackGesture((TransitionAnimator.SeekableAnimator) animator, previousScreen, view, previousView);
+        ((TransitionAnimator.SeekableAnimator) animator).startSeek(view, previousView, rootView);
+        return backGesture;
+    }
 
-                        callback.onComplete();
-                    }
-                });
+    /**
+     * Returns a {@link ScreenTransition} for a new transition.
+     * The shared instance is reused, unless the previous transition is still running.
+     */
+    @NonNull
+    private ScreenTransition obtainTransition(
+          final boolean backward,
+          @NonNull final Screen<ApplicationComponent> newScreen,
+          @Nullable final Screen<ApplicationComponent> oldScreen,
+          @Nullable final View oldView,
+          @Nullable final TransitionAnimator animator,
+          @NonNull final Callback callback
+    ) {
+        rehydrate(newScreen);
+        newScreen.unmarshalState();
+
+        ScreenTransition transition = sharedTransition.pending ? new ScreenTransition() : sharedTransition;
+        transition.backward = backward;
+        transition.newScreen = newScreen;
+        transition.oldScreen = oldScreen;
+        transition.oldView = oldView;
+        transition.animator = animator;
+        transition.callback = callback;
+        transition.cacheOldView = !currentScreenPopped && oldScreen != newScreen;
+        transition.rebind = false;
+
+        if (interruptedView != null && interruptedScreen != newScreen) {
+            removeInterruptedView();
+        }
+        if (backGesture != null) {
+            if (backGesture.committed && backward && backGesture.previousScreen == newScreen) {
+                transition.gesture = backGesture;
+            } else {
+                backGesture.abandon();
             }
+            backGesture = null;
+        }
+        currentScreenPopped = false;
+        transition.metrics = triad != null ? triad.getMetrics() : null;
+        transition.type = callback instanceof Triad.TypedCallback
+              ? ((Triad.TypedCallback) callback).type()
+              : TransitionMetrics.Type.UNKNOWN;
+        transition.pending = true;
+        currentTransition = transition;
+
+        if (prefetcher != null) {
+            prefetcher.onTransition(oldScreen, newScreen, transition.type, backward);
+        }
+        return transition;
+    }
+
+    /**
+     * Dehydrates the screens below the top {@link #dehydrationDepth} screens of the backstack that allow it.
+     */
+    private void dehydrateDeepScreens() {
+        if (dehydrationDepth == 0 || triad == null || triad.getBackstack().size() <= dehydrationDepth) return;
+
+        int depth = 0;
+        for (Iterator<Screen<?>> iterator = triad.getBackstack().iterator(); iterator.hasNext(); depth++) {
+            Screen<?> screen = iterator.next();
+            if (depth >= dehydrationDepth && canDehydrate(screen)) {
+                dehydrate(screen);
+            }
+        }
+    }
+
+    /**
+     * Returns whether given screen allows dehydration, and is not in use.
+     */
+    private boolean canDehydrate(@NonNull final Screen<?> screen) {
+        return screen.getDehydrates()
+              && !screen.isDehydrated()
+              && !isInUse(screen)
+              && !preparedScreens.contains(screen);
+    }
+
+    /**
+     * Returns whether given screen is shown, or is about to be shown or released by a transition or back gesture in progress.
+     * The outgoing screen of a running transition keeps its view until the transition caches it.
+     */
+    private boolean isInUse(@NonNull final Screen<?> screen) {
+        if (screen == currentScreen || screen == interruptedScreen || pendingCreates.contains(screen)) return true;
+
+        ScreenTransition transition = currentTransition;
+        if (transition != null && transition.pending && (screen == transition.oldScreen || screen == transition.newScreen)) return true;
+
+        return backGesture != null && screen == backGesture.previousScreen;
+    }
+
+    private void dehydrate(@NonNull final Screen<?> screen) {
+        if (viewCache != null) {
+            viewCache.remove(screen);
+        }
+        screen.dehydrate();
+        screen.onDestroy();
+    }
+
+    /**
+     * Releases memory retained for the screens in the backstack until it fits in the {@link #memoryBudget}.
+     * Only the saved view state of given screen is marshalled, since the states of the screens below it were marshalled
+     * when they were covered, and are left untouched until they are shown again.
+     *
+     * @param coveredScreen The screen that was covered by the completed transition, if any.
+     */
+    private void enforceMemoryBudget(@Nullable final Screen<?> coveredScreen) {
+        if (memoryBudget == 0 || triad == null) return;
+
+        long bytes = viewCache != null ? viewCache.bytes() : 0;
+        for (Iterator<Screen<?>> iterator = triad.getBackstack().iterator(); iterator.hasNext(); ) {
+            Screen<?> screen = iterator.next();
+            if (screen == coveredScreen && screen != currentScreen && !pendingCreates.contains(screen)) {
+                screen.marshalState();
+            }
+            bytes += screen.getMarshalledStateBytes() + budgetedRetainedBytesOf(screen);
+        }
+
+        while (bytes > memoryBudget && viewCache != null && viewCache.size() > 0) {
+            bytes -= viewCache.evictLeastRecentlyUsed();
+        }
+
+        if (bytes > memoryBudget && stateStore != null) {
+            for (Iterator<Screen<?>> iterator = triad.getBackstack().reverseIterator(); iterator.hasNext() && bytes > memoryBudget; ) {
+                Screen<?> screen = iterator.next();
+                if (screen != currentScreen && screen.getMarshalledStateBytes() > 0) {
+                    bytes -= screen.getMarshalledStateBytes();
+                    screen.writeState(stateStore);
+                }
+            }
+        }
+
+        if (bytes > memoryBudget) {
+            for (Iterator<Screen<?>> iterator = triad.getBackstack().reverseIterator(); iterator.hasNext() && bytes > memoryBudget; ) {
+                Screen<?> screen = iterator.next();
+                if (canDehydrate(screen)) {
+                    /* The marshalled state stays in memory, since it was written to the store if possible. */
+                    bytes -= screen.getRetainedBytes();
+                    dehydrate(screen);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the memory retained by given screen itself that counts towards the {@link #memoryBudget}.
+     * Only screens that allow dehydration are taken into account, since the memory of other screens cannot be released.
+     */
+    private static long budgetedRetainedBytesOf(@NonNull final Screen<?> screen) {
+        return screen.getDehydrates() && !screen.isDehydrated() ? screen.getRetainedBytes() : 0;
+    }
+
+    /**
+     * Marshals the saved view states of the covered screens, and writes the states of screens deep in the backstack
+     * to the {@link #stateStore}, as well as the states that do not fit in {@link #maxStateBytes}.
+     */
+    private void storeDeepStates() {
+        StateStore stateStore = this.stateStore;
+        if (stateStore == null || triad == null) return;
+
+        long memoryBytes = 0;
+        int depth = 0;
+        for (Iterator<Screen<?>> iterator = triad.getBackstack().iterator(); iterator.hasNext(); depth++) {
+            Screen<?> screen = iterator.next();
+            if (depth == 0 || screen == currentScreen || screen == interruptedScreen || pendingCreates.contains(screen)) continue;
+
+            if (depth < stateStoreDepth) {
+                memoryBytes += screen.marshalState();
+                if (memoryBytes <= maxStateBytes) continue;
+            }
+
+            screen.writeState(stateStore);
+        }
+    }
+
+    /**
+     * Recreates given screen if it was dehydrated, so that it can be shown.
+     */
+    private void rehydrate(@NonNull final Screen<ApplicationComponent> screen) {
+        if (!screen.isDehydrated()) return;
+
+        screen.rehydrate();
+        screen.onCreate();
+    }
+
+    /**
+     * Removes the view that was left behind by an interrupted transition,
+     * and keeps it in the view cache or the view pool if possible.
+     */
+    private void removeInterruptedView() {
+        Screen<ApplicationComponent> screen = checkNotNull(interruptedScreen, "Interrupted screen is null.");
+        View view = checkNotNull(interruptedView, "Interrupted view is null.");
+        interruptedScreen = null;
+        interruptedView = null;
+
+        if (rootView != null && view.getParent() == rootView) {
+            rootView.removeView(view);
+        }
+
+        if (interruptedViewCacheable && viewCache != null) {
+            viewCache.put(screen, view);
+        } else if (viewPool != null && screen.getRecyclesView()) {
+            viewPool.put(screen.getLayoutResId(), view);
+        }
+    }
+
+    /**
+     * Returns whether the view of given old screen can be handed to given new screen when replacing it,
+     * which is the case if both screens share their views and have the same layout.
+     */
+    private static boolean canRebind(
+          @Nullable final Screen<?> oldScreen,
+          @NonNull final Screen<?> newScreen
+    ) {
+        return oldScreen != null
+              && oldScreen != newScreen
+              && oldScreen.getRecyclesView()
+              && newScreen.getRecyclesView()
+              && oldScreen.getLayoutResId() == newScreen.getLayoutResId();
+    }
+
+    /**
+     * Detaches given old screen, and keeps its removed view in the view cache or the view pool if possible.
+     */
+    private void releaseOldScreen(
+          @NonNull final Screen<ApplicationComponent> oldScreen,
+          @Nullable final View oldView,
+          @Nullable final View newView,
+          final boolean cacheOldView
+    ) {
+        oldScreen.detach();
+
+        if (cacheOldView && oldView != null && viewCache != null) {
+            viewCache.put(oldScreen, oldView);
+        } else if (oldView != null && oldView != newView && viewPool != null && oldScreen.getRecyclesView()) {
+            viewPool.put(oldScreen.getLayoutResId(), oldView);
+        }
+    }
+
+    /**
+     * Returns a pooled view for given screen, bound through {@link Screen#bindRecycledView(View)}, if any.
+     */
+    @Nullable
+    private View takeRecycledView(@NonNull final Screen<ApplicationComponent> screen) {
+        if (viewPool == null || !screen.getRecyclesView()) return null;
+
+        View view = viewPool.take(screen.getLayoutResId());
+        if (view != null) {
+            screen.bindRecycledView(view);
+        }
+        return view;
+    }
+
+    /**
+     * Creates the view of given prepared screen, so it can be shown without inflating it.
+     */
+    private void prepareView(@NonNull final Screen<ApplicationComponent> screen) {
+        if (rootView == null) return;
+
+        if (asyncInflater != null && asyncInflater.canInflate(screen)) {
+            asyncInflater.inflate(screen, rootView, new AsyncInflater.Callback() {
+                @Override
+                public void onInflated(@NonNull final View view) {
+                    if (preparedScreens.contains(screen)) {
+                        preparedViews.put(screen, view);
+                    }
+                }
+            });
+        } else {
+            preparedViews.put(screen, screen.createView(rootView));
+        }
+    }
+
+    /**
+     * Calls {@link Screen#onCreate()} for the screens whose creation was deferred.
+     */
+    private void createPendingScreens(@Nullable final TransitionMetrics metrics, @NonNull final TransitionMetrics.Type type) {
+        for (int i = 0; i < pendingCreates.size(); i++) {
+            Screen<ApplicationComponent> screen = pendingCreates.get(i);
+            long start = metrics != null ? System.nanoTime() : 0;
+
+            screen.onCreate();
+
+            if (metrics != null) {
+                metrics.onPhase(TransitionMetrics.Phase.CREATE, type, screen.getClass(), start, System.nanoTime());
+            }
+        }
+        pendingCreates.clear();
+    }
+
+    /**
+     * Animates a change of the content of given view, which stays in place.
+     * If neither given animator nor the default animator supports this, the change is not animated.
+     */
+    private void animateContentChange(
+          @NonNull final View view,
+          @Nullable final TransitionAnimator animator,
+          @NonNull final ScreenTransition completion
+    ) {
+        checkState(rootView != null, "Root view is null. Make sure to call TriadDelegate.onCreate().");
+
+        boolean handled = false;
+        if (animator instanceof TransitionAnimator.ContentChangeAnimator) {
+            completion.runningAnimator = animator;
+            handled = ((TransitionAnimator.ContentChangeAnimator) animator).contentChanged(view, rootView, completion);
+        }
+
+        if (!handled && defaultTransitionAnimator instanceof TransitionAnimator.ContentChangeAnimator) {
+            completion.runningAnimator = defaultTransitionAnimator;
+            handled = ((TransitionAnimator.ContentChangeAnimator) defaultTransitionAnimator).contentChanged(view, rootView, completion);
+        }
+
+        if (!handled) {
+            completion.runningAnimator = null;
+            completion.onComplete();
+        }
+    }
+
+    /**
+     * Animates from given old view to given new view.
+     * The animator that runs the animation is recorded in the transition before it starts,
+     * so that the animation can be cancelled.
+     */
+    private void animate(
+          final boolean backward,
+          @Nullable final View oldView,
+          @NonNull final View newView,
+          @Nullable final TransitionAnimator animator,
+          @NonNull final ScreenTransition completion
+    ) {
+        checkState(rootView != null, "Root view is null. Make sure to call TriadDelegate.onCreate().");
+
+        boolean handled = false;
+        if (animator != null) {
+            completion.runningAnimator = animator;
+            handled = backward
+                  ? animator.backward(oldView, newView, rootView, completion)
+                  : animator.forward(oldView, newView, rootView, completion);
+        }
+
+        if (!handled) {
+            completion.runningAnimator = defaultTransitionAnimator;
+            if (backward) {
+                defaultTransitionAnimator.backward(oldView, newView, rootView, completion);
+            } else {
+                defaultTransitionAnimator.forward(oldView, newView, rootView, completion);
+            }
+        }
+    }
+
+    /**
+     * The phases a transition to a new {@link Screen} goes through, in order.
+     */
+    public enum Phase {
+
+        /**
+         * Calls {@link Screen#onCreate()} for the screens that were pushed onto the backstack.
+         */
+        CREATE,
+
+        /**
+         * Creates the view of the new screen, see {@link Screen#createView(ViewGroup)}.
+         */
+        INFLATE,
+
+        /**
+         * Restores the view state of the new screen when moving backward, see {@link Screen#restoreState(View)}.
+         */
+        RESTORE_STATE,
+
+        /**
+         * Starts the {@link TransitionAnimator}.
+         */
+        ANIMATE,
+
+        /**
+         * Attaches the new screen and detaches the old screen once the animation has completed.
+         */
+        ATTACH
+    }
+
+    /**
+     * Describes when a {@link Phase} is executed, relative to the phase before it.
+     */
+    public enum PhasePolicy {
+
+        /**
+         * The phase is executed right after the previous phase.
+         */
+        IMMEDIATE,
+
+        /**
+         * The phase is executed at the start of the next frame, see {@link Choreographer#postFrameCallback(FrameCallback)}.
+         */
+        NEXT_FRAME,
+
+        /**
+         * The phase is executed when the main thread has no more pending work, see {@link MessageQueue#addIdleHandler(IdleHandler)}.
+         */
+        IDLE
+    }
+
+    /**
+     * Schedules the deferred phases of transitions and the prefetching of screens.
+     */
+    interface PhaseScheduler {
+
+        void postFrameCallback(@NonNull FrameCallback callback);
+
+        void removeFrameCallback(@NonNull FrameCallback callback);
+
+        void addIdleHandler(@NonNull IdleHandler handler);
+
+        void removeIdleHandler(@NonNull IdleHandler handler);
+
+        /**
+         * Returns the current time in nanoseconds, to measure the time spent against the frame budget.
+         */
+        long nanoTime();
+    }
+
+    /**
+     * Schedules on the {@link Choreographer} and the message queue of the main thread.
+     */
+    private static class LooperPhaseScheduler implements PhaseScheduler {
+
+        static final PhaseScheduler INSTANCE = new LooperPhaseScheduler();
+
+        @Override
+        public void postFrameCallback(@NonNull final FrameCallback callback) {
+            Choreographer.getInstance().postFrameCallback(callback);
+        }
+
+        @Override
+        public void removeFrameCallback(@NonNull final FrameCallback callback) {
+            Choreographer.getInstance().removeFrameCallback(callback);
+        }
+
+        @Override
+        public void addIdleHandler(@NonNull final IdleHandler handler) {
+            Looper.myQueue().addIdleHandler(handler);
+        }
+
+        @Override
+        public void removeIdleHandler(@NonNull final IdleHandler handler) {
+            Looper.myQueue().removeIdleHandler(handler);
+        }
+
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    }
+
+    /**
+     * Executes the phases of a single transition, and notifies Triad when they are done.
+     * <p>
+     * Phases that are deferred according to their {@link PhasePolicy} are resumed from a frame callback or an idle handler.
+     */
+    private class ScreenTransition implements Callback, FrameCallback, IdleHandler, AsyncInflater.Callback {
+
+        private boolean backward;
+
+        /**
+         * Whether the old view may be cached once it has been removed by the animator.
+         */
+        private boolean cacheOldView;
+
+        /**
+         * Whether the new view was taken from the view cache, and thus needs no state restoration.
+         */
+        private boolean cachedNewView;
+
+        /**
+         * Whether the old view is kept and rebound to the new screen, instead of being replaced by a new view.
+         */
+        private boolean rebind;
+
+        /**
+         * Whether the old screen was already detached before the {@link Phase#ATTACH} phase.
+         */
+        private boolean oldScreenReleased;
+
+        /**
+         * The image that replaced the old view during the animation, if any.
+         */
+        @Nullable
+        private SnapshotRenderer.Snapshot snapshot;
+
+        /**
+         * The animator that runs the animation of this transition, if any.
+         */
+        @Nullable
+        private TransitionAnimator runningAnimator;
+
+        /**
+         * The old view that was passed to the animator, if any.
+         */
+        @Nullable
+        private View animatedOldView;
+
+        /**
+         * Whether the animation of this transition has started, even if it has completed since.
+         */
+        private boolean animationStarted;
+
+        /**
+         * The committed back gesture that already revealed the new view, if any.
+         * The new view is taken from the gesture, and is not animated again.
+         */
+        @Nullable
+        private BackGesture gesture;
+
+        /**
+         * Whether this transition was aborted while its animator, which could not be cancelled, was running.
+         * The eventual call to {@link #onComplete()} is ignored.
+         */
+        private boolean aborted;
+
+        @Nullable
+        private Screen<ApplicationComponent> newScreen;
+
+        @Nullable
+        private Screen<ApplicationComponent> oldScreen;
+
+        @Nullable
+        private View oldView;
+
+        @Nullable
+        private View newView;
+
+        @Nullable
+        private TransitionAnimator animator;
+
+        @Nullable
+        private Callback callback;
+
+        @Nullable
+        private TransitionMetrics metrics;
+
+        @NonNull
+        private TransitionMetrics.Type type = TransitionMetrics.Type.UNKNOWN;
+
+        /**
+         * The {@link System#nanoTime()} at which the animation started, if timed.
+         */
+        private long animationStart;
+
+        /**
+         * The pending background inflation of the new view, if any.
+         */
+        @Nullable
+        private AsyncInflater.Request inflation;
+
+        /**
+         * The {@link System#nanoTime()} at which the background inflation started, if timed.
+         */
+        private long inflationStart;
+
+        /**
+         * Whether this transition has started and has not yet notified Triad.
+         */
+        private boolean pending;
+
+        /**
+         * The phase to execute next, or {@code null} if all phases have been executed.
+         */
+        @Nullable
+        private Phase nextPhase;
+
+        /**
+         * Whether execution is deferred to a frame callback or an idle handler.
+         */
+        @Nullable
+        private PhasePolicy waitingFor;
+
+        /**
+         * Whether the next phase was deferred and may now be executed.
+         */
+        private boolean due;
+
+        /**
+         * Whether this transition is waiting for the animation to complete.
+         */
+        private boolean animating;
+
+        void start() {
+            nextPhase = Phase.CREATE;
+            due = false;
+            advance();
+        }
+
+        /**
+         * Executes phases until one is deferred, the animation is started, or the transition is complete.
+         */
+        private void advance() {
+            long sliceStart = frameBudgetNanos > 0 ? phaseScheduler.nanoTime() : 0;
+            boolean executed = false;
+
+            while (nextPhase != null) {
+                Phase phase = nextPhase;
+
+                if (!isApplicable(phase)) {
+                    nextPhase = next(phase);
+                    continue;
+                }
+
+                PhasePolicy policy = phasePolicies[phase.ordinal()];
+                if (policy == PhasePolicy.IMMEDIATE && executed && frameBudgetNanos > 0
+                      && phaseScheduler.nanoTime() - sliceStart >= frameBudgetNanos) {
+                    /* The frame budget is spent, continue in the next frame. */
+                    policy = PhasePolicy.NEXT_FRAME;
+                }
+
+                if (policy != PhasePolicy.IMMEDIATE && !due) {
+                    schedule(policy);
+                    return;
+                }
+
+                due = false;
+                nextPhase = next(phase);
+                execute(phase);
+                executed = true;
+
+                if (phase == Phase.ANIMATE || phase == Phase.ATTACH || inflation != null) {
+                    /* Continued by onComplete() or onInflated(), or done. This instance may already be running the next transition. */
+                    return;
+                }
+            }
+        }
+
+        private boolean isApplicable(@NonNull final Phase phase) {
+            switch (phase) {
+                case CREATE:
+                    return !pendingCreates.isEmpty();
+                case RESTORE_STATE:
+                    return backward && !cachedNewView;
+                default:
+                    return true;
+            }
+        }
+
+        @Nullable
+        private Phase next(@NonNull final Phase phase) {
+            int next = phase.ordinal() + 1;
+            return next < PHASES.length ? PHASES[next] : null;
+        }
+
+        private void execute(@NonNull final Phase phase) {
+            checkState(rootView != null, "Root view is null. Make sure to call TriadDelegate.onCreate().");
+            Screen<ApplicationComponent> newScreen = checkNotNull(this.newScreen, "New screen is null.");
+            long start = metrics != null ? System.nanoTime() : 0;
+
+            switch (phase) {
+                case CREATE:
+                    createPendingScreens(metrics, type);
+                    break;
+                case INFLATE:
+                    if (gesture != null) {
+                        newView = gesture.previousView;
+                        cachedNewView = true;
+                        report(TransitionMetrics.Phase.INFLATE, start);
+                        break;
+                    }
+
+                    if (interruptedScreen == newScreen && interruptedView != null) {
+                        /* Animate the view that was animating out back in. */
+                        newView = interruptedView;
+                        cachedNewView = true;
+                        interruptedScreen = null;
+                        interruptedView = null;
+                        report(TransitionMetrics.Phase.INFLATE, start);
+                        break;
+                    }
+
+                    if (rebind) {
+                        rebindOldView(newScreen);
+                        report(TransitionMetrics.Phase.INFLATE, start);
+                        break;
+                    }
+
+                    View cachedView = viewCache != null ? viewCache.take(newScreen) : null;
+                    if (cachedView == null && preparedScreens.remove(newScreen)) {
+                        cachedView = preparedViews.take(newScreen);
+                    }
+                    cachedNewView = cachedView != null;
+                    View recycledView = cachedNewView ? null : takeRecycledView(newScreen);
+                    if (cachedNewView) {
+                        newView = cachedView;
+                    } else if (recycledView != null) {
+                        newView = recycledView;
+                    } else if (asyncInflater != null && asyncInflater.canInflate(newScreen)) {
+                        inflationStart = start;
+                        inflation = asyncInflater.inflate(newScreen, rootView, this);
+                        break;
+                    } else {
+                        newView = newScreen.createView(rootView);
+                    }
+                    report(TransitionMetrics.Phase.INFLATE, start);
+                    break;
+                case RESTORE_STATE:
+                    newScreen.restoreState(checkNotNull(newView, "New view is null."));
+                    report(TransitionMetrics.Phase.RESTORE_STATE, start);
+                    break;
+                case ANIMATE:
+                    animationStart = start;
+                    animating = true;
+                    animationStarted = true;
+                    currentView = newView;
+                    if (gesture != null) {
+                        /* The gesture has already shown the new view. */
+                        animatedOldView = null;
+                        runningAnimator = null;
+                        onScreenChanged(newScreen);
+                        onComplete();
+                        break;
+                    }
+                    if (rebind) {
+                        animatedOldView = null;
+                        animateContentChange(checkNotNull(newView, "New view is null."), animator, this);
+                    } else {
+                        animatedOldView = snapshotOldView();
+                        animate(backward, animatedOldView, checkNotNull(newView, "New view is null."), animator, this);
+                    }
+                    onScreenChanged(newScreen);
+                    break;
+                case ATTACH:
+                    attach(start);
+                    break;
+            }
+        }
+
+        /**
+         * Hands the old view to the new screen. The old screen is detached first, so that its presenter
+         * no longer updates the view.
+         */
+        private void rebindOldView(@NonNull final Screen<ApplicationComponent> newScreen) {
+            View view = checkNotNull(oldView, "Old view is null.");
+
+            if (preparedScreens.remove(newScreen)) {
+                preparedViews.remove(newScreen);
+            }
+            if (oldScreen != null) {
+                oldScreen.detach();
+            }
+            oldScreenReleased = true;
+
+            newScreen.bindRecycledView(view);
+            newView = view;
+        }
+
+        /**
+         * Replaces the old view by a snapshot if enabled, releasing the old screen right away.
+         *
+         * @return The view to animate out.
+         */
+        @Nullable
+        private View snapshotOldView() {
+            Screen<ApplicationComponent> oldScreen = this.oldScreen;
+            View oldView = this.oldView;
+            if (snapshotRenderer == null || oldScreen == null || oldView == null || oldScreen == newScreen) return oldView;
+
+            snapshot = snapshotRenderer.replace(oldView);
+            if (snapshot == null) return oldView;
+
+            releaseOldScreen(oldScreen, oldView, newView, cacheOldView);
+            oldScreenReleased = true;
+            return snapshot;
+        }
+
+        private void report(@NonNull final TransitionMetrics.Phase phase, final long start) {
+            if (metrics != null) {
+                metrics.onPhase(phase, type, newScreen == null ? null : newScreen.getClass(), start, System.nanoTime());
+            }
+        }
+
+        private void schedule(@NonNull final PhasePolicy policy) {
+            waitingFor = policy;
+            if (policy == PhasePolicy.NEXT_FRAME) {
+                phaseScheduler.postFrameCallback(this);
+            } else {
+                phaseScheduler.addIdleHandler(this);
+            }
+        }
+
+        @Override
+        public void doFrame(final long frameTimeNanos) {
+            resume();
+        }
+
+        @Override
+        public boolean queueIdle() {
+            resume();
+            return false;
+        }
+
+        private void resume() {
+            if (waitingFor == null) return;
+
+            waitingFor = null;
+            due = true;
+            advance();
+        }
+
+        @Override
+        public void onInflated(@NonNull final View view) {
+            inflation = null;
+            newView = view;
+            report(TransitionMetrics.Phase.INFLATE, inflationStart);
+            advance();
+        }
+
+        /**
+         * Called by the {@link TransitionAnimator} when the animation has completed.
+         */
+        @Override
+        public void onComplete() {
+            if (aborted) {
+                clear();
+                return;
+            }
+
+            checkState(animating, "onComplete already called for this transition");
+
+            animating = false;
+            report(TransitionMetrics.Phase.ANIMATE, animationStart);
+            advance();
+        }
+
+        private void attach(final long start) {
+            checkState(rootView != null, "Root view is null. Make sure to call TriadDelegate.onCreate().");
+
+            Screen<ApplicationComponent> newScreen = checkNotNull(this.newScreen, "New screen is null.");
+            Screen<ApplicationComponent> oldScreen = this.oldScreen;
+            View oldView = this.oldView;
+            View newView = this.newView;
+            boolean cacheOldView = this.cacheOldView;
+            boolean oldScreenReleased = this.oldScreenReleased;
+            SnapshotRenderer.Snapshot snapshot = this.snapshot;
+            Callback callback = checkNotNull(this.callback, "Callback is null.");
+            TransitionMetrics metrics = this.metrics;
+            TransitionMetrics.Type type = this.type;
+
+            clear();
+
+            if (snapshot != null && snapshotRenderer != null) {
+                snapshotRenderer.release(snapshot, false);
+            }
+
+            if (oldScreen == newScreen) {
+                /* The screen is shown again with a new view. */
+                newScreen.detach();
+            }
+            newScreen.attach(rootView);
+
+            if (oldScreen != null && oldScreen != newScreen && !oldScreenReleased) {
+                releaseOldScreen(oldScreen, oldView, newView, cacheOldView);
+            }
+
+            if (metrics != null) {
+                metrics.onPhase(TransitionMetrics.Phase.ATTACH, type, newScreen.getClass(), start, System.nanoTime());
+            }
+
+            if (prefetcher != null && triad != null) {
+                /* A prefetched view is not laid out yet, but will fill the root view once it is shown. */
+                prefetcher.onScreenShown(triad, newScreen, ViewCache.estimateBytes(rootView.getWidth(), rootView.getHeight()));
+            }
+
+            callback.onComplete();
+
+            /* The backstack is updated once Triad is notified. */
+            dehydrateDeepScreens();
+            storeDeepStates();
+            enforceMemoryBudget(oldScreen);
+        }
+
+        /**
+         * Stops this transition without notifying Triad if it is waiting for a deferred phase or a background inflation.
+         * A running animation is left to complete as usual.
+         */
+        void cancel() {
+            if (inflation != null) {
+                inflation.cancel();
+            } else if (waitingFor == PhasePolicy.NEXT_FRAME) {
+                phaseScheduler.removeFrameCallback(this);
+            } else if (waitingFor == PhasePolicy.IDLE) {
+                phaseScheduler.removeIdleHandler(this);
+            } else {
+                return;
+            }
+
+            clear();
+        }
+
+        /**
+         * Stops this transition because Triad cancelled it.
+         * A running animation is ended immediately if the animator supports it, and the root view is left
+         * showing the new view if the animation had started, in which case the old screen is detached
+         * and the new screen is attached. Otherwise, the old view and the old screen stay in place.
+         */
+        void abort() {
+            checkState(rootView != null, "Root view is null. Make sure to call TriadDelegate.onCreate().");
+            if (!pending) return;
+
+            Screen<ApplicationComponent> newScreen = this.newScreen;
+            Screen<ApplicationComponent> oldScreen = this.oldScreen;
+            View newView = this.newView;
+            boolean cancellable = runningAnimator instanceof TransitionAnimator.CancellableAnimator;
+
+            if (animating && newView != null) {
+                if (cancellable) {
+                    ((TransitionAnimator.CancellableAnimator) runningAnimator).cancel(animatedOldView, newView, rootView);
+                }
+
+                /* Make sure the root view only shows the new view, even if the animator could not be cancelled. */
+                if (animatedOldView != null && animatedOldView != newView && animatedOldView.getParent() == rootView) {
+                    rootView.removeView(animatedOldView);
+                }
+                if (newView.getParent() == null) {
+                    rootView.addView(newView);
+                }
+            }
+
+            if (snapshot != null && snapshotRenderer != null) {
+                /* An animator that could not be cancelled may still be animating the snapshot. */
+                snapshotRenderer.release(snapshot, true);
+                snapshot = null;
+            }
+
+            boolean showsNewView = animationStarted || oldScreenReleased;
+            if (!showsNewView && oldScreen != null && currentScreen == newScreen) {
+                /* The old view is still shown. */
+                currentScreen = oldScreen;
+            } else if (showsNewView && newScreen != null) {
+                if (oldScreen != null && oldScreen != newScreen && !oldScreenReleased) {
+                    releaseOldScreen(oldScreen, oldView, newView, cacheOldView);
+                }
+                newScreen.attach(rootView);
+            }
+
+            if (animating && !cancellable) {
+                /* Keep this instance from being reused until the animator calls back. */
+                aborted = true;
+                return;
+            }
+
+            cancel();
+            clear();
+        }
+
+        /**
+         * Stops this transition because Triad executes a new transition in its place.
+         * If the animator supports it, a running animation is stopped where it is, and the old view is left in place
+         * so the next transition can animate it back in. Otherwise, this transition is aborted.
+         */
+        void interrupt() {
+            checkState(rootView != null, "Root view is null. Make sure to call TriadDelegate.onCreate().");
+            if (!pending) return;
+
+            if (!animating || !(runningAnimator instanceof TransitionAnimator.InterruptibleAnimator)) {
+                abort();
+                return;
+            }
+
+            Screen<ApplicationComponent> newScreen = checkNotNull(this.newScreen, "New screen is null.");
+            Screen<ApplicationComponent> oldScreen = this.oldScreen;
+            View newView = checkNotNull(this.newView, "New view is null.");
+
+            ((TransitionAnimator.InterruptibleAnimator) runningAnimator).interrupt(animatedOldView, newView, rootView);
+
+            boolean leavesOldView = false;
+            if (snapshot != null && snapshotRenderer != null) {
+                /* A snapshot cannot be animated back in. */
+                snapshotRenderer.release(snapshot, true);
+            } else if (oldScreen != null && oldScreen != newScreen && oldView != null && oldView != newView && oldView.getParent() == rootView) {
+                if (interruptedView != null) {
+                    removeInterruptedView();
+                }
+                interruptedScreen = oldScreen;
+                interruptedView = oldView;
+                interruptedViewCacheable = cacheOldView;
+                leavesOldView = true;
+            }
+
+            if (oldScreen != null && oldScreen != newScreen && !oldScreenReleased) {
+                if (leavesOldView) {
+                    /* The view stays in the root view for now, and is only cached once it is removed. */
+                    oldScreen.detach();
+                } else {
+                    releaseOldScreen(oldScreen, oldView, newView, cacheOldView);
+                }
+                oldScreenReleased = true;
+            }
+            newScreen.attach(rootView);
+
+            clear();
+        }
+
+        private void clear() {
+            newScreen = null;
+            oldScreen = null;
+            oldView = null;
+            newView = null;
+            cacheOldView = false;
+            cachedNewView = false;
+            rebind = false;
+            oldScreenReleased = false;
+            snapshot = null;
+            gesture = null;
+            runningAnimator = null;
+            animatedOldView = null;
+            animationStarted = false;
+            aborted = false;
+            inflation = null;
+            animator = null;
+            callback = null;
+            metrics = null;
+            type = TransitionMetrics.Type.UNKNOWN;
+            nextPhase = null;
+            waitingFor = null;
+            due = false;
+            animating = false;
+            pending = false;
+        }
+    }
+
+    /**
+     * A back gesture in progress, started through {@link #startBackGesture()}.
+     * All methods must be called on the main thread.
+     */
+    public final class BackGesture {
+
+        @NonNull
+        private final TransitionAnimator.SeekableAnimator animator;
+
+        @NonNull
+        private final Screen<ApplicationComponent> previousScreen;
+
+        @NonNull
+        private final View currentView;
+
+        @NonNull
+        private final View previousView;
+
+        /**
+         * Whether {@link #commit()} or {@link #cancel()} was called.
+         */
+        private boolean finished;
+
+        /**
+         * Whether the gesture was committed, and Triad was asked to move back.
+         */
+        private boolean committed;
+
+        private BackGesture(
+              @NonNull final TransitionAnimator.SeekableAnimator animator,
+              @NonNull final Screen<ApplicationComponent> previousScreen,
+              @NonNull final View currentView,
+              @NonNull final View previousView
+        ) {
+            this.animator = animator;
+            this.previousScreen = previousScreen;
+            this.currentView = currentView;
+            this.previousView = previousView;
+        }
+
+        /**
+         * Shows the transition at given progress. This is called for every frame of the gesture, and does not allocate.
+         *
+         * @param progress The progress of the gesture, from 0 to 1. Values outside this range are clamped.
+         */
+        public void setProgress(final float progress) {
+            if (finished || backGesture != this || rootView == null) return;
+
+            animator.seek(currentView, previousView, rootView, Math.max(0f, Math.min(1f, progress)));
+        }
+
+        /**
+         * Completes the transition, and moves back once it is done.
+         */
+        public void commit() {
+            if (finished || backGesture != this || rootView == null) return;
+
+            finished = true;
+            animator.finishSeek(currentView, previousView, rootView, new Callback() {
+                @Override
+                public void onComplete() {
+                    if (backGesture != BackGesture.this || triad == null) return;
+
+                    committed = true;
+                    if (!triad.goBack()) {
+                        /* Triad did not move back, so the current screen must be shown again. */
+                        committed = false;
+                        abandon();
+                    }
+                }
+            });
+        }
+
+        /**
+         * Reverts the transition, leaving the current screen in place.
+         */
+        public void cancel() {
+            if (finished || backGesture != this || rootView == null) return;
+
+            finished = true;
+            animator.cancelSeek(currentView, previousView, rootView, new Callback() {
+                @Override
+                public void onComplete() {
+                    if (backGesture != BackGesture.this) return;
+
+                    backGesture = null;
+                    releasePreviousView();
+                }
+            });
+        }
+
+        /**
+         * Immediately reverts the transition, because another transition takes its place or Triad did not move back.
+         */
+        private void abandon() {
+            if (backGesture == this) {
+                backGesture = null;
+            }
+            if (rootView == null) return;
+
+            if (!committed) {
+                /* This also stops a settling animation, whose end action would remove the current view. */
+                animator.abandonSeek(currentView, previousView, rootView);
+            } else if (previousView.getParent() == rootView) {
+                rootView.removeView(previousView);
+            }
+            releasePreviousView();
+        }
+
+        /**
+         * Keeps the unused view of the previous screen in the view cache, so that it can be shown without inflating it.
+         */
+        private void releasePreviousView() {
+            if (viewCache != null) {
+                viewCache.put(previousScreen, previousView);
+            }
+        }
+    }
+
+    private class MyTriadListener implements Triad.PreparingListener<ApplicationComponent>, Triad.InterruptibleListener<ApplicationComponent>,
+          Triad.DeferringListener<ApplicationComponent> {
+
+        @Override
+        public boolean defersCreate() {
+            return phasePolicies[Phase.CREATE.ordinal()] != PhasePolicy.IMMEDIATE;
+        }
+
+        @Override
+        public boolean interruptsTransitions() {
+            return interruptsTransitions;
+        }
+
+        @Override
+        public void transitionCancelled(@NonNull final Callback callback) {
+            ScreenTransition transition = currentTransition;
+            if (transition == null || transition.callback != callback) return;
+
+            transition.abort();
+            currentTransition = null;
+        }
+
+        @Override
+        public void transitionInterrupted(@NonNull final Callback callback) {
+            ScreenTransition transition = currentTransition;
+            if (transition == null || transition.callback != callback) return;
+
+            transition.interrupt();
+            currentTransition = null;
+        }
+
+        @Override
+        public void screenPrepared(@NonNull final Screen<ApplicationComponent> preparedScreen) {
+            checkState(applicationComponent != null, "ApplicationComponent is null. Make sure to call TriadDelegate.onCreate().");
+
+            preparedScreen.setApplicationComponent(applicationComponent);
+            preparedScreen.onCreate();
+
+            /* Presenters are typically created lazily, so this creates it ahead of time. */
+            preparedScreen.getPresenter();
+
+            preparedScreens.add(preparedScreen);
+            prepareView(preparedScreen);
+        }
+
+        @Override
+        public void screenDiscarded(@NonNull final Screen<ApplicationComponent> discardedScreen) {
+            preparedScreens.remove(discardedScreen);
+            preparedViews.remove(discardedScreen);
+
+            discardedScreen.onDestroy();
+        }
+
+        @Override
+        public void screenPushed(@NonNull final Screen<ApplicationComponent> pushedScreen) {
+            checkState(applicationComponent != null, "ApplicationComponent is null. Make sure to call TriadDelegate.onCreate().");
+
+            pushedScreen.setApplicationComponent(applicationComponent);
+            /* A popped screen that is pushed again keeps its saved state. */
+            pushedScreen.rehydrate();
+            if (!defersCreate()) {
+                pushedScreen.onCreate();
+            } else {
+                pendingCreates.add(pushedScreen);
+            }
+        }
+
+        @Override
+        public void screenPopped(@NonNull final Screen<ApplicationComponent> poppedScreen) {
+            if (viewCache != null) {
+                viewCache.remove(poppedScreen);
+            }
+            if (preparedScreens.remove(poppedScreen)) {
+                preparedViews.remove(poppedScreen);
+            }
+            if (poppedScreen == interruptedScreen) {
+                interruptedViewCacheable = false;
+            }
+            if (poppedScreen == currentScreen) {
+                currentScreenPopped = true;
+            }
+            poppedScreen.discardStoredState();
+
+            /* A screen that was never created or was already dehydrated is not destroyed either. */
+            if (pendingCreates.remove(poppedScreen) || poppedScreen.isDehydrated()) return;
+
+            poppedScreen.onDestroy();
+        }
+
+        @Override
+        public void forward(@NonNull final Screen<ApplicationComponent> newScreen, @Nullable final TransitionAnimator animator, @NonNull final Triad.Callback callback) {
+            checkState(rootView != null, "Root view is null. Make sure to call TriadDelegate.onCreate().");
+
+            final View oldView = currentView;
+            final Screen<ApplicationComponent> oldScreen = currentScreen;
+            if (oldView != null && oldScreen != null) {
+                oldScreen.saveState(oldView);
+            }
+
+            currentScreen = newScreen;
+            obtainTransition(false, newScreen, oldScreen, oldView, animator, callback).start();
+        }
+
+        @Override
+        public void backward(@NonNull final Screen<ApplicationComponent> newScreen, @Nullable final TransitionAnimator animator, @NonNull final Triad.Callback callback) {
+            checkState(rootView != null, "Root view is null. Make sure to call TriadDelegate.onCreate().");
+
+            final Screen<ApplicationComponent> oldScreen = currentScreen;
+            currentScreen = newScreen;
+
+            final View oldView = currentView;
+            obtainTransition(true, newScreen, oldScreen, oldView, animator, callback).start();
+        }
+
+        @Override
+        public void replace(@NonNull final Screen<ApplicationComponent> newScreen, @Nullable final TransitionAnimator animator, @NonNull final Triad.Callback callback) {
+            checkState(rootView != null, "Root view is null. Make sure to call TriadDelegate.onCreate().");
+
+            final Screen<ApplicationComponent> oldScreen = currentScreen;
+            currentScreen = newScreen;
 
-            onScreenChanged(newScreen);
+            final View oldView = currentView;
+            ScreenTransition transition = obtainTransition(false, newScreen, oldScreen, oldView, animator, callback);
+            transition.rebind = oldView != null && canRebind(oldScreen, newScreen);
+            transition.start();
         }
     }
 }
@@ -10,11 +10,11 @@ public final class TriadFactory {
 
     @NonNull
     public static Triad emptyInstance() {
-        return TriadImpl.emptyInstance();
+        return new MainThreadTriad(TriadImpl.emptyInstance());
     }
 
     @NonNull
     public static Triad newInstance(@NonNull final Backstack backstack, @NonNull final Listener<?> listener) {
-        return TriadImpl.newInstance(backstack, listener);
+        return new MainThreadTriad(TriadImpl.newInstance(backstack, listener));
     }
 }
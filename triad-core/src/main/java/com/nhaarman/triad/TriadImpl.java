@@ -23,8 +23,11 @@ import android.support.annotation.Nullable;
 import android.util.SparseArray;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 
+import static com.nhaarman.triad.Preconditions.checkArgument;
 import static com.nhaarman.triad.Preconditions.checkNotNull;
 import static com.nhaarman.triad.Preconditions.checkState;
 
@@ -46,6 +49,86 @@ class TriadImpl implements Triad {
     @Nullable
     private Transition transition;
 
+    /**
+     * The backstack as last published by {@link #publishSnapshot()}.
+     * Only written on the main thread, but may be read from any thread. See {@link MainThreadTriad}.
+     */
+    @NonNull
+    private volatile Backstack publishedBackstack;
+
+    /**
+     * Whether a transition was running as last published by {@link #publishSnapshot()}.
+     */
+    private volatile boolean publishedTransitioning;
+
+    /**
+     * Incremented before and after the published state is written, so that it is odd while the state is inconsistent.
+     * Readers retry until they read the same even value before and after reading the state.
+     */
+    private volatile int publishedVersion;
+
+    /**
+     * The first of the transitions that are waiting for the current transition to finish.
+     * Queued transitions are linked through {@link Transition#next}.
+     */
+    @Nullable
+    private Transition queueHead;
+
+    @Nullable
+    private Transition queueTail;
+
+    private int queueDepth;
+
+    private int maxQueueDepth = Integer.MAX_VALUE;
+
+    @NonNull
+    private OverflowPolicy overflowPolicy = OverflowPolicy.COLLAPSE;
+
+    @NonNull
+    private BackstackPolicy backstackPolicy = BackstackPolicy.NONE;
+
+    /**
+     * Reused by {@link Transition#execute()} to avoid allocations on every transition.
+     * Only available while {@link #executing} is false.
+     */
+    @NonNull
+    private final Fold sharedFold = new Fold(Backstack.emptyBuilder().build(), backstackPolicy);
+
+    @NonNull
+    private final BackstackDiff sharedDiff = new BackstackDiff();
+
+    private boolean executing;
+
+    /**
+     * Reused to apply the {@link #backstackPolicy}, which does not notify the listener.
+     */
+    @NonNull
+    private final ArrayList<Backstack.Entry<?>> removedEntries = new ArrayList<>();
+
+    @NonNull
+    private final HashSet<Object> keys = new HashSet<>();
+
+    /**
+     * Finished {@link GoToTransition}s, linked through {@link Transition#next}.
+     */
+    @Nullable
+    private Transition goToPool;
+
+    /**
+     * Finished {@link GoBackTransition}s, linked through {@link Transition#next}.
+     */
+    @Nullable
+    private Transition goBackPool;
+
+    @Nullable
+    private TransitionMetrics metrics;
+
+    /**
+     * Screens that were passed to a {@link PreparingListener}, but have not been pushed or discarded yet.
+     */
+    @NonNull
+    private final ArrayList<Screen<?>> preparedScreens = new ArrayList<>();
+
     @NonNull
     private WeakReference<Activity> activity;
 
@@ -58,6 +141,7 @@ class TriadImpl implements Triad {
     private TriadImpl(@NonNull final Backstack backstack, @Nullable final Listener<?> listener) {
         this.listener = listener;
         this.backstack = backstack;
+        publishedBackstack = backstack;
 
         activityResultListeners = new SparseArray<>();
 
@@ -87,13 +171,36 @@ class TriadImpl implements Triad {
         this.listener = listener;
     }
 
+    @Override
+    public void setMetrics(@Nullable final TransitionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Nullable
+    @Override
+    public TransitionMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void setBackstackPolicy(@NonNull final BackstackPolicy policy) {
+        backstackPolicy = policy;
+        sharedFold.policy = policy;
+    }
+
     @Override
     public void reset() {
         if (transition != null) {
             transition.cancel();
             transition = null;
         }
+        clearQueue();
         backstack = Backstack.emptyBuilder().build();
+        publishSnapshot();
+
+        while (!preparedScreens.isEmpty()) {
+            discard(preparedScreens.get(preparedScreens.size() - 1));
+        }
     }
 
     @Override
@@ -107,6 +214,53 @@ class TriadImpl implements Triad {
         return transition != null && !transition.isFinished();
     }
 
+    @NonNull
+    @Override
+    public Snapshot getSnapshot() {
+        while (true) {
+            int version = publishedVersion;
+            Backstack backstack = publishedBackstack;
+            boolean transitioning = publishedTransitioning;
+            if ((version & 1) == 0 && version == publishedVersion) {
+                return new Snapshot(backstack, transitioning);
+            }
+        }
+    }
+
+    /**
+     * Publishes the current backstack and transition state for {@link #getSnapshot()}, if either has changed.
+     * Transitions that complete synchronously are only published once they have completed.
+     * This does not allocate, since navigation happens far more often than the state is read from other threads.
+     */
+    @SuppressWarnings("NonAtomicOperationOnVolatileField")
+    private void publishSnapshot() {
+        boolean transitioning = isTransitioning();
+        if (publishedBackstack == backstack && publishedTransitioning == transitioning) return;
+
+        /* Only the main thread writes, so the increments do not race. */
+        publishedVersion++;
+        publishedBackstack = backstack;
+        publishedTransitioning = transitioning;
+        publishedVersion++;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    @Override
+    public void setMaxQueueDepth(final int maxQueueDepth, @NonNull final OverflowPolicy overflowPolicy) {
+        checkArgument(maxQueueDepth > 0, "maxQueueDepth must be positive, but was %d.", maxQueueDepth);
+
+        this.maxQueueDepth = maxQueueDepth;
+        this.overflowPolicy = overflowPolicy;
+
+        if (queueDepth > maxQueueDepth) {
+            collapseQueue();
+        }
+    }
+
     /**
      * Initializes the backstack with given Screen. If the backstack is not empty, this call is ignored.
      * This method must be called before any other backstack operation.
@@ -155,7 +309,52 @@ class TriadImpl implements Triad {
     public void goTo(@NonNull final Screen<?> screen, @Nullable final TransitionAnimator animator) {
         checkState(backstack.size() > 0 || transition != null, "Use startWith(Screen) to show your first Screen.");
 
-        move(new GoToTransition(screen, animator));
+        GoToTransition goToTransition = (GoToTransition) goToPool;
+        if (goToTransition == null) {
+            goToTransition = new GoToTransition();
+        } else {
+            goToPool = goToTransition.next;
+            goToTransition.reuse();
+        }
+        goToTransition.screen = screen;
+        goToTransition.animator = animator;
+
+        move(goToTransition);
+    }
+
+    @NonNull
+    @Override
+    public PreparedScreen prepare(@NonNull final Screen<?> screen) {
+        if (listener instanceof PreparingListener && indexOfPrepared(screen) < 0) {
+            preparedScreens.add(screen);
+            ((PreparingListener) listener).screenPrepared(screen);
+        }
+
+        return new PreparedScreen(this, screen);
+    }
+
+    @Override
+    public void discard(@NonNull final PreparedScreen preparedScreen) {
+        discard(preparedScreen.getScreen());
+    }
+
+    private void discard(@NonNull final Screen<?> screen) {
+        int index = indexOfPrepared(screen);
+        if (index < 0) return;
+
+        preparedScreens.remove(index);
+        if (listener instanceof PreparingListener) {
+            ((PreparingListener) listener).screenDiscarded(screen);
+        }
+    }
+
+    private int indexOfPrepared(@NonNull final Screen<?> screen) {
+        for (int i = 0; i < preparedScreens.size(); i++) {
+            if (preparedScreens.get(i) == screen) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     /**
@@ -236,14 +435,29 @@ class TriadImpl implements Triad {
      */
     @Override
     public boolean goBack() {
-        int backstackSize = backstack.size();
-        boolean transitionActive = transition != null && !transition.isFinished();
+        Backstack backstack = this.backstack;
+        Transition transition = this.transition;
+        if (transition != null && !transition.isFinished()) {
+            if (!canInterrupt(transition)) return false;
 
-        if (transitionActive || backstackSize == 0) {
+            /* Go back from the screen the running transition moves to. */
+            backstack = checkNotNull(transition.nextBackstack, "Next backstack is null.");
+        }
+
+        int backstackSize = backstack.size();
+        if (backstackSize == 0) {
             return false;
         }
 
-        move(new GoBackTransition());
+        Transition goBackTransition = goBackPool;
+        if (goBackTransition == null) {
+            goBackTransition = new GoBackTransition();
+        } else {
+            goBackPool = goBackTransition.next;
+            goBackTransition.reuse();
+        }
+
+        move(goBackTransition);
 
         return backstackSize > 1;
     }
@@ -290,6 +504,12 @@ class TriadImpl implements Triad {
         move(new ReplaceTransition(newBackstack));
     }
 
+    @NonNull
+    @Override
+    public Transaction beginTransaction() {
+        return new TransactionImpl();
+    }
+
     @Override
     public boolean canStart(@NonNull final Intent intent) {
         Activity activity = this.activity.get();
@@ -343,32 +563,242 @@ class TriadImpl implements Triad {
     }
 
     private void move(@NonNull final Transition transition) {
+        TransitionMetrics metrics = this.metrics;
+        if (metrics != null) {
+            transition.requestedAt = System.nanoTime();
+        }
+
         if (this.transition == null || this.transition.isFinished() || this.transition.isCancelled()) {
+            Transition previous = this.transition;
             this.transition = transition;
+            if (previous != null && previous.isFinished()) {
+                previous.recycle();
+            }
+
+            if (metrics != null) {
+                metrics.onRequested(transition.type(), 0);
+            }
+            transition.execute();
+        } else if (canInterrupt(this.transition)) {
+            this.transition.interrupt();
+            this.transition = transition;
+
+            if (metrics != null) {
+                metrics.onRequested(transition.type(), 0);
+            }
             transition.execute();
         } else {
-            this.transition.enqueue(transition);
+            enqueue(transition);
+
+            if (metrics != null) {
+                metrics.onRequested(transition.type(), queueDepth);
+            }
         }
+
+        publishSnapshot();
     }
 
-    private abstract class Transition implements Callback {
+    /**
+     * Returns whether given running transition can be interrupted by a new transition,
+     * which is the case if the listener supports and enables it, the listener is performing the transition,
+     * and no other transitions are waiting.
+     */
+    private boolean canInterrupt(@NonNull final Transition transition) {
+        return listener instanceof InterruptibleListener
+              && ((InterruptibleListener<?>) listener).interruptsTransitions()
+              && transition.notified
+              && !transition.isFinished()
+              && !transition.isCancelled()
+              && queueHead == null;
+    }
 
-        private boolean finished;
-        private boolean cancelled;
+    private void enqueue(@NonNull final Transition transition) {
+        if (queueDepth >= maxQueueDepth) {
+            switch (overflowPolicy) {
+                case DROP_NEWEST:
+                    return;
+                case DROP_OLDEST:
+                    Transition head = checkNotNull(queueHead, "Queue head is null.");
+                    queueHead = head.next;
+                    head.next = null;
+                    queueDepth--;
+                    if (queueHead == null) {
+                        queueTail = null;
+                    }
+                    break;
+                case COLLAPSE:
+                    append(transition);
+                    collapseQueue();
+                    return;
+            }
+        }
+
+        append(transition);
+    }
+
+    private void append(@NonNull final Transition transition) {
+        if (queueTail == null) {
+            queueHead = transition;
+        } else {
+            queueTail.next = transition;
+        }
+        queueTail = transition;
+        queueDepth++;
+    }
+
+    /**
+     * Removes all queued transitions, and returns the transition to execute for them.
+     * Multiple queued transitions are coalesced into a single transition.
+     */
+    @Nullable
+    private Transition pollQueue() {
+        Transition head = queueHead;
+        int depth = queueDepth;
+        clearQueue();
+
+        if (head == null || depth == 1) {
+            return head;
+        }
+
+        Transition coalesced = new CoalescedTransition(head);
+        coalesced.requestedAt = head.requestedAt;
+        return coalesced;
+    }
+
+    private static boolean contains(@NonNull final Backstack backstack, @NonNull final Screen<?> screen) {
+        for (Iterator<Screen<?>> iterator = backstack.iterator(); iterator.hasNext(); ) {
+            if (iterator.next() == screen) return true;
+        }
+        return false;
+    }
+
+    private void clearQueue() {
+        queueHead = null;
+        queueTail = null;
+        queueDepth = 0;
+    }
 
+    /**
+     * Folds all queued transitions into a single transition, ahead of execution.
+     * The queued transitions will be applied to the backstack the current transition moves to.
+     */
+    private void collapseQueue() {
+        Transition current = checkNotNull(transition, "Current transition is null.");
+
+        Fold fold = new Fold(current.nextBackstack != null ? current.nextBackstack : backstack, backstackPolicy);
+        for (Transition queued = queueHead; queued != null; queued = queued.next) {
+            queued.fold(fold);
+        }
+
+        Transition folded = new FoldedTransition(fold);
+        folded.requestedAt = checkNotNull(queueHead, "Queue head is null.").requestedAt;
+
+        clearQueue();
+        append(folded);
+    }
+
+    /**
+     * Accumulates the effect of one or more transitions on a backstack, without notifying the listener.
+     */
+    private static class Fold {
+
+        @NonNull
+        Backstack backstack;
+
+        @NonNull
+        Direction direction = Direction.FORWARD;
+
+        /**
+         * The animator to use for a backward change.
+         * Forward and replace changes use the animator of the new top entry.
+         */
         @Nullable
-        private Transition next;
+        TransitionAnimator animator;
 
+        /**
+         * Whether the current screen should be shown even if the backstack does not change.
+         */
+        boolean show;
+
+        /**
+         * The entry of a screen that was replaced by itself, see {@link ReplaceWithTransition}.
+         */
         @Nullable
-        private Backstack nextBackstack;
+        Backstack.Entry<?> recreated;
 
-        void enqueue(@NonNull final Transition transition) {
-            if (next == null) {
-                next = transition;
-            } else {
-                next.enqueue(transition);
+        /**
+         * The screens that were not pushed because the policy collapsed a cycle, see {@link #push(Screen, TransitionAnimator)}.
+         */
+        @NonNull
+        final ArrayList<Screen<?>> dropped = new ArrayList<>(0);
+
+        @NonNull
+        BackstackPolicy policy;
+
+        Fold(@NonNull final Backstack backstack, @NonNull final BackstackPolicy policy) {
+            this.backstack = backstack;
+            this.policy = policy;
+        }
+
+        @NonNull
+        Fold reset(@NonNull final Backstack backstack) {
+            this.backstack = backstack;
+            direction = Direction.FORWARD;
+            animator = null;
+            show = false;
+            recreated = null;
+            dropped.clear();
+            return this;
+        }
+
+        /**
+         * Pushes given screen, or moves back to the screen below the top if the policy collapses cycles
+         * and it has the same key. In that case, the original screen is kept so that its state is retained,
+         * and given screen is added to {@link #dropped} to be discarded if it was prepared.
+         */
+        void push(@NonNull final Screen<?> screen, @Nullable final TransitionAnimator animator) {
+            if (policy.collapsesCycles() && backstack.size() > 1) {
+                Object key = screen.getKey();
+                Backstack previous = checkNotNull(backstack.rest(), "Backstack rest is null.");
+                if (key != null && key.equals(previous.current().screen.getKey())) {
+                    this.animator = backstack.current().animator;
+                    backstack = previous;
+                    direction = Direction.BACKWARD;
+                    if (previous.current().screen != screen) {
+                        dropped.add(screen);
+                    }
+                    return;
+                }
             }
+
+            backstack = backstack.push(screen, animator);
+            direction = Direction.FORWARD;
         }
+    }
+
+    private abstract class Transition implements TypedCallback {
+
+        private volatile boolean finished;
+        private boolean cancelled;
+
+        /**
+         * The {@link System#nanoTime()} at which this transition was requested, or 0 if it is not timed.
+         */
+        long requestedAt;
+
+        /**
+         * The next transition in the queue, or in the pool this transition is in.
+         */
+        @Nullable
+        Transition next;
+
+        @Nullable
+        private Backstack nextBackstack;
+
+        /**
+         * Whether the listener has been asked to perform this transition, and has returned.
+         */
+        private boolean notified;
 
         protected void notifyScreenPopped(@NonNull final Screen<?> screen) {
             if (cancelled) return;
@@ -381,7 +811,93 @@ class TriadImpl implements Triad {
             if (cancelled) return;
             checkState(listener != null, "Listener is null. Be sure to call setListener(Listener).");
 
+            int preparedIndex = preparedScreens.isEmpty() ? -1 : indexOfPrepared(screen);
+            if (preparedIndex >= 0) {
+                /* The listener already received this screen in screenPrepared(). */
+                preparedScreens.remove(preparedIndex);
+                return;
+            }
+
+            /* A listener that defers the creation of the screen reports it itself. */
+            TransitionMetrics metrics = listener instanceof DeferringListener && ((DeferringListener<?>) listener).defersCreate()
+                  ? null
+                  : TriadImpl.this.metrics;
+            long start = metrics != null ? System.nanoTime() : 0;
+
             listener.screenPushed(screen);
+
+            if (metrics != null) {
+                metrics.onPhase(TransitionMetrics.Phase.CREATE, type(), screen.getClass(), start, System.nanoTime());
+            }
+        }
+
+        /**
+         * Notifies the listener of the screens that leave and enter the backstack, as described by given diff.
+         * Screens that are present in both backstacks are left untouched.
+         */
+        protected void notifyChanges(@NonNull final BackstackDiff diff) {
+            for (int i = 0; i < diff.popped.size(); i++) {
+                notifyScreenPopped(diff.popped.get(i).screen);
+            }
+            for (int i = 0; i < diff.pushed.size(); i++) {
+                notifyScreenPushed(diff.pushed.get(i).screen);
+            }
+        }
+
+        /**
+         * Removes the screens the {@link #backstackPolicy} does not retain from the backstack this transition moves to.
+         * Removed screens that were already on the backstack are popped, and removed screens that would have been pushed
+         * are left out of the diff.
+         */
+        private void applyBackstackPolicy(@NonNull final Fold fold, @NonNull final BackstackDiff diff) {
+            BackstackPolicy policy = fold.policy;
+            if (!policy.trims() || fold.backstack == backstack) return;
+
+            Backstack target = fold.backstack;
+            if (policy.singleInstancePerKey()) {
+                target = target.withoutDuplicateKeys(keys, removedEntries);
+            }
+            if (policy.maxDepth() > 0) {
+                target = target.truncate(policy.maxDepth(), removedEntries);
+            }
+            fold.backstack = target;
+
+            for (int i = 0; i < removedEntries.size(); i++) {
+                Backstack.Entry<?> entry = removedEntries.get(i);
+                if (!diff.pushed.remove(entry) && !contains(target, entry.screen)) {
+                    diff.popped.add(entry);
+                }
+            }
+            removedEntries.clear();
+        }
+
+        /**
+         * Discards the screens of given fold that were prepared, but were dropped in favour of an equal screen.
+         */
+        private void discardDropped(@NonNull final Fold fold) {
+            for (int i = 0; i < fold.dropped.size(); i++) {
+                Screen<?> screen = fold.dropped.get(i);
+                if (!cancelled && !contains(fold.backstack, screen)) {
+                    discard(screen);
+                }
+            }
+        }
+
+        /**
+         * Adds the screen that was replaced by itself to given diff if it ends up on top of the backstack unchanged,
+         * so that it is popped and pushed again like any replaced screen.
+         */
+        private void recreateReplacedScreen(@NonNull final Fold fold, @NonNull final BackstackDiff diff) {
+            Backstack.Entry<?> entry = fold.recreated;
+            if (entry == null || fold.backstack.size() == 0 || fold.backstack.current() != entry || !diff.pushed.isEmpty()) return;
+
+            /* The new backstack is shared entirely, so the old entry is at the same height. */
+            Backstack node = backstack;
+            while (node.size() > fold.backstack.size()) {
+                node = checkNotNull(node.rest(), "Backstack rest is null.");
+            }
+            diff.popped.add(node.current());
+            diff.pushed.add(entry);
         }
 
         protected void notifyShow(@NonNull final Backstack backstack) {
@@ -390,6 +906,7 @@ class TriadImpl implements Triad {
 
             this.nextBackstack = backstack;
             listener.forward(nextBackstack.current().screen, null, this);
+            notified = true;
         }
 
         protected void notifyForward(@NonNull final Backstack nextBackstack) {
@@ -398,6 +915,7 @@ class TriadImpl implements Triad {
 
             this.nextBackstack = nextBackstack;
             listener.forward(nextBackstack.current().screen, nextBackstack.current().animator, this);
+            notified = true;
         }
 
         protected void notifyBackward(@NonNull final Backstack nextBackstack, @Nullable final TransitionAnimator animator) {
@@ -407,6 +925,7 @@ class TriadImpl implements Triad {
             this.nextBackstack = nextBackstack;
             if (nextBackstack.size() > 0) {
                 listener.backward(nextBackstack.current().screen, animator, this);
+                notified = true;
             } else {
                 onComplete();
             }
@@ -418,9 +937,85 @@ class TriadImpl implements Triad {
 
             this.nextBackstack = nextBackstack;
             listener.replace(nextBackstack.current().screen, nextBackstack.current().animator, this);
+            notified = true;
+        }
+
+        /**
+         * Applies the effect of this transition to given fold.
+         */
+        protected abstract void fold(@NonNull Fold fold);
+
+        @NonNull
+        @Override
+        public TransitionMetrics.Type type() {
+            return TransitionMetrics.Type.UNKNOWN;
+        }
+
+        protected void execute() {
+            /* A listener may cause another transition to execute while we notify it of pushed and popped screens. */
+            boolean reentrant = executing;
+            executing = true;
+
+            TransitionMetrics metrics = TriadImpl.this.metrics;
+            long start = metrics != null ? System.nanoTime() : 0;
+
+            Fold fold = reentrant ? new Fold(backstack, backstackPolicy) : sharedFold.reset(backstack);
+            BackstackDiff diff = reentrant ? new BackstackDiff() : sharedDiff;
+
+            fold(fold);
+            diff.compute(backstack, fold.backstack);
+            recreateReplacedScreen(fold, diff);
+            applyBackstackPolicy(fold, diff);
+            notifyChanges(diff);
+            discardDropped(fold);
+
+            boolean changed = !diff.isEmpty();
+            Direction direction = changed ? direction(fold, diff) : null;
+            Backstack nextBackstack = fold.backstack;
+            TransitionAnimator animator = fold.animator;
+            boolean show = fold.show;
+
+            if (metrics != null) {
+                Class<?> screenClass = screenClass(nextBackstack);
+                if (requestedAt != 0) {
+                    metrics.onPhase(TransitionMetrics.Phase.QUEUE, type(), screenClass, requestedAt, start);
+                }
+                metrics.onPhase(TransitionMetrics.Phase.EXECUTE, type(), screenClass, start, System.nanoTime());
+            }
+
+            /* Release the shared instances before the listener may complete this transition synchronously. */
+            diff.clear();
+            fold.reset(backstack);
+            if (!reentrant) {
+                executing = false;
+            }
+
+            if (direction == null) {
+                if (show) {
+                    notifyShow(nextBackstack);
+                } else {
+                    onComplete();
+                }
+                return;
+            }
+
+            switch (direction) {
+                case FORWARD:
+                    notifyForward(nextBackstack);
+                    break;
+                case BACKWARD:
+                    notifyBackward(nextBackstack, animator);
+                    break;
+                case REPLACE:
+                    notifyReplace(nextBackstack);
+                    break;
+            }
         }
 
-        protected abstract void execute();
+        @NonNull
+        protected Direction direction(@NonNull final Fold fold, @NonNull final BackstackDiff diff) {
+            return fold.direction;
+        }
 
         @Override
         public void onComplete() {
@@ -433,10 +1028,39 @@ class TriadImpl implements Triad {
             }
 
             finished = true;
+
+            TransitionMetrics metrics = TriadImpl.this.metrics;
+            if (metrics != null && requestedAt != 0) {
+                metrics.onPhase(TransitionMetrics.Phase.TRANSITION, type(), screenClass(backstack), requestedAt, System.nanoTime());
+            }
+
+            Transition next = pollQueue();
             if (next != null) {
                 transition = next;
-                transition.execute();
+                recycle();
+                next.execute();
             }
+
+            publishSnapshot();
+        }
+
+        /**
+         * Prepares this pooled transition to be executed again.
+         */
+        void reuse() {
+            requestedAt = 0;
+            finished = false;
+            cancelled = false;
+            notified = false;
+            next = null;
+            nextBackstack = null;
+        }
+
+        /**
+         * Called when this finished transition is no longer referenced by Triad,
+         * giving it a chance to return itself to a pool.
+         */
+        protected void recycle() {
         }
 
         public boolean isFinished() {
@@ -444,7 +1068,26 @@ class TriadImpl implements Triad {
         }
 
         public void cancel() {
+            if (cancelled) return;
+
             cancelled = true;
+
+            /* Only notify the listener if it was asked to perform this transition. */
+            if (nextBackstack != null && !finished && listener instanceof CancellationListener) {
+                ((CancellationListener<?>) listener).transitionCancelled(this);
+            }
+        }
+
+        /**
+         * Stops this running transition in favor of a new transition, and applies its backstack as if it had completed.
+         */
+        void interrupt() {
+            cancelled = true;
+            if (nextBackstack != null) {
+                backstack = nextBackstack;
+            }
+
+            ((InterruptibleListener<?>) checkNotNull(listener, "Listener is null.")).transitionInterrupted(this);
         }
 
         public boolean isCancelled() {
@@ -459,20 +1102,302 @@ class TriadImpl implements Triad {
         public abstract Transition copy();
     }
 
-    private class GoBackTransition extends Transition {
+    /**
+     * Folds a chain of queued transitions into a single backstack change.
+     * <p>
+     * Screens that are pushed and popped again within the chain are never notified,
+     * and only the net result is shown to the listener.
+     */
+    private class CoalescedTransition extends Transition {
+
+        @NonNull
+        protected final Transition first;
+
+        private CoalescedTransition(@NonNull final Transition first) {
+            this.first = first;
+        }
 
         @Override
-        public void execute() {
-            if (backstack.size() > 0) {
-                Backstack.Builder builder = backstack.buildUpon();
-                Backstack.Entry<?> entry = checkNotNull(builder.pop(), "Popped entry is null.");
-                Backstack newBackstack = builder.build();
+        protected void fold(@NonNull final Fold fold) {
+            for (Transition transition = first; transition != null; transition = transition.next) {
+                transition.fold(fold);
+            }
+        }
+
+        @NonNull
+        @Override
+        protected Direction direction(@NonNull final Fold fold, @NonNull final BackstackDiff diff) {
+            return netDirection(fold, diff);
+        }
+
+        @NonNull
+        @Override
+        public TransitionMetrics.Type type() {
+            return TransitionMetrics.Type.COALESCED;
+        }
+
+        @Override
+        public Transition copy() {
+            return new CoalescedTransition(first);
+        }
+    }
+
+    /**
+     * Applies all operations of a {@link Transaction} as a single backstack change.
+     */
+    private class TransactionTransition extends CoalescedTransition {
+
+        @Nullable
+        private final Direction direction;
+
+        private TransactionTransition(@NonNull final Transition first, @Nullable final Direction direction) {
+            super(first);
+            this.direction = direction;
+        }
+
+        @Override
+        protected void fold(@NonNull final Fold fold) {
+            super.fold(fold);
+
+            if (direction != null) {
+                fold.direction = direction;
+            }
+        }
+
+        @NonNull
+        @Override
+        protected Direction direction(@NonNull final Fold fold, @NonNull final BackstackDiff diff) {
+            if (direction == null) {
+                return super.direction(fold, diff);
+            }
+
+            if (direction == Direction.BACKWARD && fold.animator == null && !diff.popped.isEmpty()) {
+                fold.animator = diff.popped.get(0).animator;
+            }
+            return direction;
+        }
 
-                notifyScreenPopped(entry.screen);
-                notifyBackward(newBackstack, entry.animator);
+        @NonNull
+        @Override
+        public TransitionMetrics.Type type() {
+            return TransitionMetrics.Type.TRANSACTION;
+        }
+
+        @Override
+        public Transition copy() {
+            return new TransactionTransition(first, direction);
+        }
+    }
+
+    private class TransactionImpl implements Transaction {
+
+        @Nullable
+        private Transition first;
+
+        @Nullable
+        private Transition last;
+
+        private boolean committed;
+
+        @NonNull
+        @Override
+        public Transaction goTo(@NonNull final Screen<?> screen) {
+            return goTo(screen, null);
+        }
+
+        @NonNull
+        @Override
+        public Transaction goTo(@NonNull final Screen<?> screen, @Nullable final TransitionAnimator animator) {
+            return add(new GoToTransition(screen, animator));
+        }
+
+        @NonNull
+        @Override
+        public Transaction popTo(@NonNull final Screen<?> screen) {
+            return popTo(screen, null);
+        }
+
+        @NonNull
+        @Override
+        public Transaction popTo(@NonNull final Screen<?> screen, @Nullable final TransitionAnimator animator) {
+            return add(new PopToTransition(screen, animator));
+        }
+
+        @NonNull
+        @Override
+        public Transaction replaceWith(@NonNull final Screen<?> screen) {
+            return replaceWith(screen, null);
+        }
+
+        @NonNull
+        @Override
+        public Transaction replaceWith(@NonNull final Screen<?> screen, @Nullable final TransitionAnimator animator) {
+            return add(new ReplaceWithTransition(screen, animator));
+        }
+
+        @NonNull
+        @Override
+        public Transaction goBack() {
+            return add(new GoBackTransition());
+        }
+
+        @NonNull
+        @Override
+        public Transaction set(@NonNull final Backstack backstack) {
+            return add(new ForwardTransition(backstack));
+        }
+
+        @NonNull
+        private Transaction add(@NonNull final Transition transition) {
+            checkState(!committed, "Transaction has already been committed.");
+
+            if (last == null) {
+                first = transition;
             } else {
-                onComplete();
+                last.next = transition;
+            }
+            last = transition;
+
+            return this;
+        }
+
+        @Override
+        public void commit() {
+            commit(null);
+        }
+
+        @Override
+        public void commit(@Nullable final Direction direction) {
+            checkState(!committed, "Transaction has already been committed.");
+            committed = true;
+
+            if (first == null) return;
+
+            checkState(backstack.size() > 0 || transition != null, "Use startWith(Screen) to show your first Screen.");
+            move(new TransactionTransition(first, direction));
+        }
+    }
+
+    /**
+     * A transition that moves to a backstack that was folded ahead of time, see {@link #collapseQueue()}.
+     */
+    private class FoldedTransition extends Transition {
+
+        @NonNull
+        private final Backstack target;
+
+        @NonNull
+        private final Direction direction;
+
+        @Nullable
+        private final TransitionAnimator animator;
+
+        private final boolean show;
+
+        @Nullable
+        private final Backstack.Entry<?> recreated;
+
+        @NonNull
+        private final ArrayList<Screen<?>> dropped;
+
+        private FoldedTransition(@NonNull final Fold fold) {
+            this(fold.backstack, fold.direction, fold.animator, fold.show, fold.recreated, new ArrayList<>(fold.dropped));
+        }
+
+        private FoldedTransition(
+              @NonNull final Backstack target,
+              @NonNull final Direction direction,
+              @Nullable final TransitionAnimator animator,
+              final boolean show,
+              @Nullable final Backstack.Entry<?> recreated,
+              @NonNull final ArrayList<Screen<?>> dropped
+        ) {
+            this.target = target;
+            this.direction = direction;
+            this.animator = animator;
+            this.show = show;
+            this.recreated = recreated;
+            this.dropped = dropped;
+        }
+
+        @Override
+        protected void fold(@NonNull final Fold fold) {
+            fold.backstack = target;
+            fold.direction = direction;
+            fold.animator = animator;
+            fold.show |= show;
+            if (recreated != null) {
+                fold.recreated = recreated;
             }
+            fold.dropped.addAll(dropped);
+        }
+
+        @NonNull
+        @Override
+        protected Direction direction(@NonNull final Fold fold, @NonNull final BackstackDiff diff) {
+            return netDirection(fold, diff);
+        }
+
+        @NonNull
+        @Override
+        public TransitionMetrics.Type type() {
+            return TransitionMetrics.Type.COALESCED;
+        }
+
+        @Override
+        public Transition copy() {
+            return new FoldedTransition(target, direction, animator, show, recreated, dropped);
+        }
+    }
+
+    @Nullable
+    private static Class<?> screenClass(@NonNull final Backstack backstack) {
+        return backstack.size() > 0 ? backstack.current().screen.getClass() : null;
+    }
+
+    /**
+     * A net change that only pops or only pushes screens moves in that direction, regardless
+     * of the transitions it was built from. Otherwise, the last transition determines the direction.
+     */
+    @NonNull
+    private static Direction netDirection(@NonNull final Fold fold, @NonNull final BackstackDiff diff) {
+        if (diff.pushed.isEmpty()) {
+            if (fold.direction != Direction.BACKWARD) {
+                fold.animator = diff.popped.get(0).animator;
+            }
+            return Direction.BACKWARD;
+        }
+
+        if (diff.popped.isEmpty()) {
+            return Direction.FORWARD;
+        }
+
+        return fold.direction;
+    }
+
+    private class GoBackTransition extends Transition {
+
+        @Override
+        protected void fold(@NonNull final Fold fold) {
+            if (fold.backstack.size() > 0) {
+                fold.animator = fold.backstack.current().animator;
+                fold.backstack = checkNotNull(fold.backstack.rest(), "Backstack rest is null.");
+                fold.direction = Direction.BACKWARD;
+            }
+        }
+
+        @Override
+        protected void recycle() {
+            if (goBackPool == null) {
+                next = null;
+                goBackPool = this;
+            }
+        }
+
+        @NonNull
+        @Override
+        public TransitionMetrics.Type type() {
+            return TransitionMetrics.Type.GO_BACK;
         }
 
         @Override
@@ -495,15 +1420,20 @@ class TriadImpl implements Triad {
         }
 
         @Override
-        public void execute() {
-            Backstack.Builder builder = backstack.buildUpon();
-            Backstack.Entry<?> entry = checkNotNull(builder.pop(), "Popped entry is null");
-            builder.push(screen, animator);
-            Backstack newBackstack = builder.build();
+        protected void fold(@NonNull final Fold fold) {
+            Backstack.Builder builder = fold.backstack.buildUpon();
+            Backstack.Entry<?> entry = builder.pop();
+            fold.backstack = builder.push(screen, animator).build();
+            fold.direction = Direction.REPLACE;
+            if (entry.screen == screen) {
+                fold.recreated = fold.backstack.current();
+            }
+        }
 
-            notifyScreenPopped(entry.screen);
-            notifyScreenPushed(screen);
-            notifyReplace(newBackstack);
+        @NonNull
+        @Override
+        public TransitionMetrics.Type type() {
+            return TransitionMetrics.Type.REPLACE_WITH;
         }
 
         @Override
@@ -522,15 +1452,15 @@ class TriadImpl implements Triad {
         }
 
         @Override
-        public void execute() {
-            for (Screen<?> screen : backstack) {
-                notifyScreenPopped(screen);
-            }
-            for (Iterator<Screen<?>> it = newBackstack.reverseIterator(); it.hasNext(); ) {
-                notifyScreenPushed(it.next());
-            }
+        protected void fold(@NonNull final Fold fold) {
+            fold.backstack = newBackstack;
+            fold.direction = Direction.FORWARD;
+        }
 
-            notifyForward(newBackstack);
+        @NonNull
+        @Override
+        public TransitionMetrics.Type type() {
+            return TransitionMetrics.Type.FORWARD;
         }
 
         @Override
@@ -553,55 +1483,37 @@ class TriadImpl implements Triad {
         }
 
         @Override
-        public void execute() {
-            if (backstack.current().screen.equals(screen)) {
-                onComplete();
+        protected void fold(@NonNull final Fold fold) {
+            if (fold.backstack.size() > 0 && fold.backstack.current().screen.equals(screen)) {
                 return;
             }
 
-            Backstack.Builder builder = backstack.buildUpon();
-            Backstack.Builder poppedScreens = Backstack.emptyBuilder();
-            int count = 0;
             // Take care to leave the original screen instance on the stack, if we find it.  This enables
             // some arguably bad behavior on the part of clients, but it's still probably the right thing
             // to do.
-            for (Iterator<Backstack.Entry<?>> it = backstack.reverseEntryIterator(); it.hasNext(); ) {
-                Screen<?> screen = it.next().screen;
-
-                if (screen.equals(this.screen)) {
-                    // Clear up to the target screen.
-                    for (int i = 0; i < backstack.size() - count; i++) {
-                        Backstack.Entry<?> entry = builder.pop();
-                        if (entry != null) {
-                            poppedScreens.push(entry);
-                        }
-                    }
-                    break;
-                } else {
-                    count++;
+            Backstack target = null;
+            for (Backstack node = fold.backstack; node.size() > 0; node = node.rest()) {
+                if (node.current().screen.equals(screen)) {
+                    // Keep looking: we pop to the lowest occurrence of the screen.
+                    target = node;
                 }
             }
 
-            Backstack newBackstack;
-            Backstack poppedBackstack = poppedScreens.build();
-            if (poppedBackstack.size() != 0) {
-                for (Iterator<Backstack.Entry<?>> it = poppedBackstack.reverseEntryIterator(); it.hasNext(); ) {
-                    Backstack.Entry<?> entry = it.next();
-                    notifyScreenPopped(entry.screen);
-                }
-
-                builder.push(poppedBackstack.current());
-                newBackstack = builder.build();
-                notifyBackward(newBackstack, animator);
+            if (target != null) {
+                fold.backstack = target;
+                fold.direction = Direction.BACKWARD;
+                fold.animator = animator;
             } else {
-                notifyScreenPushed(screen);
-
-                builder.push(screen, animator);
-                newBackstack = builder.build();
-                notifyForward(newBackstack);
+                fold.push(screen, animator);
             }
         }
 
+        @NonNull
+        @Override
+        public TransitionMetrics.Type type() {
+            return TransitionMetrics.Type.POP_TO;
+        }
+
         @Override
         public Transition copy() {
             return new PopToTransition(screen, animator);
@@ -611,8 +1523,14 @@ class TriadImpl implements Triad {
     private class ShowTransition extends Transition {
 
         @Override
-        public void execute() {
-            notifyShow(backstack);
+        protected void fold(@NonNull final Fold fold) {
+            fold.show = true;
+        }
+
+        @NonNull
+        @Override
+        public TransitionMetrics.Type type() {
+            return TransitionMetrics.Type.SHOW_CURRENT;
         }
 
         @Override
@@ -635,10 +1553,16 @@ class TriadImpl implements Triad {
         }
 
         @Override
-        public void execute() {
-            Backstack newBackstack = Backstack.single(screen, animator);
-            notifyScreenPushed(screen);
-            notifyForward(newBackstack);
+        protected void fold(@NonNull final Fold fold) {
+            if (fold.backstack.size() == 0) {
+                fold.push(screen, animator);
+            }
+        }
+
+        @NonNull
+        @Override
+        public TransitionMetrics.Type type() {
+            return TransitionMetrics.Type.START_WITH;
         }
 
         @Override
@@ -657,11 +1581,17 @@ class TriadImpl implements Triad {
         }
 
         @Override
-        public void execute() {
-            for (Iterator<Screen<?>> iterator = backstack.reverseIterator(); iterator.hasNext(); ) {
-                notifyScreenPushed(iterator.next());
+        protected void fold(@NonNull final Fold fold) {
+            if (fold.backstack.size() == 0) {
+                fold.backstack = backstack;
+                fold.direction = Direction.FORWARD;
             }
-            notifyForward(backstack);
+        }
+
+        @NonNull
+        @Override
+        public TransitionMetrics.Type type() {
+            return TransitionMetrics.Type.START_WITH;
         }
 
         @Override
@@ -672,11 +1602,17 @@ class TriadImpl implements Triad {
 
     private class GoToTransition extends Transition {
 
-        @NonNull
-        private final Screen<?> screen;
+        /**
+         * Only null while this transition is pooled.
+         */
+        @Nullable
+        private Screen<?> screen;
 
         @Nullable
-        private final TransitionAnimator animator;
+        private TransitionAnimator animator;
+
+        private GoToTransition() {
+        }
 
         private GoToTransition(@NonNull final Screen<?> screen, @Nullable final TransitionAnimator animator) {
             this.screen = screen;
@@ -684,15 +1620,29 @@ class TriadImpl implements Triad {
         }
 
         @Override
-        public void execute() {
-            Backstack newBackstack = backstack.buildUpon().push(screen, animator).build();
-            notifyScreenPushed(screen);
-            notifyForward(newBackstack);
+        protected void fold(@NonNull final Fold fold) {
+            fold.push(checkNotNull(screen, "Screen is null."), animator);
+        }
+
+        @Override
+        protected void recycle() {
+            if (goToPool == null) {
+                screen = null;
+                animator = null;
+                next = null;
+                goToPool = this;
+            }
+        }
+
+        @NonNull
+        @Override
+        public TransitionMetrics.Type type() {
+            return TransitionMetrics.Type.GO_TO;
         }
 
         @Override
         public Transition copy() {
-            return new GoToTransition(screen, animator);
+            return new GoToTransition(checkNotNull(screen, "Screen is null."), animator);
         }
     }
 
@@ -706,15 +1656,16 @@ class TriadImpl implements Triad {
         }
 
         @Override
-        public void execute() {
-            for (Screen<?> screen : backstack) {
-                notifyScreenPopped(screen);
-            }
-            for (Iterator<Screen<?>> it = newBackstack.reverseIterator(); it.hasNext(); ) {
-                notifyScreenPushed(it.next());
-            }
+        protected void fold(@NonNull final Fold fold) {
+            fold.backstack = newBackstack;
+            fold.direction = Direction.BACKWARD;
+            fold.animator = null;
+        }
 
-            notifyBackward(newBackstack, null);
+        @NonNull
+        @Override
+        public TransitionMetrics.Type type() {
+            return TransitionMetrics.Type.BACKWARD;
         }
 
         @Override
@@ -733,15 +1684,15 @@ class TriadImpl implements Triad {
         }
 
         @Override
-        public void execute() {
-            for (Screen<?> screen : backstack) {
-                notifyScreenPopped(screen);
-            }
-            for (Iterator<Screen<?>> it = newBackstack.reverseIterator(); it.hasNext(); ) {
-                notifyScreenPushed(it.next());
-            }
+        protected void fold(@NonNull final Fold fold) {
+            fold.backstack = newBackstack;
+            fold.direction = Direction.REPLACE;
+        }
 
-            notifyReplace(newBackstack);
+        @NonNull
+        @Override
+        public TransitionMetrics.Type type() {
+            return TransitionMetrics.Type.REPLACE;
         }
 
         @Override
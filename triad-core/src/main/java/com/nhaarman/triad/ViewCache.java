@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+import java.util.ArrayList;
+
+import static com.nhaarman.triad.Preconditions.checkArgument;
+
+/**
+ * A least-recently-used cache of detached views, keyed by the identity of their {@link Screen}.
+ * <p>
+ * The cache is bounded both by number of views and by an estimate of their memory usage.
+ * Since the cache only holds views for screens near the top of the backstack, lookups are linear.
+ */
+final class ViewCache {
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final int maxViews;
+
+    private final long maxBytes;
+
+    /**
+     * Ordered from least to most recently used.
+     */
+    @NonNull
+    private final ArrayList<Entry> entries = new ArrayList<>();
+
+    private long bytes;
+
+    ViewCache(final int maxViews, final long maxBytes) {
+        checkArgument(maxViews > 0, "maxViews must be positive, but was %d.", maxViews);
+        checkArgument(maxBytes > 0, "maxBytes must be positive, but was %d.", maxBytes);
+
+        this.maxViews = maxViews;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Adds given view for given screen, evicting the least recently used views if the cache becomes too large.
+     * Views that have a parent are not cached.
+     */
+    void put(@NonNull final Screen<?> screen, @NonNull final View view) {
+        if (view.getParent() != null) return;
+
+        remove(screen);
+
+        long size = sizeOf(view);
+        if (size > maxBytes) return;
+
+        entries.add(new Entry(screen, view, size));
+        bytes += size;
+
+        while (entries.size() > maxViews || bytes > maxBytes) {
+            removeAt(0);
+        }
+    }
+
+    /**
+     * Removes and returns the view cached for given screen, if any.
+     */
+    @Nullable
+    View take(@NonNull final Screen<?> screen) {
+        int index = indexOf(screen);
+        if (index < 0) return null;
+
+        return removeAt(index).view;
+    }
+
+    void remove(@NonNull final Screen<?> screen) {
+        int index = indexOf(screen);
+        if (index >= 0) {
+            removeAt(index);
+        }
+    }
+
+    /**
+     * Evicts the least recently used view, if any.
+     *
+     * @return The estimated memory used by the evicted view, or 0 if the cache is empty.
+     */
+    long evictLeastRecentlyUsed() {
+        return entries.isEmpty() ? 0 : removeAt(0).bytes;
+    }
+
+    /**
+     * Returns the estimated memory used by the view cached for given screen, or 0 if there is none.
+     */
+    long bytesOf(@NonNull final Screen<?> screen) {
+        int index = indexOf(screen);
+        return index < 0 ? 0 : entries.get(index).bytes;
+    }
+
+    void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    private int indexOf(@NonNull final Screen<?> screen) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).screen == screen) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @NonNull
+    private Entry removeAt(final int index) {
+        Entry entry = entries.remove(index);
+        bytes -= entry.bytes;
+        return entry;
+    }
+
+    /**
+     * Estimates the memory used by given view by the size of a bitmap it would be drawn into.
+     */
+    private static long sizeOf(@NonNull final View view) {
+        return estimateBytes(view.getWidth(), view.getHeight());
+    }
+
+    /**
+     * Estimates the memory used by a view of given dimensions by the size of a bitmap it would be drawn into.
+     */
+    static long estimateBytes(final int width, final int height) {
+        return Math.max(1L, (long) width * height * BYTES_PER_PIXEL);
+    }
+
+    private static class Entry {
+
+        @NonNull
+        private final Screen<?> screen;
+
+        @NonNull
+        private final View view;
+
+        private final long bytes;
+
+        private Entry(@NonNull final Screen<?> screen, @NonNull final View view, final long bytes) {
+            this.screen = screen;
+            this.view = view;
+            this.bytes = bytes;
+        }
+    }
+}
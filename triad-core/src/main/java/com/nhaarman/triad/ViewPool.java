@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad;
+
+import android.support.annotation.LayoutRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+import java.util.ArrayList;
+
+import static com.nhaarman.triad.Preconditions.checkArgument;
+
+/**
+ * A pool of detached views that can be reused by any {@link Screen} with the same layout, keyed by layout resource id.
+ * <p>
+ * Unlike {@link ViewCache}, views in the pool do not belong to a specific screen.
+ * Since an application uses a limited number of layouts, lookups are linear.
+ */
+final class ViewPool {
+
+    private final int maxViewsPerLayout;
+
+    @NonNull
+    private final ArrayList<Scrap> scraps = new ArrayList<>();
+
+    ViewPool(final int maxViewsPerLayout) {
+        checkArgument(maxViewsPerLayout > 0, "maxViewsPerLayout must be positive, but was %d.", maxViewsPerLayout);
+
+        this.maxViewsPerLayout = maxViewsPerLayout;
+    }
+
+    /**
+     * Adds given view to the pool for given layout, unless the pool for that layout is full.
+     * Views that have a parent are not added.
+     */
+    void put(@LayoutRes final int layoutResId, @NonNull final View view) {
+        if (view.getParent() != null) return;
+
+        ArrayList<View> views = scrapFor(layoutResId).views;
+        if (views.size() < maxViewsPerLayout && !views.contains(view)) {
+            views.add(view);
+        }
+    }
+
+    /**
+     * Removes and returns a view for given layout, if any.
+     */
+    @Nullable
+    View take(@LayoutRes final int layoutResId) {
+        ArrayList<View> views = scrapFor(layoutResId).views;
+        return views.isEmpty() ? null : views.remove(views.size() - 1);
+    }
+
+    void clear() {
+        scraps.clear();
+    }
+
+    /**
+     * Returns the number of pooled views for given layout.
+     */
+    int size(@LayoutRes final int layoutResId) {
+        return scrapFor(layoutResId).views.size();
+    }
+
+    @NonNull
+    private Scrap scrapFor(@LayoutRes final int layoutResId) {
+        for (int i = 0; i < scraps.size(); i++) {
+            Scrap scrap = scraps.get(i);
+            if (scrap.layoutResId == layoutResId) {
+                return scrap;
+            }
+        }
+
+        Scrap scrap = new Scrap(layoutResId);
+        scraps.add(scrap);
+        return scrap;
+    }
+
+    private static class Scrap {
+
+        @LayoutRes
+        private final int layoutResId;
+
+        @NonNull
+        private final ArrayList<View> views = new ArrayList<>();
+
+        private Scrap(@LayoutRes final int layoutResId) {
+            this.layoutResId = layoutResId;
+        }
+    }
+}
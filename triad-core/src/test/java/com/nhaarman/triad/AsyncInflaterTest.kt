@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad
+
+import android.os.Handler
+import android.view.LayoutInflater
+import android.view.View
+import android.view.ViewGroup
+import com.nhaarman.expect.expect
+import com.nhaarman.mockito_kotlin.any
+import com.nhaarman.mockito_kotlin.mock
+import com.nhaarman.mockito_kotlin.never
+import com.nhaarman.mockito_kotlin.verify
+import com.nhaarman.mockito_kotlin.whenever
+import org.junit.Test
+
+class AsyncInflaterTest {
+
+    private val backgroundQueue = mutableListOf<Runnable>()
+
+    private val mainQueue = mutableListOf<Runnable>()
+
+    private val inflater = mock<LayoutInflater>()
+
+    private val asyncInflater = AsyncInflater(inflater, queueingHandler(backgroundQueue), queueingHandler(mainQueue))
+
+    private val parent = mock<ViewGroup>()
+
+    private val callback = mock<AsyncInflater.Callback>()
+
+    @Test
+    fun canInflate_defaultCreateView_returnsTrue() {
+        expect(asyncInflater.canInflate(TestScreen())).toBe(true)
+    }
+
+    @Test
+    fun canInflate_overriddenCreateView_returnsFalse() {
+        expect(asyncInflater.canInflate(OverridingScreen())).toBe(false)
+    }
+
+    @Test
+    fun canInflate_inflatesOnMainThread_returnsFalse() {
+        expect(asyncInflater.canInflate(MainThreadScreen())).toBe(false)
+    }
+
+    @Test
+    fun inflate_createsViewInBackground_andDeliversItOnMainThread() {
+        /* Given */
+        val screen = TestScreen()
+        asyncInflater.inflate(screen, parent, callback)
+
+        /* When */
+        run(backgroundQueue)
+
+        /* Then */
+        expect(screen.inflater).toBeTheSameAs(inflater)
+        verify(callback, never()).onInflated(any())
+
+        run(mainQueue)
+        verify(callback).onInflated(screen.view)
+    }
+
+    @Test
+    fun inflate_failingInBackground_createsViewOnMainThread() {
+        /* Given */
+        val screen = OverridingScreen()
+        screen.failsInBackground = true
+        asyncInflater.inflate(screen, parent, callback)
+
+        /* When */
+        run(backgroundQueue)
+        run(mainQueue)
+
+        /* Then */
+        verify(callback).onInflated(screen.mainThreadView)
+    }
+
+    @Test
+    fun cancel_beforeInflation_doesNotCreateView() {
+        /* Given */
+        val screen = TestScreen()
+        val request = asyncInflater.inflate(screen, parent, callback)
+
+        /* When */
+        request.cancel()
+        run(backgroundQueue)
+        run(mainQueue)
+
+        /* Then */
+        expect(screen.inflater).toBeNull()
+        verify(callback, never()).onInflated(any())
+    }
+
+    @Test
+    fun cancel_beforeDelivery_doesNotNotifyCallback() {
+        /* Given */
+        val request = asyncInflater.inflate(TestScreen(), parent, callback)
+        run(backgroundQueue)
+
+        /* When */
+        request.cancel()
+        run(mainQueue)
+
+        /* Then */
+        verify(callback, never()).onInflated(any())
+    }
+
+    private fun queueingHandler(queue: MutableList<Runnable>): Handler {
+        val handler = mock<Handler>()
+        whenever(handler.post(any())).thenAnswer {
+            queue += it.arguments[0] as Runnable
+            true
+        }
+        return handler
+    }
+
+    private fun run(queue: MutableList<Runnable>) {
+        val runnables = queue.toList()
+        queue.clear()
+        runnables.forEach { it.run() }
+    }
+
+    /**
+     * A screen that only overrides the inflater variant of createView, and can thus be inflated in the background.
+     */
+    private open class TestScreen : Screen<Any>() {
+
+        override val layoutResId = 0
+
+        override val presenter: Presenter<*>
+            get() = throw UnsupportedOperationException()
+
+        val view = mock<View>()
+
+        var inflater: LayoutInflater? = null
+
+        override fun createView(parent: ViewGroup, inflater: LayoutInflater): View {
+            this.inflater = inflater
+            return view
+        }
+
+        override fun attach(root: ViewGroup) {}
+
+        override fun detach() {}
+    }
+
+    private class OverridingScreen : TestScreen() {
+
+        val mainThreadView = mock<View>()
+
+        var failsInBackground = false
+
+        override fun createView(parent: ViewGroup) = mainThreadView
+
+        override fun createView(parent: ViewGroup, inflater: LayoutInflater): View {
+            if (failsInBackground) throw IllegalStateException("Requires a Looper.")
+            return super.createView(parent, inflater)
+        }
+    }
+
+    private class MainThreadScreen : TestScreen() {
+
+        override val inflatesOnMainThread = true
+    }
+}
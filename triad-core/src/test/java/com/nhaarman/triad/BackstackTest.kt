@@ -0,0 +1,233 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad
+
+import com.nhaarman.expect.expect
+import com.nhaarman.mockito_kotlin.mock
+import com.nhaarman.mockito_kotlin.whenever
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.CoreMatchers.sameInstance
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+
+class BackstackTest {
+
+    private val screen1 = mock<Screen<Any>>()
+    private val screen2 = mock<Screen<Any>>()
+    private val screen3 = mock<Screen<Any>>()
+
+    @Test
+    fun emptyBuilder_build_isEmpty() {
+        /* When */
+        val backstack = Backstack.emptyBuilder().build()
+
+        /* Then */
+        assertThat(backstack.size(), `is`(0))
+        assertThat(backstack.iterator().hasNext(), `is`(false))
+        assertThat(backstack.reverseIterator().hasNext(), `is`(false))
+    }
+
+    @Test
+    fun of_iterator_iteratesFromTopToBottom() {
+        /* Given */
+        val backstack = Backstack.of(screen1, screen2, screen3)
+
+        /* When */
+        val screens = backstack.iterator().asSequence().toList()
+
+        /* Then */
+        expect(screens).toBe(listOf(screen3, screen2, screen1))
+    }
+
+    @Test
+    fun of_reverseIterator_iteratesFromBottomToTop() {
+        /* Given */
+        val backstack = Backstack.of(screen1, screen2, screen3)
+
+        /* When */
+        val screens = backstack.reverseIterator().asSequence().toList()
+
+        /* Then */
+        expect(screens).toBe(listOf(screen1, screen2, screen3))
+    }
+
+    @Test
+    fun buildUpon_push_doesNotModifyOriginal() {
+        /* Given */
+        val backstack = Backstack.of(screen1, screen2)
+
+        /* When */
+        val newBackstack = backstack.buildUpon().push(screen3).build()
+
+        /* Then */
+        assertThat(backstack.size(), `is`(2))
+        expect(backstack.current<Any>().screen).toBe(screen2)
+        assertThat(newBackstack.size(), `is`(3))
+        expect(newBackstack.current<Any>().screen).toBe(screen3)
+    }
+
+    @Test
+    fun buildUpon_pop_doesNotModifyOriginal() {
+        /* Given */
+        val backstack = Backstack.of(screen1, screen2)
+
+        /* When */
+        val builder = backstack.buildUpon()
+        val entry = builder.pop()
+        val newBackstack = builder.build()
+
+        /* Then */
+        expect(entry.screen).toBe(screen2)
+        assertThat(backstack.size(), `is`(2))
+        assertThat(newBackstack.size(), `is`(1))
+        expect(newBackstack.current<Any>().screen).toBe(screen1)
+    }
+
+    @Test
+    fun buildUpon_pushAndPop_returnsSharedSnapshot() {
+        /* Given */
+        val backstack = Backstack.of(screen1, screen2)
+
+        /* When */
+        val builder = backstack.buildUpon().push(screen3)
+        builder.pop()
+        val newBackstack = builder.build()
+
+        /* Then */
+        assertThat(newBackstack, `is`(sameInstance(backstack)))
+    }
+
+    @Test(expected = NoSuchElementException::class)
+    fun pop_emptyBackstack_throwsNoSuchElementException() {
+        /* Given */
+        val builder = Backstack.emptyBuilder()
+
+        /* When */
+        builder.pop()
+    }
+
+    @Test
+    fun truncate_keepsTopEntries() {
+        /* Given */
+        val backstack = Backstack.of(screen1, screen2, screen3)
+        val removed = mutableListOf<Backstack.Entry<*>>()
+
+        /* When */
+        val truncated = backstack.truncate(2, removed)
+
+        /* Then */
+        expect(truncated.iterator().asSequence().toList()).toBe(listOf(screen3, screen2))
+        expect(removed.map { it.screen }).toBe(listOf(screen1))
+        assertThat(backstack.size(), `is`(3))
+    }
+
+    @Test
+    fun truncate_smallBackstack_returnsSameInstance() {
+        /* Given */
+        val backstack = Backstack.of(screen1, screen2)
+        val removed = mutableListOf<Backstack.Entry<*>>()
+
+        /* When */
+        val truncated = backstack.truncate(2, removed)
+
+        /* Then */
+        assertThat(truncated, `is`(sameInstance(backstack)))
+        assertThat(removed.isEmpty(), `is`(true))
+    }
+
+    @Test
+    fun truncate_rest_leavesOutRemovedEntries() {
+        /* Given */
+        val screen4 = mock<Screen<Any>>()
+        val backstack = Backstack.of(screen1, screen2, screen3, screen4)
+
+        /* When */
+        val truncated = backstack.truncate(3, mutableListOf())
+
+        /* Then */
+        val rest = truncated.rest()!!
+        expect(rest.iterator().asSequence().toList()).toBe(listOf(screen3, screen2))
+        expect(rest.rest()!!.iterator().asSequence().toList()).toBe(listOf(screen2))
+        assertThat(rest.rest()!!.rest()!!.size(), `is`(0))
+        expect(truncated.reverseIterator().asSequence().toList()).toBe(listOf(screen2, screen3, screen4))
+    }
+
+    @Test
+    fun truncate_pop_stopsAtRetainedEntries() {
+        /* Given */
+        val backstack = Backstack.of(screen1, screen2, screen3)
+        val builder = backstack.truncate(2, mutableListOf()).buildUpon()
+
+        /* When */
+        builder.pop()
+        builder.pop()
+
+        /* Then */
+        assertThat(builder.build().size(), `is`(0))
+        assertThat(builder.build().iterator().hasNext(), `is`(false))
+    }
+
+    @Test
+    fun truncate_afterEachPush_removesOldestEntryEachTime() {
+        /* Given */
+        val screens = List(10) { mock<Screen<Any>>() }
+        var backstack = Backstack.emptyBuilder().build()
+        val removed = mutableListOf<Backstack.Entry<*>>()
+
+        /* When */
+        for (screen in screens) {
+            backstack = backstack.push(screen, null).truncate(3, removed)
+        }
+
+        /* Then */
+        expect(backstack.iterator().asSequence().toList()).toBe(screens.takeLast(3).reversed())
+        expect(removed.map { it.screen }).toBe(screens.take(7))
+        assertThat(backstack.size(), `is`(3))
+    }
+
+    @Test
+    fun withoutDuplicateKeys_removesLowerEntriesWithSameKey() {
+        /* Given */
+        whenever(screen1.key).thenReturn("a")
+        whenever(screen3.key).thenReturn("a")
+        val backstack = Backstack.of(screen1, screen2, screen3)
+        val removed = mutableListOf<Backstack.Entry<*>>()
+        val keys = mutableSetOf<Any>()
+
+        /* When */
+        val result = backstack.withoutDuplicateKeys(keys, removed)
+
+        /* Then */
+        expect(result.iterator().asSequence().toList()).toBe(listOf(screen3, screen2))
+        expect(removed.map { it.screen }).toBe(listOf(screen1))
+        assertThat(keys.isEmpty(), `is`(true))
+    }
+
+    @Test
+    fun withoutDuplicateKeys_screensWithoutKeys_returnsSameInstance() {
+        /* Given */
+        val backstack = Backstack.of(screen1, screen2, screen3)
+        val removed = mutableListOf<Backstack.Entry<*>>()
+
+        /* When */
+        val result = backstack.withoutDuplicateKeys(mutableSetOf(), removed)
+
+        /* Then */
+        assertThat(result, `is`(sameInstance(backstack)))
+        assertThat(removed.isEmpty(), `is`(true))
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad
+
+import android.content.Context
+import android.content.res.Resources
+import android.view.View
+import android.view.ViewGroup
+import android.view.ViewPropertyAnimator
+import com.nhaarman.mockito_kotlin.any
+import com.nhaarman.mockito_kotlin.mock
+import com.nhaarman.mockito_kotlin.never
+import com.nhaarman.mockito_kotlin.verify
+import com.nhaarman.mockito_kotlin.whenever
+import org.junit.Before
+import org.junit.Test
+import org.mockito.ArgumentCaptor
+
+class DefaultTransitionAnimatorTest {
+
+    private val parent = mock<ViewGroup>()
+
+    private val oldView = mock<View>()
+
+    private val newView = mock<View>()
+
+    private val oldViewAnimator = propertyAnimator()
+
+    private val newViewAnimator = propertyAnimator()
+
+    private val callback = mock<Triad.Callback>()
+
+    @Before
+    fun setUp() {
+        val context = mock<Context>()
+        whenever(context.resources).thenReturn(mock<Resources>())
+        whenever(parent.context).thenReturn(context)
+        whenever(oldView.animate()).thenReturn(oldViewAnimator)
+        whenever(newView.animate()).thenReturn(newViewAnimator)
+    }
+
+    @Test
+    fun forward_animationsDisabled_completesSynchronously() {
+        /* Given */
+        val animator = DefaultTransitionAnimator(0f, false)
+
+        /* When */
+        animator.forward(oldView, newView, parent, callback)
+
+        /* Then */
+        verify(callback).onComplete()
+        verify(parent).addView(newView)
+        verify(parent).removeView(oldView)
+        verify(newView).alpha = 1f
+        verify(newView, never()).animate()
+        verify(oldView, never()).animate()
+    }
+
+    @Test
+    fun forward_fadesBothViewsInLayers() {
+        /* Given */
+        val animator = DefaultTransitionAnimator(1f, false)
+
+        /* When */
+        animator.forward(oldView, newView, parent, callback)
+
+        /* Then */
+        verify(oldViewAnimator).alpha(0f)
+        verify(oldViewAnimator).withLayer()
+        verify(newViewAnimator).alpha(1f)
+        verify(newViewAnimator).withLayer()
+        verify(callback, never()).onComplete()
+    }
+
+    @Test
+    fun forward_lowRamDevice_onlyAnimatesNewView() {
+        /* Given */
+        val animator = DefaultTransitionAnimator(1f, true)
+
+        /* When */
+        animator.forward(oldView, newView, parent, callback)
+
+        /* Then */
+        verify(oldView, never()).animate()
+        verify(newViewAnimator).alpha(1f)
+        verify(newViewAnimator).withLayer()
+    }
+
+    @Test
+    fun forward_endAction_removesOldViewAndCompletes() {
+        /* Given */
+        val animator = DefaultTransitionAnimator(1f, true)
+        animator.forward(oldView, newView, parent, callback)
+        val endAction = ArgumentCaptor.forClass(Runnable::class.java)
+        verify(newViewAnimator).withEndAction(endAction.capture())
+
+        /* When */
+        endAction.value.run()
+
+        /* Then */
+        verify(parent).removeView(oldView)
+        verify(callback).onComplete()
+    }
+
+    @Test
+    fun finishSeek_animationsDisabled_completesSynchronously() {
+        /* Given */
+        val animator = DefaultTransitionAnimator(0f, false)
+
+        /* When */
+        animator.finishSeek(oldView, newView, parent, callback)
+
+        /* Then */
+        verify(oldView, never()).animate()
+        verify(parent).removeView(oldView)
+        verify(callback).onComplete()
+    }
+
+    private fun propertyAnimator(): ViewPropertyAnimator {
+        val animator = mock<ViewPropertyAnimator>()
+        whenever(animator.alpha(any())).thenReturn(animator)
+        whenever(animator.setDuration(any())).thenReturn(animator)
+        whenever(animator.withLayer()).thenReturn(animator)
+        whenever(animator.withEndAction(any())).thenReturn(animator)
+        return animator
+    }
+}
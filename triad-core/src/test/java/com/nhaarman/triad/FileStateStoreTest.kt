@@ -0,0 +1,240 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad
+
+import android.os.Handler
+import com.nhaarman.expect.expect
+import com.nhaarman.mockito_kotlin.any
+import com.nhaarman.mockito_kotlin.mock
+import com.nhaarman.mockito_kotlin.whenever
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.CoreMatchers.nullValue
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+import java.io.File
+import java.nio.file.Files
+
+class FileStateStoreTest {
+
+    private val directory: File = Files.createTempDirectory("triad").toFile()
+
+    private val backgroundQueue = mutableListOf<Runnable>()
+
+    private val backgroundHandler = queueingHandler(backgroundQueue)
+
+    @Test
+    fun write_read_returnsState() {
+        /* Given */
+        val store = FileStateStore(directory)
+        val state = byteArrayOf(1, 2, 3)
+
+        /* When */
+        val key = store.write(state)
+
+        /* Then */
+        expect(store.read(key)?.toList()).toBe(state.toList())
+    }
+
+    @Test
+    fun write_returnsDistinctKeys() {
+        /* Given */
+        val store = FileStateStore(directory)
+
+        /* When */
+        val key1 = store.write(byteArrayOf(1))
+        val key2 = store.write(byteArrayOf(2))
+
+        /* Then */
+        expect(key1 == key2).toBe(false)
+        expect(store.read(key2)?.toList()).toBe(listOf<Byte>(2))
+    }
+
+    @Test
+    fun remove_read_returnsNull() {
+        /* Given */
+        val store = FileStateStore(directory)
+        val key = store.write(byteArrayOf(1, 2, 3))
+
+        /* When */
+        store.remove(key)
+
+        /* Then */
+        assertThat(store.read(key), `is`(nullValue()))
+    }
+
+    @Test
+    fun write_inBackground_writesFile() {
+        /* Given */
+        val store = FileStateStore(directory, backgroundHandler)
+
+        /* When */
+        val key = store.write(byteArrayOf(1, 2, 3))
+        runBackground()
+
+        /* Then */
+        expect(File(directory, key).readBytes().toList()).toBe(listOf<Byte>(1, 2, 3))
+    }
+
+    @Test
+    fun read_afterFileIsWritten_readsFile() {
+        /* Given */
+        val store = FileStateStore(directory, backgroundHandler)
+        val key = store.write(byteArrayOf(1, 2, 3))
+        runBackground()
+        File(directory, key).writeBytes(byteArrayOf(4, 5))
+
+        /* When */
+        val result = store.read(key)
+
+        /* Then */
+        expect(result?.toList()).toBe(listOf<Byte>(4, 5))
+    }
+
+    @Test
+    fun write_failingInBackground_keepsStateInMemoryForRetry() {
+        /* Given */
+        val store = FileStateStore(unwritableDirectory(), backgroundHandler)
+
+        /* When */
+        val key = store.write(byteArrayOf(1, 2, 3))
+        runBackground()
+
+        /* Then */
+        expect(backgroundQueue.size).toBe(1)
+        expect(store.read(key)?.toList()).toBe(listOf<Byte>(1, 2, 3))
+    }
+
+    @Test
+    fun write_failingRepeatedly_dropsState() {
+        /* Given */
+        val store = FileStateStore(unwritableDirectory(), backgroundHandler)
+
+        /* When */
+        val key = store.write(byteArrayOf(1, 2, 3))
+        runBackground()
+        runBackground()
+        runBackground()
+
+        /* Then */
+        expect(backgroundQueue.size).toBe(0)
+        assertThat(store.read(key), `is`(nullValue()))
+    }
+
+    @Test
+    fun remove_whileRetryingWrite_stopsRetrying() {
+        /* Given */
+        val store = FileStateStore(unwritableDirectory(), backgroundHandler)
+        val key = store.write(byteArrayOf(1, 2, 3))
+        runBackground()
+
+        /* When */
+        store.remove(key)
+        runBackground()
+
+        /* Then */
+        expect(backgroundQueue.size).toBe(0)
+        assertThat(store.read(key), `is`(nullValue()))
+    }
+
+    @Test
+    fun remove_beforeFileIsDeleted_readReturnsNull() {
+        /* Given */
+        val store = FileStateStore(directory, backgroundHandler)
+        val key = store.write(byteArrayOf(1, 2, 3))
+        runBackground()
+
+        /* When */
+        store.remove(key)
+
+        /* Then */
+        expect(File(directory, key).exists()).toBe(true)
+        assertThat(store.read(key), `is`(nullValue()))
+    }
+
+    @Test
+    fun remove_afterFileIsWritten_deletesFile() {
+        /* Given */
+        val store = FileStateStore(directory, backgroundHandler)
+        val key = store.write(byteArrayOf(1, 2, 3))
+        runBackground()
+
+        /* When */
+        store.remove(key)
+        runBackground()
+
+        /* Then */
+        expect(File(directory, key).exists()).toBe(false)
+        assertThat(store.read(key), `is`(nullValue()))
+    }
+
+    @Test
+    fun firstStore_deletesFilesOfPreviousProcess() {
+        /* Given */
+        val staleFile = File(directory, "state-0-0")
+        staleFile.writeBytes(byteArrayOf(1))
+
+        /* When */
+        FileStateStore(directory, backgroundHandler)
+        runBackground()
+
+        /* Then */
+        expect(staleFile.exists()).toBe(false)
+    }
+
+    @Test
+    fun secondStore_keepsFilesOfFirstStore() {
+        /* Given */
+        val store1 = FileStateStore(directory, backgroundHandler)
+        val key1 = store1.write(byteArrayOf(1))
+        runBackground()
+
+        /* When */
+        val store2 = FileStateStore(directory, backgroundHandler)
+        val key2 = store2.write(byteArrayOf(2))
+        runBackground()
+
+        /* Then */
+        expect(key1 == key2).toBe(false)
+        expect(store1.read(key1)?.toList()).toBe(listOf<Byte>(1))
+        expect(store2.read(key2)?.toList()).toBe(listOf<Byte>(2))
+    }
+
+    private fun unwritableDirectory(): File {
+        val file = File(directory, "file")
+        file.writeBytes(byteArrayOf(0))
+        return file
+    }
+
+    private fun queueingHandler(queue: MutableList<Runnable>): Handler {
+        val handler = mock<Handler>()
+        whenever(handler.post(any())).thenAnswer {
+            queue += it.arguments[0] as Runnable
+            true
+        }
+        whenever(handler.postDelayed(any(), any())).thenAnswer {
+            queue += it.arguments[0] as Runnable
+            true
+        }
+        return handler
+    }
+
+    private fun runBackground() {
+        val runnables = backgroundQueue.toList()
+        backgroundQueue.clear()
+        runnables.forEach { it.run() }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad
+
+import com.nhaarman.expect.expect
+import com.nhaarman.mockito_kotlin.*
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+
+class MainThreadTriadTest {
+
+    private val delegate = mock<Triad>()
+
+    private val mainThread = FakeMainThread()
+
+    private val triad = MainThreadTriad(delegate, mainThread)
+
+    private val screen1 = mock<Screen<Any>>()
+
+    private val screen2 = mock<Screen<Any>>()
+
+    @Test
+    fun goTo_onMainThread_executesImmediately() {
+        /* When */
+        triad.goTo(screen1)
+
+        /* Then */
+        verify(delegate).goTo(screen1, null)
+        expect(mainThread.posted.size).toBe(0)
+    }
+
+    @Test
+    fun goTo_offMainThread_executesWhenDrained() {
+        /* Given */
+        mainThread.isCurrent = false
+
+        /* When */
+        triad.goTo(screen1)
+
+        /* Then */
+        verify(delegate, never()).goTo(any(), anyOrNull())
+
+        mainThread.runPosted()
+        verify(delegate).goTo(screen1, null)
+    }
+
+    @Test
+    fun operationsOffMainThread_areExecutedInRequestedOrder() {
+        /* Given */
+        mainThread.isCurrent = false
+        triad.goTo(screen1)
+        triad.replaceWith(screen2)
+        triad.popTo(screen1)
+
+        /* When */
+        mainThread.runPosted()
+
+        /* Then */
+        val inOrder = inOrder(delegate)
+        inOrder.verify(delegate).goTo(screen1, null)
+        inOrder.verify(delegate).replaceWith(screen2, null)
+        inOrder.verify(delegate).popTo(screen1, null)
+    }
+
+    @Test
+    fun operationsFromMultipleThreads_areExecutedInRequestedOrder() {
+        /* Given */
+        mainThread.isCurrent = false
+        val thread = Thread { triad.goTo(screen1) }
+        thread.start()
+        thread.join()
+        triad.goTo(screen2)
+
+        /* When */
+        mainThread.runPosted()
+
+        /* Then */
+        val inOrder = inOrder(delegate)
+        inOrder.verify(delegate).goTo(screen1, null)
+        inOrder.verify(delegate).goTo(screen2, null)
+    }
+
+    @Test
+    fun mainThreadOperation_drainsPendingOperationsFirst() {
+        /* Given */
+        mainThread.isCurrent = false
+        triad.goTo(screen1)
+        mainThread.isCurrent = true
+
+        /* When */
+        triad.replaceWith(screen2)
+
+        /* Then */
+        val inOrder = inOrder(delegate)
+        inOrder.verify(delegate).goTo(screen1, null)
+        inOrder.verify(delegate).replaceWith(screen2, null)
+    }
+
+    @Test
+    fun drain_afterMainThreadAlreadyDrained_doesNothing() {
+        /* Given */
+        mainThread.isCurrent = false
+        triad.goTo(screen1)
+        mainThread.isCurrent = true
+        triad.replaceWith(screen2)
+
+        /* When */
+        mainThread.runPosted()
+
+        /* Then */
+        verify(delegate, times(1)).goTo(screen1, null)
+    }
+
+    @Test
+    fun multipleOperationsOffMainThread_scheduleSingleDrain() {
+        /* Given */
+        mainThread.isCurrent = false
+
+        /* When */
+        triad.goTo(screen1)
+        triad.goTo(screen2)
+
+        /* Then */
+        expect(mainThread.posted.size).toBe(1)
+    }
+
+    @Test
+    fun operationOffMainThread_afterDrainStarted_schedulesNewDrain() {
+        /* Given */
+        mainThread.isCurrent = false
+        triad.goTo(screen1)
+        mainThread.runPosted()
+
+        /* When */
+        triad.goTo(screen2)
+
+        /* Then */
+        expect(mainThread.posted.size).toBe(1)
+        mainThread.runPosted()
+        verify(delegate).goTo(screen2, null)
+    }
+
+    @Test
+    fun transactionCommit_offMainThread_isQueued() {
+        /* Given */
+        val transaction = mock<Triad.Transaction>()
+        whenever(delegate.beginTransaction()).thenReturn(transaction)
+        mainThread.isCurrent = false
+
+        /* When */
+        triad.beginTransaction().goBack().commit()
+
+        /* Then */
+        verify(transaction, never()).commit(anyOrNull())
+
+        mainThread.runPosted()
+        verify(transaction).commit(null)
+    }
+
+    @Test(expected = IllegalStateException::class)
+    fun goBack_offMainThread_throwsIllegalStateException() {
+        /* Given */
+        mainThread.isCurrent = false
+
+        /* When */
+        triad.goBack()
+    }
+
+    @Test
+    fun getBackstack_offMainThread_readsSnapshot() {
+        /* Given */
+        val backstack = Backstack.single(screen1)
+        whenever(delegate.snapshot).thenReturn(Triad.Snapshot(backstack, true))
+        mainThread.isCurrent = false
+
+        /* Then */
+        expect(triad.backstack).toBeTheSameAs(backstack)
+        assertThat(triad.isTransitioning, `is`(true))
+        verify(delegate, never()).backstack
+        verify(delegate, never()).isTransitioning
+    }
+
+    private class FakeMainThread : MainThreadTriad.MainThread {
+
+        @Volatile
+        var isCurrent = true
+
+        val posted = mutableListOf<Runnable>()
+
+        override fun isCurrentThread() = isCurrent
+
+        @Synchronized
+        override fun post(runnable: Runnable) {
+            posted += runnable
+        }
+
+        /**
+         * Runs the posted runnables on the main thread.
+         */
+        fun runPosted() {
+            isCurrent = true
+            val runnables = synchronized(this) { posted.toList().also { posted.clear() } }
+            runnables.forEach { it.run() }
+            isCurrent = false
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad
+
+import android.content.SharedPreferences
+import com.nhaarman.expect.expect
+import com.nhaarman.mockito_kotlin.any
+import com.nhaarman.mockito_kotlin.mock
+import com.nhaarman.mockito_kotlin.never
+import com.nhaarman.mockito_kotlin.times
+import com.nhaarman.mockito_kotlin.verify
+import com.nhaarman.mockito_kotlin.whenever
+import org.junit.Before
+import org.junit.Test
+
+class PrefetcherTest {
+
+    private val preferences = mock<SharedPreferences>()
+
+    private val triad = mock<Triad>()
+
+    private val scheduler = mock<TriadDelegate.PhaseScheduler>()
+
+    private lateinit var model: SuccessorModel
+
+    private lateinit var prefetcher: Prefetcher
+
+    private val screen1 = mock<Screen<Any>>()
+
+    private val screen2 = mock<Screen<Any>>()
+
+    private val screen3 = mock<Screen<Any>>()
+
+    @Before
+    fun setUp() {
+        whenever(preferences.all).thenReturn(emptyMap<String, Any>())
+        whenever(triad.backstack).thenReturn(Backstack.single(screen1))
+        whenever(triad.prepare(any())).thenAnswer { PreparedScreen(triad, it.arguments[0] as Screen<*>) }
+
+        model = SuccessorModel(preferences)
+        prefetcher = Prefetcher(model, scheduler, 2, Long.MAX_VALUE)
+    }
+
+    @Test
+    fun onScreenShown_preparesLikelyNextScreenWhenIdle() {
+        /* Given */
+        whenever(screen1.likelyNextScreens).thenReturn(listOf(screen2))
+
+        /* When */
+        prefetcher.onScreenShown(triad, screen1, 1)
+        prefetcher.queueIdle()
+
+        /* Then */
+        verify(scheduler).addIdleHandler(prefetcher)
+        verify(triad).prepare(screen2)
+    }
+
+    @Test
+    fun queueIdle_screenExceedingMaxBytes_isSkipped() {
+        /* Given */
+        prefetcher = Prefetcher(model, scheduler, 2, 100)
+        whenever(screen1.likelyNextScreens).thenReturn(listOf(screen2, screen3))
+        whenever(screen2.retainedBytes).thenReturn(91L)
+        whenever(screen3.retainedBytes).thenReturn(90L)
+
+        /* When */
+        prefetcher.onScreenShown(triad, screen1, 10)
+        prefetcher.queueIdle()
+
+        /* Then */
+        verify(triad, never()).prepare(screen2)
+        verify(triad).prepare(screen3)
+    }
+
+    @Test
+    fun queueIdle_prefetchedScreensFillMaxBytes_stopsPrefetching() {
+        /* Given */
+        prefetcher = Prefetcher(model, scheduler, 2, 100)
+        whenever(screen1.likelyNextScreens).thenReturn(listOf(screen2, screen3))
+        whenever(screen2.retainedBytes).thenReturn(81L)
+
+        /* When */
+        prefetcher.onScreenShown(triad, screen1, 10)
+        val scheduled = prefetcher.queueIdle()
+
+        /* Then */
+        verify(triad).prepare(screen2)
+        expect(scheduled).toBe(false)
+    }
+
+    @Test
+    fun prefetchedScreen_stillLikely_isKeptAndNotPreparedAgain() {
+        /* Given */
+        whenever(screen1.likelyNextScreens).thenReturn(listOf(screen2))
+        whenever(screen3.likelyNextScreens).thenReturn(listOf(screen2))
+        prefetcher.onScreenShown(triad, screen1, 1)
+        prefetcher.queueIdle()
+
+        /* When */
+        prefetcher.onTransition(screen1, screen3, TransitionMetrics.Type.GO_TO, false)
+        prefetcher.onScreenShown(triad, screen3, 1)
+        prefetcher.queueIdle()
+
+        /* Then */
+        verify(triad, times(1)).prepare(screen2)
+        verify(triad, never()).discard(any())
+    }
+
+    @Test
+    fun discardedScreen_isNotPreparedAgain() {
+        /* Given */
+        whenever(screen1.likelyNextScreens).thenReturn(listOf(screen2))
+        prefetcher.onScreenShown(triad, screen1, 1)
+        prefetcher.queueIdle()
+        prefetcher.onTransition(screen1, screen3, TransitionMetrics.Type.GO_TO, false)
+        prefetcher.onScreenShown(triad, screen3, 1)
+        prefetcher.onTransition(screen3, screen1, TransitionMetrics.Type.GO_BACK, true)
+
+        /* When */
+        prefetcher.onScreenShown(triad, screen1, 1)
+        prefetcher.queueIdle()
+
+        /* Then */
+        verify(triad).discard(any())
+        verify(triad, times(1)).prepare(screen2)
+    }
+
+    @Test
+    fun onTransition_toPrefetchedScreen_doesNotDiscardIt() {
+        /* Given */
+        whenever(screen1.likelyNextScreens).thenReturn(listOf(screen2))
+        prefetcher.onScreenShown(triad, screen1, 1)
+        prefetcher.queueIdle()
+
+        /* When */
+        prefetcher.onTransition(screen1, screen2, TransitionMetrics.Type.GO_TO, false)
+        prefetcher.onScreenShown(triad, screen2, 1)
+
+        /* Then */
+        verify(triad, never()).discard(any())
+    }
+
+    @Test
+    fun onTransition_transaction_recordsNavigation() {
+        /* When */
+        prefetcher.onTransition(screen1, screen2, TransitionMetrics.Type.TRANSACTION, false)
+
+        /* Then */
+        expect(model.count(screen1.javaClass, screen2.javaClass)).toBe(1)
+    }
+
+    @Test
+    fun onTransition_goBack_doesNotRecordNavigation() {
+        /* When */
+        prefetcher.onTransition(screen2, screen1, TransitionMetrics.Type.GO_BACK, true)
+
+        /* Then */
+        expect(model.count(screen2.javaClass, screen1.javaClass)).toBe(0)
+    }
+
+    @Test
+    fun isNavigation_coalesced_onlyWhenMovingForward() {
+        expect(Prefetcher.isNavigation(TransitionMetrics.Type.COALESCED, false)).toBe(true)
+        expect(Prefetcher.isNavigation(TransitionMetrics.Type.COALESCED, true)).toBe(false)
+    }
+}
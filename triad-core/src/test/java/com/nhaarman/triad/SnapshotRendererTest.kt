@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad
+
+import android.graphics.Bitmap
+import android.view.View
+import android.view.ViewGroup
+import com.nhaarman.expect.expect
+import com.nhaarman.mockito_kotlin.any
+import com.nhaarman.mockito_kotlin.mock
+import com.nhaarman.mockito_kotlin.never
+import com.nhaarman.mockito_kotlin.verify
+import com.nhaarman.mockito_kotlin.whenever
+import org.junit.Test
+
+class SnapshotRendererTest {
+
+    private val renderer = TestSnapshotRenderer()
+
+    private val parent = mock<ViewGroup>()
+
+    private val layoutParams = mock<ViewGroup.LayoutParams>()
+
+    @Test
+    fun replace_laidOutView_replacesViewBySnapshot() {
+        /* Given */
+        val view = laidOutView()
+        whenever(parent.indexOfChild(view)).thenReturn(1)
+
+        /* When */
+        val snapshot = renderer.replace(view)
+
+        /* Then */
+        expect(snapshot).toNotBeNull()
+        verify(view).draw(any())
+        verify(parent).removeView(view)
+        verify(parent).addView(snapshot, 1, layoutParams)
+    }
+
+    @Test
+    fun replace_viewThatIsNotLaidOut_returnsNull() {
+        /* Given */
+        val view = mock<View>()
+        whenever(view.parent).thenReturn(parent)
+
+        /* When */
+        val snapshot = renderer.replace(view)
+
+        /* Then */
+        expect(snapshot).toBeNull()
+        verify(parent, never()).removeView(any())
+    }
+
+    @Test
+    fun replace_viewWithoutParent_returnsNull() {
+        /* Given */
+        val view = laidOutView()
+        whenever(view.parent).thenReturn(null)
+
+        /* When */
+        val snapshot = renderer.replace(view)
+
+        /* Then */
+        expect(snapshot).toBeNull()
+    }
+
+    @Test
+    fun replace_afterRelease_reusesBitmapAndSnapshot() {
+        /* Given */
+        val first = renderer.replace(laidOutView())!!
+        renderer.release(first, false)
+
+        /* When */
+        val second = renderer.replace(laidOutView())
+
+        /* Then */
+        expect(second).toBeTheSameAs(first)
+        expect(renderer.createdBitmaps.size).toBe(1)
+    }
+
+    @Test
+    fun replace_afterReleaseWhileAnimated_doesNotReuseSnapshot() {
+        /* Given */
+        val first = renderer.replace(laidOutView())!!
+        renderer.release(first, true)
+
+        /* When */
+        val second = renderer.replace(laidOutView())
+
+        /* Then */
+        expect(second === first).toBe(false)
+        expect(renderer.createdBitmaps.size).toBe(1)
+    }
+
+    @Test
+    fun release_withFullPool_recyclesBitmap() {
+        /* Given */
+        val snapshots = (0 until 3).map { renderer.replace(laidOutView())!! }
+
+        /* When */
+        snapshots.forEach { renderer.release(it, false) }
+
+        /* Then */
+        verify(renderer.createdBitmaps[0], never()).recycle()
+        verify(renderer.createdBitmaps[1], never()).recycle()
+        verify(renderer.createdBitmaps[2]).recycle()
+    }
+
+    @Test
+    fun clear_recyclesPooledBitmaps() {
+        /* Given */
+        renderer.release(renderer.replace(laidOutView())!!, false)
+
+        /* When */
+        renderer.clear()
+
+        /* Then */
+        verify(renderer.createdBitmaps[0]).recycle()
+    }
+
+    private fun laidOutView(): View {
+        val view = mock<View>()
+        whenever(view.parent).thenReturn(parent)
+        whenever(view.width).thenReturn(WIDTH)
+        whenever(view.height).thenReturn(HEIGHT)
+        whenever(view.layoutParams).thenReturn(layoutParams)
+        return view
+    }
+
+    /**
+     * Creates mocked bitmaps, since bitmaps cannot be created in unit tests.
+     */
+    private class TestSnapshotRenderer : SnapshotRenderer() {
+
+        val createdBitmaps = mutableListOf<Bitmap>()
+
+        override fun createBitmap(width: Int, height: Int): Bitmap {
+            val bitmap = mock<Bitmap>()
+            whenever(bitmap.width).thenReturn(width)
+            whenever(bitmap.height).thenReturn(height)
+            createdBitmaps += bitmap
+            return bitmap
+        }
+    }
+
+    companion object {
+
+        const val WIDTH = 10
+
+        const val HEIGHT = 20
+    }
+}
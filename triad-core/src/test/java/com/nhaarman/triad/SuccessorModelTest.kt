@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad
+
+import android.content.SharedPreferences
+import com.nhaarman.expect.expect
+import org.junit.Test
+
+class SuccessorModelTest {
+
+    private val preferences = InMemoryPreferences()
+
+    @Test
+    fun record_incrementsCount() {
+        /* Given */
+        val model = SuccessorModel(preferences)
+
+        /* When */
+        model.record(String::class.java, Any::class.java)
+        model.record(String::class.java, Any::class.java)
+
+        /* Then */
+        expect(model.count(String::class.java, Any::class.java)).toBe(2)
+        expect(model.count(Any::class.java, String::class.java)).toBe(0)
+    }
+
+    @Test
+    fun save_persistsCounts() {
+        /* Given */
+        val model = SuccessorModel(preferences)
+        model.record(String::class.java, Any::class.java)
+        model.record(String::class.java, Exception::class.java)
+
+        /* When */
+        model.save()
+
+        /* Then */
+        val restored = SuccessorModel(preferences)
+        expect(restored.count(String::class.java, Any::class.java)).toBe(1)
+        expect(restored.count(String::class.java, Exception::class.java)).toBe(1)
+    }
+
+    @Test
+    fun corruptPreferences_areIgnored() {
+        /* Given */
+        preferences.values[String::class.java.name] = "java.lang.Object=3;garbage;java.lang.Exception=x"
+
+        /* When */
+        val model = SuccessorModel(preferences)
+
+        /* Then */
+        expect(model.count(String::class.java, Any::class.java)).toBe(3)
+        expect(model.count(String::class.java, Exception::class.java)).toBe(0)
+    }
+
+    private class InMemoryPreferences : SharedPreferences {
+
+        val values = mutableMapOf<String, Any?>()
+
+        override fun getAll(): Map<String, *> = values
+
+        override fun getString(key: String, defValue: String?) = values[key] as String? ?: defValue
+
+        override fun edit(): SharedPreferences.Editor = Editor()
+
+        private inner class Editor : SharedPreferences.Editor {
+
+            override fun putString(key: String, value: String?) = apply { values[key] = value }
+
+            override fun remove(key: String) = apply { values.remove(key) }
+
+            override fun clear() = apply { values.clear() }
+
+            override fun commit() = true
+
+            override fun apply() {}
+
+            override fun putInt(key: String, value: Int) = apply { values[key] = value }
+
+            override fun putLong(key: String, value: Long) = apply { values[key] = value }
+
+            override fun putFloat(key: String, value: Float) = apply { values[key] = value }
+
+            override fun putBoolean(key: String, value: Boolean) = apply { values[key] = value }
+
+            override fun putStringSet(key: String, values: Set<String>?) = apply { this@InMemoryPreferences.values[key] = values }
+        }
+
+        override fun getInt(key: String, defValue: Int) = values[key] as Int? ?: defValue
+
+        override fun getLong(key: String, defValue: Long) = values[key] as Long? ?: defValue
+
+        override fun getFloat(key: String, defValue: Float) = values[key] as Float? ?: defValue
+
+        override fun getBoolean(key: String, defValue: Boolean) = values[key] as Boolean? ?: defValue
+
+        override fun getStringSet(key: String, defValues: Set<String>?) = defValues
+
+        override fun contains(key: String) = values.containsKey(key)
+
+        override fun registerOnSharedPreferenceChangeListener(listener: SharedPreferences.OnSharedPreferenceChangeListener) {}
+
+        override fun unregisterOnSharedPreferenceChangeListener(listener: SharedPreferences.OnSharedPreferenceChangeListener) {}
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad
+
+import com.nhaarman.triad.TransitionMetrics.Phase
+import com.nhaarman.triad.TransitionMetrics.Type
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+
+class TransitionHistogramsTest {
+
+    private val histograms = TransitionHistograms()
+
+    @Test
+    fun percentile_withoutValues_returnsMinusOne() {
+        /* When */
+        val result = histograms.percentile(Phase.TRANSITION, Type.GO_TO, 50.0)
+
+        /* Then */
+        assertThat(result, `is`(-1L))
+    }
+
+    @Test
+    fun percentile_byType_isWithinBucketError() {
+        /* Given */
+        for (i in 1L..100L) {
+            histograms.onPhase(Phase.TRANSITION, Type.GO_TO, String::class.java, 0, i * 1000000)
+        }
+
+        /* When */
+        val p50 = histograms.percentile(Phase.TRANSITION, Type.GO_TO, 50.0)
+        val p99 = histograms.percentile(Phase.TRANSITION, Type.GO_TO, 99.0)
+
+        /* Then */
+        assertThat(p50 in 40000000L..60000000L, `is`(true))
+        assertThat(p99 in 80000000L..100000000L, `is`(true))
+    }
+
+    @Test
+    fun percentile_byScreen_onlyContainsThatScreen() {
+        /* Given */
+        histograms.onPhase(Phase.INFLATE, Type.GO_TO, String::class.java, 0, 1000)
+        histograms.onPhase(Phase.INFLATE, Type.GO_TO, Int::class.java, 0, 1000000000)
+
+        /* When */
+        val result = histograms.percentile(Phase.INFLATE, String::class.java, 100.0)
+
+        /* Then */
+        assertThat(result <= 1000L, `is`(true))
+    }
+
+    @Test
+    fun queueDepthPercentile_returnsRecordedDepth() {
+        /* Given */
+        histograms.onRequested(Type.GO_TO, 0)
+        histograms.onRequested(Type.GO_TO, 3)
+
+        /* When */
+        val result = histograms.queueDepthPercentile(100.0)
+
+        /* Then */
+        assertThat(result, `is`(3L))
+    }
+
+    @Test
+    fun reset_clearsValues() {
+        /* Given */
+        histograms.onPhase(Phase.ATTACH, Type.GO_BACK, String::class.java, 0, 1000)
+
+        /* When */
+        histograms.reset()
+
+        /* Then */
+        assertThat(histograms.percentile(Phase.ATTACH, Type.GO_BACK, 50.0), `is`(-1L))
+        assertThat(histograms.percentile(Phase.ATTACH, String::class.java, 50.0), `is`(-1L))
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun percentile_outOfRange_throws() {
+        histograms.percentile(Phase.ATTACH, Type.GO_BACK, 101.0)
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad
+
+import android.app.Activity
+import android.app.Application
+import android.view.View
+import android.view.ViewGroup
+import com.nhaarman.mockito_kotlin.any
+import com.nhaarman.mockito_kotlin.mock
+import com.nhaarman.mockito_kotlin.whenever
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+import org.mockito.Mockito
+import java.lang.management.ManagementFactory
+
+/**
+ * Verifies that steady-state navigation does not allocate beyond the new backstack entry.
+ */
+class TriadAllocationTest {
+
+    private val threadMXBean = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+
+    /**
+     * A listener that completes every transition immediately, without allocating.
+     */
+    private val listener = object : Triad.Listener<Any> {
+
+        override fun screenPushed(pushedScreen: Screen<Any>) {}
+
+        override fun screenPopped(poppedScreen: Screen<Any>) {}
+
+        override fun forward(newScreen: Screen<Any>, animator: TransitionAnimator?, callback: Triad.Callback) = callback.onComplete()
+
+        override fun backward(newScreen: Screen<Any>, animator: TransitionAnimator?, callback: Triad.Callback) = callback.onComplete()
+
+        override fun replace(newScreen: Screen<Any>, animator: TransitionAnimator?, callback: Triad.Callback) = callback.onComplete()
+    }
+
+    @Test
+    fun goToAndGoBack_inSteadyState_onlyAllocateBackstackEntry() {
+        /* Given */
+        val screen1 = mock<Screen<Any>>()
+        val screen2 = mock<Screen<Any>>()
+        val triad = TriadFactory.newInstance(Backstack.single(screen1), listener)
+
+        for (i in 0 until WARM_UP_ITERATIONS) {
+            triad.goTo(screen2)
+            triad.goBack()
+        }
+
+        /* When */
+        val before = allocatedBytes()
+        for (i in 0 until ITERATIONS) {
+            triad.goTo(screen2)
+            triad.goBack()
+        }
+        val bytesPerIteration = (allocatedBytes() - before) / ITERATIONS
+
+        /* Then */
+        assertThat("Allocated $bytesPerIteration bytes per goTo/goBack", bytesPerIteration <= MAX_BYTES_PER_ITERATION, `is`(true))
+    }
+
+    @Test
+    fun goToAndGoBack_throughDelegate_inSteadyState_onlyAllocateBackstackEntry() {
+        /* Given */
+        val screen1 = StaticScreen()
+        val screen2 = StaticScreen()
+        val triad = TriadFactory.emptyInstance()
+        val application = Mockito.mock(Application::class.java, Mockito.withSettings().extraInterfaces(TriadProvider::class.java, ApplicationComponentProvider::class.java))
+        whenever((application as TriadProvider).triad).thenReturn(triad)
+        whenever((application as ApplicationComponentProvider<*>).applicationComponent).thenReturn(Any())
+        val activity = mock<Activity>()
+        whenever(activity.application).thenReturn(application)
+        whenever(activity.findViewById(any())).thenReturn(RootView())
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.onCreate(null)
+        triad.startWith(screen1)
+
+        for (i in 0 until WARM_UP_ITERATIONS) {
+            triad.goTo(screen2)
+            triad.goBack()
+        }
+
+        /* When */
+        val before = allocatedBytes()
+        for (i in 0 until ITERATIONS) {
+            triad.goTo(screen2)
+            triad.goBack()
+        }
+        val bytesPerIteration = (allocatedBytes() - before) / ITERATIONS
+
+        /* Then */
+        assertThat("Allocated $bytesPerIteration bytes per goTo/goBack", bytesPerIteration <= MAX_BYTES_PER_ITERATION, `is`(true))
+    }
+
+    private fun allocatedBytes() = threadMXBean.getThreadAllocatedBytes(Thread.currentThread().id)
+
+    companion object {
+
+        private const val WARM_UP_ITERATIONS = 10000
+        private const val ITERATIONS = 10000
+
+        /**
+         * A goTo allocates a single Backstack.Entry and the Backstack node holding it, of at most 32 bytes each
+         * with uncompressed object pointers; a goBack allocates nothing.
+         */
+        private const val MAX_BYTES_PER_ITERATION = 64
+    }
+
+    /**
+     * A root view that does not record its calls like a mock would.
+     */
+    private class RootView : ViewGroup(null) {
+
+        override fun onLayout(changed: Boolean, l: Int, t: Int, r: Int, b: Int) {}
+    }
+
+    /**
+     * A screen that always shows the same view.
+     */
+    private class StaticScreen : Screen<Any>() {
+
+        private val view = View(null)
+
+        override val layoutResId = 0
+
+        override val presenter: Presenter<*>
+            get() = throw UnsupportedOperationException()
+
+        override fun createView(parent: ViewGroup) = view
+
+        override fun attach(root: ViewGroup) {}
+
+        override fun detach() {}
+    }
+
+    private class CompletingAnimator : TransitionAnimator {
+
+        override fun forward(oldView: View?, newView: View, parent: ViewGroup, callback: Triad.Callback): Boolean {
+            callback.onComplete()
+            return true
+        }
+
+        override fun backward(oldView: View?, newView: View, parent: ViewGroup, callback: Triad.Callback): Boolean {
+            callback.onComplete()
+            return true
+        }
+    }
+}
@@ -18,13 +18,23 @@ package com.nhaarman.triad
 
 import android.app.Activity
 import android.app.Application
+import android.content.ComponentCallbacks2
+import android.graphics.Bitmap
+import android.os.Handler
+import android.os.MessageQueue
+import android.view.Choreographer
+import android.view.LayoutInflater
+import android.view.View
 import android.view.ViewGroup
+import com.nhaarman.expect.expect
 import com.nhaarman.mockito_kotlin.any
+import com.nhaarman.mockito_kotlin.eq
 import com.nhaarman.mockito_kotlin.mock
 import com.nhaarman.mockito_kotlin.never
 import com.nhaarman.mockito_kotlin.whenever
 import org.junit.Before
 import org.junit.Test
+import org.mockito.ArgumentCaptor
 import org.mockito.Mock
 import org.mockito.Mockito
 import org.mockito.Mockito.verify
@@ -53,6 +63,7 @@ class TriadDelegateTest {
         mApplication = Mockito.mock(Application::class.java, Mockito.withSettings().extraInterfaces(TriadProvider::class.java, ApplicationComponentProvider::class.java))
 
         whenever(activity.application).thenReturn(mApplication)
+        whenever((mApplication as ApplicationComponentProvider<*>).applicationComponent).thenReturn(Any())
         whenever(activity.findViewById(any())).thenReturn(mock<ViewGroup>())
         whenever(mScreen2.createView(any())).thenReturn(mock())
     }
@@ -74,6 +85,44 @@ class TriadDelegateTest {
         verify(mScreen1).onDestroy()
     }
 
+    @Test
+    fun onDestroy_finishing_destroysPreparedScreen() {
+        /* Given */
+        whenever(activity.isFinishing).thenReturn(true)
+        whenever(mScreen1.createView(any())).thenReturn(mock())
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        triad.prepare(mScreen2)
+
+        /* When */
+        delegate.onDestroy()
+
+        /* Then */
+        verify(mScreen2, Mockito.times(1)).onDestroy()
+    }
+
+    @Test
+    fun onDestroy_finishing_destroysPushedPreparedScreenOnce() {
+        /* Given */
+        whenever(activity.isFinishing).thenReturn(true)
+        whenever(mScreen1.createView(any())).thenReturn(mock())
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        triad.prepare(mScreen2).goTo()
+
+        /* When */
+        delegate.onDestroy()
+
+        /* Then */
+        verify(mScreen2, Mockito.times(1)).onDestroy()
+    }
+
     @Test
     fun onDestroy_notFinishing_doesNotNotifyScreens() {
         /* Given */
@@ -90,4 +139,1287 @@ class TriadDelegateTest {
         verify(mScreen2, never()).onDestroy()
         verify(mScreen1, never()).onDestroy()
     }
-}
\ No newline at end of file
+
+    @Test
+    fun backstackPolicy_maxDepth_destroysTrimmedScreenOnce() {
+        /* Given */
+        whenever(activity.isFinishing).thenReturn(true)
+        whenever(mScreen1.createView(any())).thenReturn(mock())
+        val screen3 = mock<Screen<Any>>()
+        whenever(screen3.createView(any())).thenReturn(mock())
+        val triad = TriadFactory.emptyInstance()
+        triad.setBackstackPolicy(BackstackPolicy.Builder().maxDepth(2).build())
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        triad.goTo(mScreen2)
+
+        /* When */
+        triad.goTo(screen3)
+        delegate.onDestroy()
+
+        /* Then */
+        verify(mScreen1, Mockito.times(1)).onDestroy()
+        verify(mScreen2, Mockito.times(1)).onDestroy()
+        verify(screen3, Mockito.times(1)).onDestroy()
+    }
+
+    @Test
+    fun onTrimMemory_notifiesBackstackScreens() {
+        /* Given */
+        val delegate = TriadDelegate.createFor<Any>(activity, mock())
+        whenever((mApplication as TriadProvider).triad).thenReturn(TriadFactory.newInstance(Backstack.of(mScreen1, mScreen2), mListener))
+        delegate.onCreate(null)
+
+        /* When */
+        delegate.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE)
+
+        /* Then */
+        verify(mScreen2).onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE)
+        verify(mScreen1).onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE)
+    }
+
+    @Test
+    fun onTrimMemory_uiHidden_releasesCachedViewsOnly() {
+        /* Given */
+        val screen1 = RetainingScreen(0)
+        val screen2 = RetainingScreen(0)
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setViewCache(4, Long.MAX_VALUE)
+        delegate.onCreate(null)
+        triad.startWith(screen1)
+        triad.goTo(screen2)
+
+        /* When */
+        delegate.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN)
+
+        /* Then */
+        expect(delegate.memoryUsage[1].viewBytes).toBe(0L)
+        expect(screen1.isDehydrated).toBe(false)
+    }
+
+    @Test
+    fun onTrimMemory_background_doesNotDehydrateScreens() {
+        /* Given */
+        val screen1 = RetainingScreen(0)
+        val screen2 = RetainingScreen(0)
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.onCreate(null)
+        triad.startWith(screen1)
+        triad.goTo(screen2)
+
+        /* When */
+        delegate.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND)
+
+        /* Then */
+        expect(screen1.isDehydrated).toBe(false)
+        expect(screen1.destroyCount).toBe(0)
+    }
+
+    @Test
+    fun onTrimMemory_runningLow_dehydratesCoveredScreensAndKeepsOtherViews() {
+        /* Given */
+        val screen1 = RetainingScreen(0, dehydrates = false)
+        val screen2 = RetainingScreen(0)
+        val screen3 = RetainingScreen(0)
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setViewCache(4, Long.MAX_VALUE)
+        delegate.onCreate(null)
+        triad.startWith(screen1)
+        triad.goTo(screen2)
+        triad.goTo(screen3)
+
+        /* When */
+        delegate.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW)
+
+        /* Then */
+        expect(screen2.isDehydrated).toBe(true)
+        expect(screen2.destroyCount).toBe(1)
+        expect(screen1.isDehydrated).toBe(false)
+        expect(screen3.isDehydrated).toBe(false)
+        expect(delegate.memoryUsage[2].viewBytes).toBe(1L)
+    }
+
+    @Test
+    fun onTrimMemory_complete_dehydratesAllButTopScreenAndWritesStates() {
+        /* Given */
+        val store = mock<StateStore>()
+        whenever(store.write(any())).thenReturn("key")
+        val screen1 = RetainingScreen(0)
+        val screen2 = RetainingScreen(0)
+        val screen3 = RetainingScreen(0)
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setViewCache(4, Long.MAX_VALUE)
+        delegate.setStateStore(store, 4, Long.MAX_VALUE)
+        delegate.onCreate(null)
+        triad.startWith(screen1)
+        triad.goTo(screen2)
+        triad.goTo(screen3)
+        val state = byteArrayOf(1, 2, 3)
+        screen1.setMarshalledState(state)
+
+        /* When */
+        delegate.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE)
+
+        /* Then */
+        expect(screen1.isDehydrated).toBe(true)
+        expect(screen2.isDehydrated).toBe(true)
+        expect(screen3.isDehydrated).toBe(false)
+        verify(store).write(state)
+        expect(delegate.memoryUsage.map { it.viewBytes + it.stateBytes }).toBe(listOf(0L, 0L, 0L))
+    }
+
+    @Test
+    fun onLowMemory_dehydratesAllButTopScreen() {
+        /* Given */
+        val screen1 = RetainingScreen(0)
+        val screen2 = RetainingScreen(0)
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.onCreate(null)
+        triad.startWith(screen1)
+        triad.goTo(screen2)
+
+        /* When */
+        delegate.onLowMemory()
+
+        /* Then */
+        expect(screen1.isDehydrated).toBe(true)
+        expect(screen2.isDehydrated).toBe(false)
+    }
+
+    @Test
+    fun onTrimMemory_duringAnimation_keepsOutgoingScreenUntilItsViewIsCached() {
+        /* Given */
+        val screen1 = RetainingScreen(0)
+        val screen2 = RetainingScreen(0)
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val animator = HoldingAnimator()
+        val delegate = TriadDelegate.createFor<Any>(activity, animator)
+        delegate.setViewCache(4, Long.MAX_VALUE)
+        delegate.onCreate(null)
+        triad.startWith(screen1)
+        animator.complete()
+        triad.goTo(screen2)
+
+        /* When */
+        delegate.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE)
+        animator.complete()
+
+        /* Then */
+        expect(screen1.isDehydrated).toBe(false)
+        expect(screen1.destroyCount).toBe(0)
+        expect(delegate.memoryUsage[1].viewBytes).toBe(1L)
+    }
+
+    @Test
+    fun replaceWith_sameLayout_rebindsExistingView() {
+        /* Given */
+        val root = mock<ViewGroup>()
+        val view = mock<View>()
+        whenever(activity.findViewById(any())).thenReturn(root)
+        whenever(root.getChildAt(0)).thenReturn(view)
+        whenever(mScreen1.createView(any())).thenReturn(view)
+        whenever(mScreen1.recyclesView).thenReturn(true)
+        whenever(mScreen2.recyclesView).thenReturn(true)
+
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+
+        /* When */
+        triad.replaceWith(mScreen2)
+
+        /* Then */
+        verify(mScreen2, never()).createView(any())
+        verify(mScreen2).bindRecycledView(view)
+        verify(mScreen2).attach(root)
+    }
+
+    @Test
+    fun backGesture_commit_movesBackWithoutAnimatingAgain() {
+        /* Given */
+        val root = mock<ViewGroup>()
+        val view1 = mock<View>()
+        val view2 = mock<View>()
+        whenever(activity.findViewById(any())).thenReturn(root)
+        whenever(mScreen1.createView(any())).thenReturn(view1)
+        whenever(mScreen2.createView(any())).thenReturn(view2)
+        whenever(view2.parent).thenReturn(root)
+
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val animator = SeekingAnimator()
+        val delegate = TriadDelegate.createFor<Any>(activity, animator)
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        triad.goTo(mScreen2)
+
+        /* When */
+        val gesture = delegate.startBackGesture()!!
+        gesture.setProgress(.5f)
+        gesture.commit()
+
+        /* Then */
+        verify(mScreen1).restoreState(view1)
+        expect(animator.backwardCount).toBe(0)
+        expect(triad.backstack.size()).toBe(1)
+        expect(delegate.currentScreen).toBe(mScreen1)
+    }
+
+    @Test
+    fun backGesture_cancel_keepsBackstack() {
+        /* Given */
+        val root = mock<ViewGroup>()
+        val view2 = mock<View>()
+        whenever(activity.findViewById(any())).thenReturn(root)
+        whenever(mScreen1.createView(any())).thenReturn(mock())
+        whenever(mScreen2.createView(any())).thenReturn(view2)
+        whenever(view2.parent).thenReturn(root)
+
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, SeekingAnimator())
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        triad.goTo(mScreen2)
+
+        /* When */
+        val gesture = delegate.startBackGesture()!!
+        gesture.setProgress(.5f)
+        gesture.cancel()
+
+        /* Then */
+        expect(triad.backstack.size()).toBe(2)
+        expect(delegate.currentScreen).toBe(mScreen2)
+    }
+
+    @Test
+    fun backGesture_abandonedWhileSettling_stopsSettleAnimation() {
+        /* Given */
+        val root = mock<ViewGroup>()
+        val view1 = mock<View>()
+        val view2 = mock<View>()
+        val screen3 = mock<Screen<Any>>()
+        whenever(activity.findViewById(any())).thenReturn(root)
+        whenever(mScreen1.createView(any())).thenReturn(view1)
+        whenever(mScreen2.createView(any())).thenReturn(view2)
+        whenever(screen3.createView(any())).thenReturn(mock())
+        whenever(view2.parent).thenReturn(root)
+
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val animator = SeekingAnimator(holdsSettle = true)
+        val delegate = TriadDelegate.createFor<Any>(activity, animator)
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        triad.goTo(mScreen2)
+        val gesture = delegate.startBackGesture()!!
+        gesture.commit()
+
+        /* When */
+        triad.goTo(screen3)
+        animator.settle()
+
+        /* Then */
+        expect(animator.abandonedOldView).toBeTheSameAs(view2)
+        expect(animator.abandonedNewView).toBeTheSameAs(view1)
+        expect(triad.backstack.size()).toBe(3)
+        expect(delegate.currentScreen).toBe(screen3)
+    }
+
+    @Test
+    fun backGesture_commit_goBackRefused_restoresCurrentView() {
+        /* Given */
+        val root = mock<ViewGroup>()
+        val view1 = mock<View>()
+        val view2 = mock<View>()
+        whenever(activity.findViewById(any())).thenReturn(root)
+        whenever(mScreen1.createView(any())).thenReturn(view1)
+        whenever(mScreen2.createView(any())).thenReturn(view2)
+        whenever(view2.parent).thenReturn(root)
+
+        val triad = RefusingTriad(TriadFactory.emptyInstance())
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val animator = SeekingAnimator()
+        val delegate = TriadDelegate.createFor<Any>(activity, animator)
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        triad.goTo(mScreen2)
+        val gesture = delegate.startBackGesture()!!
+        triad.refusesGoBack = true
+
+        /* When */
+        gesture.commit()
+
+        /* Then */
+        expect(animator.abandonedOldView).toBeTheSameAs(view2)
+        expect(animator.abandonedNewView).toBeTheSameAs(view1)
+        expect(triad.backstack.size()).toBe(2)
+        expect(delegate.currentScreen).toBe(mScreen2)
+        expect(delegate.startBackGesture()).toNotBeNull()
+    }
+
+    @Test
+    fun phasePolicy_nextFrame_defersPhaseToNextFrame() {
+        /* Given */
+        val root = mock<ViewGroup>()
+        whenever(activity.findViewById(any())).thenReturn(root)
+        whenever(mScreen1.createView(any())).thenReturn(mock())
+        val scheduler = FakePhaseScheduler()
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setPhaseScheduler(scheduler)
+        delegate.setPhasePolicy(TriadDelegate.Phase.INFLATE, TriadDelegate.PhasePolicy.NEXT_FRAME)
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        verify(mScreen1, never()).createView(any())
+
+        /* When */
+        scheduler.runFrame()
+
+        /* Then */
+        verify(mScreen1).createView(root)
+        verify(mScreen1).attach(root)
+    }
+
+    @Test
+    fun phasePolicy_idle_defersPhaseUntilIdle() {
+        /* Given */
+        val root = mock<ViewGroup>()
+        whenever(activity.findViewById(any())).thenReturn(root)
+        whenever(mScreen1.createView(any())).thenReturn(mock())
+        val scheduler = FakePhaseScheduler()
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setPhaseScheduler(scheduler)
+        delegate.setPhasePolicy(TriadDelegate.Phase.ATTACH, TriadDelegate.PhasePolicy.IDLE)
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        verify(mScreen1, never()).attach(any())
+
+        /* When */
+        scheduler.runIdle()
+
+        /* Then */
+        verify(mScreen1).attach(root)
+        expect(scheduler.frameCallbacks.size).toBe(0)
+    }
+
+    @Test
+    fun phasePolicy_deferredCreate_createsPushedScreenInCreatePhase() {
+        /* Given */
+        whenever(mScreen1.createView(any())).thenReturn(mock())
+        val scheduler = FakePhaseScheduler()
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setPhaseScheduler(scheduler)
+        delegate.setPhasePolicy(TriadDelegate.Phase.CREATE, TriadDelegate.PhasePolicy.NEXT_FRAME)
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        verify(mScreen1, never()).onCreate()
+
+        /* When */
+        scheduler.runFrame()
+
+        /* Then */
+        val inOrder = Mockito.inOrder(mScreen1)
+        inOrder.verify(mScreen1).onCreate()
+        inOrder.verify(mScreen1).createView(any())
+    }
+
+    @Test
+    fun phasePolicy_deferredCreate_reportsCreateOnce() {
+        /* Given */
+        whenever(mScreen1.createView(any())).thenReturn(mock())
+        val scheduler = FakePhaseScheduler()
+        val metrics = mock<TransitionMetrics>()
+        val triad = TriadFactory.emptyInstance()
+        triad.setMetrics(metrics)
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setPhaseScheduler(scheduler)
+        delegate.setPhasePolicy(TriadDelegate.Phase.CREATE, TriadDelegate.PhasePolicy.NEXT_FRAME)
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+
+        /* When */
+        scheduler.runFrame()
+
+        /* Then */
+        verify(metrics).onPhase(eq(TransitionMetrics.Phase.CREATE), eq(TransitionMetrics.Type.START_WITH), eq(mScreen1.javaClass), any(), any())
+    }
+
+    @Test
+    fun onDestroy_withDeferredPhase_cancelsTransition() {
+        /* Given */
+        whenever(activity.isFinishing).thenReturn(false)
+        whenever(mScreen1.createView(any())).thenReturn(mock())
+        val scheduler = FakePhaseScheduler()
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setPhaseScheduler(scheduler)
+        delegate.setPhasePolicy(TriadDelegate.Phase.INFLATE, TriadDelegate.PhasePolicy.NEXT_FRAME)
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+
+        /* When */
+        delegate.onDestroy()
+
+        /* Then */
+        expect(scheduler.frameCallbacks.size).toBe(0)
+        verify(mScreen1, never()).createView(any())
+        expect(triad.isTransitioning).toBe(true)
+    }
+
+    @Test
+    fun frameBudget_exceeded_defersRemainingPhasesToNextFrame() {
+        /* Given */
+        val root = mock<ViewGroup>()
+        whenever(activity.findViewById(any())).thenReturn(root)
+        val scheduler = FakePhaseScheduler()
+        whenever(mScreen1.createView(any())).thenAnswer {
+            scheduler.time += 2000
+            mock<View>()
+        }
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setPhaseScheduler(scheduler)
+        delegate.setFrameBudget(1000)
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        verify(mScreen1).createView(root)
+        verify(mScreen1, never()).attach(any())
+
+        /* When */
+        scheduler.runFrame()
+
+        /* Then */
+        verify(mScreen1).attach(root)
+    }
+
+    @Test
+    fun frameBudget_notExceeded_executesAllPhases() {
+        /* Given */
+        val root = mock<ViewGroup>()
+        whenever(activity.findViewById(any())).thenReturn(root)
+        whenever(mScreen1.createView(any())).thenReturn(mock())
+        val scheduler = FakePhaseScheduler()
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setPhaseScheduler(scheduler)
+        delegate.setFrameBudget(1000)
+        delegate.onCreate(null)
+
+        /* When */
+        triad.startWith(mScreen1)
+
+        /* Then */
+        verify(mScreen1).attach(root)
+        expect(scheduler.frameCallbacks.size).toBe(0)
+    }
+
+    @Test
+    fun onDestroy_duringAsyncInflation_cancelsInflation() {
+        /* Given */
+        whenever(activity.isFinishing).thenReturn(false)
+        val backgroundHandler = mock<Handler>()
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setAsyncInflater(AsyncInflater(mock(), backgroundHandler, mock()))
+        delegate.onCreate(null)
+        val screen = InflatingScreen()
+        triad.startWith(screen)
+        val request = ArgumentCaptor.forClass(Runnable::class.java)
+        verify(backgroundHandler).post(request.capture())
+
+        /* When */
+        delegate.onDestroy()
+        request.value.run()
+
+        /* Then */
+        expect(screen.inflations).toBe(0)
+    }
+
+    @Test
+    fun snapshotTransitions_laidOutOldView_animatesSnapshotAndReleasesOldScreenEarly() {
+        /* Given */
+        val root = mock<ViewGroup>()
+        val view1 = laidOutView(root)
+        whenever(activity.findViewById(any())).thenReturn(root)
+        whenever(mScreen1.createView(any())).thenReturn(view1)
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val animator = HoldingAnimator()
+        val delegate = TriadDelegate.createFor<Any>(activity, animator)
+        delegate.setSnapshotRenderer(MockBitmapSnapshotRenderer())
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        animator.complete()
+
+        /* When */
+        triad.goTo(mScreen2)
+
+        /* Then */
+        expect(animator.oldView is SnapshotRenderer.Snapshot).toBe(true)
+        verify(root).removeView(view1)
+        verify(mScreen1).detach()
+    }
+
+    @Test
+    fun snapshotTransitions_onComplete_releasesSnapshot() {
+        /* Given */
+        val root = mock<ViewGroup>()
+        whenever(activity.findViewById(any())).thenReturn(root)
+        val view1 = laidOutView(root)
+        whenever(mScreen1.createView(any())).thenReturn(view1)
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val animator = HoldingAnimator()
+        val renderer = MockBitmapSnapshotRenderer()
+        val delegate = TriadDelegate.createFor<Any>(activity, animator)
+        delegate.setSnapshotRenderer(renderer)
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        animator.complete()
+        triad.goTo(mScreen2)
+        expect(renderer.released).toBe(0)
+
+        /* When */
+        animator.complete()
+
+        /* Then */
+        expect(renderer.released).toBe(1)
+        expect(renderer.releasedWhileAnimated).toBe(0)
+    }
+
+    @Test
+    fun snapshotTransitions_onAbort_releasesSnapshot() {
+        /* Given */
+        val root = mock<ViewGroup>()
+        whenever(activity.findViewById(any())).thenReturn(root)
+        val view1 = laidOutView(root)
+        whenever(mScreen1.createView(any())).thenReturn(view1)
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val animator = HoldingAnimator()
+        val renderer = MockBitmapSnapshotRenderer()
+        val delegate = TriadDelegate.createFor<Any>(activity, animator)
+        delegate.setSnapshotRenderer(renderer)
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        animator.complete()
+        triad.goTo(mScreen2)
+
+        /* When */
+        triad.reset()
+
+        /* Then */
+        expect(renderer.released).toBe(1)
+        expect(renderer.releasedWhileAnimated).toBe(1)
+    }
+
+    @Test
+    fun snapshotTransitions_oldViewNotLaidOut_animatesOldView() {
+        /* Given */
+        val root = mock<ViewGroup>()
+        val view1 = mock<View>()
+        whenever(view1.parent).thenReturn(root)
+        whenever(activity.findViewById(any())).thenReturn(root)
+        whenever(mScreen1.createView(any())).thenReturn(view1)
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val animator = HoldingAnimator()
+        val delegate = TriadDelegate.createFor<Any>(activity, animator)
+        delegate.setSnapshotRenderer(MockBitmapSnapshotRenderer())
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        animator.complete()
+
+        /* When */
+        triad.goTo(mScreen2)
+
+        /* Then */
+        expect(animator.oldView).toBeTheSameAs(view1)
+        verify(mScreen1, never()).detach()
+    }
+
+    @Test
+    fun interrupt_reversingTransition_animatesOldViewBackIn() {
+        /* Given */
+        val root = mock<ViewGroup>()
+        val view1 = mock<View>()
+        val view2 = mock<View>()
+        whenever(view1.parent).thenReturn(root)
+        whenever(view2.parent).thenReturn(root)
+        whenever(activity.findViewById(any())).thenReturn(root)
+        whenever(mScreen1.createView(any())).thenReturn(view1)
+        whenever(mScreen2.createView(any())).thenReturn(view2)
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val animator = InterruptingAnimator()
+        val delegate = TriadDelegate.createFor<Any>(activity, animator)
+        delegate.setInterruptibleTransitions(true)
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        animator.complete()
+        triad.goTo(mScreen2)
+
+        /* When */
+        triad.goBack()
+
+        /* Then */
+        expect(animator.interruptCount).toBe(1)
+        expect(animator.oldView).toBeTheSameAs(view2)
+        expect(animator.newView).toBeTheSameAs(view1)
+        verify(mScreen1).createView(any())
+        verify(root, never()).removeView(view1)
+    }
+
+    @Test
+    fun interrupt_reversingTransition_doesNotCacheOldView() {
+        /* Given */
+        val root = mock<ViewGroup>()
+        val view1 = mock<View>()
+        val view2 = mock<View>()
+        whenever(view1.parent).thenReturn(root)
+        whenever(view2.parent).thenReturn(root)
+        whenever(activity.findViewById(any())).thenReturn(root)
+        whenever(mScreen1.createView(any())).thenReturn(view1)
+        whenever(mScreen2.createView(any())).thenReturn(view2)
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val animator = InterruptingAnimator()
+        val delegate = TriadDelegate.createFor<Any>(activity, animator)
+        delegate.setInterruptibleTransitions(true)
+        delegate.setViewCache(4, Long.MAX_VALUE)
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        animator.complete()
+        triad.goTo(mScreen2)
+
+        /* When */
+        triad.goBack()
+        animator.complete()
+
+        /* Then */
+        verify(mScreen1).detach()
+        verify(mScreen2).detach()
+        expect(delegate.currentScreen).toBe(mScreen1)
+        expect(delegate.memoryUsage[0].viewBytes).toBe(0L)
+    }
+
+    @Test
+    fun interrupt_thenOtherScreen_removesAndCachesOldView() {
+        /* Given */
+        val root = mock<ViewGroup>()
+        val view1 = mock<View>()
+        val view2 = mock<View>()
+        val screen3 = mock<Screen<Any>>()
+        var parent1: ViewGroup? = root
+        whenever(view1.parent).thenAnswer { parent1 }
+        Mockito.doAnswer { parent1 = null; null }.`when`(root).removeView(view1)
+        whenever(view2.parent).thenReturn(root)
+        whenever(activity.findViewById(any())).thenReturn(root)
+        whenever(mScreen1.createView(any())).thenReturn(view1)
+        whenever(mScreen2.createView(any())).thenReturn(view2)
+        whenever(screen3.createView(any())).thenReturn(mock())
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val animator = InterruptingAnimator()
+        val delegate = TriadDelegate.createFor<Any>(activity, animator)
+        delegate.setInterruptibleTransitions(true)
+        delegate.setViewCache(4, Long.MAX_VALUE)
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        animator.complete()
+        triad.goTo(mScreen2)
+        triad.goTo(screen3)
+
+        /* When */
+        animator.complete()
+
+        /* Then */
+        verify(root).removeView(view1)
+        verify(mScreen1).detach()
+        expect(delegate.memoryUsage[2].viewBytes).toBe(1L)
+    }
+
+    @Test
+    fun dehydrationDepth_dehydratesScreensBelowDepth() {
+        /* Given */
+        val screen1 = DehydratingScreen()
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setDehydrationDepth(1)
+        delegate.onCreate(null)
+        triad.startWith(screen1)
+
+        /* When */
+        triad.goTo(mScreen2)
+
+        /* Then */
+        expect(screen1.isDehydrated).toBe(true)
+        expect(screen1.events).toBe(mutableListOf("onCreate", "createView", "onDestroy"))
+    }
+
+    @Test
+    fun dehydrationDepth_goBack_rehydratesScreenBeforeCreatingItsView() {
+        /* Given */
+        val screen1 = DehydratingScreen()
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setDehydrationDepth(1)
+        delegate.onCreate(null)
+        triad.startWith(screen1)
+        triad.goTo(mScreen2)
+
+        /* When */
+        triad.goBack()
+
+        /* Then */
+        expect(screen1.isDehydrated).toBe(false)
+        expect(screen1.events).toBe(mutableListOf("onCreate", "createView", "onDestroy", "onCreate", "createView"))
+    }
+
+    @Test
+    fun dehydrationDepth_popTo_rehydratesScreenBeforeCreatingItsView() {
+        /* Given */
+        val screen1 = DehydratingScreen()
+        val screen3 = mock<Screen<Any>>()
+        whenever(screen3.createView(any())).thenReturn(mock())
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setDehydrationDepth(1)
+        delegate.onCreate(null)
+        triad.startWith(screen1)
+        triad.goTo(mScreen2)
+        triad.goTo(screen3)
+
+        /* When */
+        triad.popTo(screen1)
+
+        /* Then */
+        expect(screen1.isDehydrated).toBe(false)
+        expect(screen1.events).toBe(mutableListOf("onCreate", "createView", "onDestroy", "onCreate", "createView"))
+    }
+
+    @Test
+    fun dehydrationDepth_onDestroy_finishing_doesNotDestroyDehydratedScreenAgain() {
+        /* Given */
+        whenever(activity.isFinishing).thenReturn(true)
+        val screen1 = DehydratingScreen()
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setDehydrationDepth(1)
+        delegate.onCreate(null)
+        triad.startWith(screen1)
+        triad.goTo(mScreen2)
+
+        /* When */
+        delegate.onDestroy()
+
+        /* Then */
+        expect(screen1.events).toBe(mutableListOf("onCreate", "createView", "onDestroy"))
+        verify(mScreen2).onDestroy()
+    }
+
+    @Test
+    fun memoryUsage_reportsScreensFromTopToBottom() {
+        /* Given */
+        val screen1 = RetainingScreen(10, dehydrates = false)
+        val screen2 = RetainingScreen(20)
+        val screen3 = RetainingScreen(40)
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setViewCache(4, Long.MAX_VALUE)
+        delegate.onCreate(null)
+        triad.startWith(screen1)
+        triad.goTo(screen2)
+
+        /* When */
+        triad.goTo(screen3)
+
+        /* Then */
+        val usage = delegate.memoryUsage
+        expect(usage.map { it.screen }).toBe(listOf<Screen<*>>(screen3, screen2, screen1))
+        expect(usage.map { it.depth }).toBe(listOf(0, 1, 2))
+        expect(usage.map { it.viewBytes }).toBe(listOf(0L, 1L, 1L))
+        expect(usage.map { it.retainedBytes }).toBe(listOf(40L, 20L, 0L))
+    }
+
+    @Test
+    fun memoryBudget_exceeded_evictsLeastRecentlyUsedViewsFirst() {
+        /* Given */
+        val screen1 = RetainingScreen(0)
+        val screen2 = RetainingScreen(0)
+        val screen3 = RetainingScreen(0)
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setViewCache(4, Long.MAX_VALUE)
+        delegate.setMemoryBudget(1)
+        delegate.onCreate(null)
+        triad.startWith(screen1)
+        triad.goTo(screen2)
+
+        /* When */
+        triad.goTo(screen3)
+
+        /* Then */
+        expect(delegate.memoryUsage[1].viewBytes).toBe(1L)
+        expect(delegate.memoryUsage[2].viewBytes).toBe(0L)
+        expect(screen1.isDehydrated).toBe(false)
+    }
+
+    @Test
+    fun memoryBudget_exceeded_writesStatesToStoreBeforeDehydrating() {
+        /* Given */
+        val store = mock<StateStore>()
+        whenever(store.write(any())).thenReturn("key")
+        val screen1 = RetainingScreen(10)
+        val screen2 = RetainingScreen(0)
+        val screen3 = RetainingScreen(0)
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setStateStore(store, 4, Long.MAX_VALUE)
+        delegate.setMemoryBudget(12)
+        delegate.onCreate(null)
+        triad.startWith(screen1)
+        triad.goTo(screen2)
+        val state = byteArrayOf(1, 2, 3, 4, 5)
+        screen1.setMarshalledState(state)
+
+        /* When */
+        triad.goTo(screen3)
+
+        /* Then */
+        verify(store).write(state)
+        expect(delegate.memoryUsage[2].stateBytes).toBe(0L)
+        expect(screen1.isDehydrated).toBe(false)
+    }
+
+    @Test
+    fun memoryBudget_exceeded_dehydratesDeepestScreensFirst() {
+        /* Given */
+        val screen1 = RetainingScreen(10)
+        val screen2 = RetainingScreen(10)
+        val screen3 = RetainingScreen(10)
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setMemoryBudget(25)
+        delegate.onCreate(null)
+        triad.startWith(screen1)
+        triad.goTo(screen2)
+
+        /* When */
+        triad.goTo(screen3)
+
+        /* Then */
+        expect(screen1.isDehydrated).toBe(true)
+        expect(screen2.isDehydrated).toBe(false)
+        expect(delegate.memoryUsage.map { it.retainedBytes }).toBe(listOf(10L, 10L, 0L))
+    }
+
+    @Test
+    fun memoryBudget_ignoresRetainedBytesOfScreensThatDoNotDehydrate() {
+        /* Given */
+        val screen1 = RetainingScreen(100, dehydrates = false)
+        val screen2 = RetainingScreen(10)
+        val screen3 = RetainingScreen(10)
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val delegate = TriadDelegate.createFor<Any>(activity, CompletingAnimator())
+        delegate.setMemoryBudget(25)
+        delegate.onCreate(null)
+        triad.startWith(screen1)
+        triad.goTo(screen2)
+
+        /* When */
+        triad.goTo(screen3)
+
+        /* Then */
+        expect(screen2.isDehydrated).toBe(false)
+    }
+
+    @Test
+    fun burstDuringTransition_notInterruptible_coalescesIntoSingleTransition() {
+        /* Given */
+        val screen3 = mock<Screen<Any>>()
+        val screen4 = mock<Screen<Any>>()
+        whenever(mScreen1.createView(any())).thenReturn(mock())
+        whenever(screen3.createView(any())).thenReturn(mock())
+        whenever(screen4.createView(any())).thenReturn(mock())
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val animator = InterruptingAnimator()
+        val delegate = TriadDelegate.createFor<Any>(activity, animator)
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        animator.complete()
+        triad.goTo(mScreen2)
+
+        /* When */
+        triad.goTo(screen3)
+        triad.goBack()
+        triad.goTo(screen4)
+        animator.complete()
+        animator.complete()
+
+        /* Then */
+        expect(animator.interruptCount).toBe(0)
+        verify(screen3, never()).createView(any())
+        verify(screen4).createView(any())
+        expect(delegate.currentScreen).toBe(screen4)
+        expect(triad.backstack.size()).toBe(4)
+    }
+
+    @Test
+    fun burstDuringTransition_interruptible_interruptsTransition() {
+        /* Given */
+        val screen3 = mock<Screen<Any>>()
+        whenever(mScreen1.createView(any())).thenReturn(mock())
+        whenever(screen3.createView(any())).thenReturn(mock())
+        val triad = TriadFactory.emptyInstance()
+        whenever((mApplication as TriadProvider).triad).thenReturn(triad)
+        val animator = InterruptingAnimator()
+        val delegate = TriadDelegate.createFor<Any>(activity, animator)
+        delegate.setInterruptibleTransitions(true)
+        delegate.onCreate(null)
+        triad.startWith(mScreen1)
+        animator.complete()
+        triad.goTo(mScreen2)
+
+        /* When */
+        triad.goTo(screen3)
+
+        /* Then */
+        expect(animator.interruptCount).toBe(1)
+        verify(screen3).createView(any())
+    }
+
+    /**
+     * Replaces the saved view state of this screen by given marshalled state, since states cannot be marshalled in unit tests.
+     */
+    private fun Screen<*>.setMarshalledState(bytes: ByteArray) {
+        val field = Screen::class.java.getDeclaredField("marshalledState")
+        field.isAccessible = true
+        field.set(this, bytes)
+    }
+
+    private fun laidOutView(parent: ViewGroup): View {
+        val view = mock<View>()
+        whenever(view.parent).thenReturn(parent)
+        whenever(view.width).thenReturn(10)
+        whenever(view.height).thenReturn(20)
+        return view
+    }
+
+    /**
+     * Creates mocked bitmaps, since bitmaps cannot be created in unit tests, and counts released snapshots.
+     */
+    private class MockBitmapSnapshotRenderer : SnapshotRenderer() {
+
+        var released = 0
+
+        var releasedWhileAnimated = 0
+
+        override fun createBitmap(width: Int, height: Int): Bitmap {
+            val bitmap = mock<Bitmap>()
+            whenever(bitmap.width).thenReturn(width)
+            whenever(bitmap.height).thenReturn(height)
+            return bitmap
+        }
+
+        override fun release(snapshot: SnapshotRenderer.Snapshot, animated: Boolean) {
+            released++
+            if (animated) releasedWhileAnimated++
+            super.release(snapshot, animated)
+        }
+    }
+
+    /**
+     * Holds on to the callback of the last animation until [complete] is called.
+     */
+    private class HoldingAnimator : TransitionAnimator {
+
+        var oldView: View? = null
+
+        private var callback: Triad.Callback? = null
+
+        override fun forward(oldView: View?, newView: View, parent: ViewGroup, callback: Triad.Callback): Boolean {
+            this.oldView = oldView
+            this.callback = callback
+            return true
+        }
+
+        override fun backward(oldView: View?, newView: View, parent: ViewGroup, callback: Triad.Callback) =
+              forward(oldView, newView, parent, callback)
+
+        fun complete() {
+            callback!!.onComplete()
+        }
+    }
+
+    /**
+     * Holds on to the callback of the last animation until [complete] is called, and can be interrupted.
+     */
+    private class InterruptingAnimator : TransitionAnimator.InterruptibleAnimator {
+
+        var oldView: View? = null
+
+        var newView: View? = null
+
+        var interruptCount = 0
+
+        private var callback: Triad.Callback? = null
+
+        override fun forward(oldView: View?, newView: View, parent: ViewGroup, callback: Triad.Callback): Boolean {
+            this.oldView = oldView
+            this.newView = newView
+            this.callback = callback
+            return true
+        }
+
+        override fun backward(oldView: View?, newView: View, parent: ViewGroup, callback: Triad.Callback) =
+              forward(oldView, newView, parent, callback)
+
+        override fun cancel(oldView: View?, newView: View, parent: ViewGroup) {
+            callback = null
+        }
+
+        override fun interrupt(oldView: View?, newView: View, parent: ViewGroup) {
+            interruptCount++
+            callback = null
+        }
+
+        fun complete() {
+            callback!!.onComplete()
+        }
+    }
+
+    /**
+     * A screen that may be dehydrated, and records its lifecycle.
+     */
+    private class DehydratingScreen : Screen<Any>() {
+
+        override val layoutResId = 0
+
+        override val presenter: Presenter<*>
+            get() = throw UnsupportedOperationException()
+
+        override val dehydrates = true
+
+        val events = mutableListOf<String>()
+
+        override fun createView(parent: ViewGroup): View {
+            events += "createView"
+            return mock()
+        }
+
+        override fun onCreate() {
+            events += "onCreate"
+        }
+
+        override fun attach(root: ViewGroup) {}
+
+        override fun detach() {}
+
+        override fun onDestroy() {
+            events += "onDestroy"
+        }
+    }
+
+    /**
+     * A screen that reports given retained memory.
+     */
+    private class RetainingScreen(
+          override val retainedBytes: Long,
+          override val dehydrates: Boolean = true
+    ) : Screen<Any>() {
+
+        override val layoutResId = 0
+
+        override val presenter: Presenter<*>
+            get() = throw UnsupportedOperationException()
+
+        var destroyCount = 0
+
+        override fun createView(parent: ViewGroup): View = mock()
+
+        override fun attach(root: ViewGroup) {}
+
+        override fun detach() {}
+
+        override fun onDestroy() {
+            destroyCount++
+        }
+    }
+
+    /**
+     * A screen that can be inflated in the background, and counts its inflations.
+     */
+    private class InflatingScreen : Screen<Any>() {
+
+        override val layoutResId = 0
+
+        override val presenter: Presenter<*>
+            get() = throw UnsupportedOperationException()
+
+        var inflations = 0
+
+        override fun createView(parent: ViewGroup, inflater: LayoutInflater): View {
+            inflations++
+            return mock()
+        }
+
+        override fun attach(root: ViewGroup) {}
+
+        override fun detach() {}
+    }
+
+    /**
+     * Runs deferred phases when asked to, with a clock that only moves when told to.
+     */
+    private class FakePhaseScheduler : TriadDelegate.PhaseScheduler {
+
+        val frameCallbacks = mutableListOf<Choreographer.FrameCallback>()
+
+        val idleHandlers = mutableListOf<MessageQueue.IdleHandler>()
+
+        var time = 0L
+
+        override fun postFrameCallback(callback: Choreographer.FrameCallback) {
+            frameCallbacks += callback
+        }
+
+        override fun removeFrameCallback(callback: Choreographer.FrameCallback) {
+            frameCallbacks -= callback
+        }
+
+        override fun addIdleHandler(handler: MessageQueue.IdleHandler) {
+            idleHandlers += handler
+        }
+
+        override fun removeIdleHandler(handler: MessageQueue.IdleHandler) {
+            idleHandlers -= handler
+        }
+
+        override fun nanoTime() = time
+
+        fun runFrame() {
+            val callbacks = frameCallbacks.toList()
+            frameCallbacks.clear()
+            callbacks.forEach { it.doFrame(time) }
+        }
+
+        fun runIdle() {
+            val handlers = idleHandlers.toList()
+            idleHandlers.clear()
+            handlers.filter { it.queueIdle() }.forEach { idleHandlers += it }
+        }
+    }
+
+    private class CompletingAnimator : TransitionAnimator {
+
+        override fun forward(oldView: View?, newView: View, parent: ViewGroup, callback: Triad.Callback): Boolean {
+            callback.onComplete()
+            return true
+        }
+
+        override fun backward(oldView: View?, newView: View, parent: ViewGroup, callback: Triad.Callback): Boolean {
+            callback.onComplete()
+            return true
+        }
+    }
+
+    private class SeekingAnimator(private val holdsSettle: Boolean = false) : TransitionAnimator.SeekableAnimator {
+
+        var backwardCount = 0
+
+        var abandonedOldView: View? = null
+
+        var abandonedNewView: View? = null
+
+        private var settleCallback: Triad.Callback? = null
+
+        override fun forward(oldView: View?, newView: View, parent: ViewGroup, callback: Triad.Callback): Boolean {
+            callback.onComplete()
+            return true
+        }
+
+        override fun backward(oldView: View?, newView: View, parent: ViewGroup, callback: Triad.Callback): Boolean {
+            backwardCount++
+            callback.onComplete()
+            return true
+        }
+
+        override fun startSeek(oldView: View, newView: View, parent: ViewGroup) {
+        }
+
+        override fun seek(oldView: View, newView: View, parent: ViewGroup, progress: Float) {
+        }
+
+        override fun finishSeek(oldView: View, newView: View, parent: ViewGroup, callback: Triad.Callback) {
+            if (holdsSettle) {
+                settleCallback = callback
+            } else {
+                callback.onComplete()
+            }
+        }
+
+        override fun cancelSeek(oldView: View, newView: View, parent: ViewGroup, callback: Triad.Callback) {
+            callback.onComplete()
+        }
+
+        override fun abandonSeek(oldView: View, newView: View, parent: ViewGroup) {
+            abandonedOldView = oldView
+            abandonedNewView = newView
+            settleCallback = null
+        }
+
+        /**
+         * Ends the settle animation that was held by [finishSeek], if it was not abandoned.
+         */
+        fun settle() {
+            settleCallback?.onComplete()
+        }
+    }
+
+    /**
+     * A [Triad] that can refuse to go back.
+     */
+    private class RefusingTriad(private val triad: Triad) : Triad by triad {
+
+        var refusesGoBack = false
+
+        override fun goBack() = if (refusesGoBack) false else triad.goBack()
+    }
+}
@@ -44,6 +44,15 @@ class TriadTest {
     @Mock
     private lateinit var mScreen3: Screen<Any>
 
+    /**
+     * A listener that does not complete forward transitions by itself.
+     * Use [pendingCallback] to complete the last transition.
+     */
+    @Mock
+    private lateinit var mPausingListener: Triad.Listener<Any>
+
+    private var pendingCallback: Callback? = null
+
     private lateinit var inOrder: InOrder
 
     @Before
@@ -66,6 +75,11 @@ class TriadTest {
             val callback = invocationOnMock.arguments[2] as Callback
             callback.onComplete()
         }.`when`(mListener).replace(any(), anyOrNull(), any())
+
+        doAnswer { invocationOnMock ->
+            pendingCallback = invocationOnMock.arguments[2] as Callback
+            null
+        }.`when`(mPausingListener).forward(any(), anyOrNull(), any())
     }
 
     @Test(expected = IllegalStateException::class)
@@ -223,6 +237,21 @@ class TriadTest {
         assertBackstackHasEntries(triad.backstack, mScreen1)
     }
 
+    @Test
+    fun popTo_withScreenOnBackstack_doesNotPopTargetScreen() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.of(mScreen1, mScreen2, mScreen3), mListener)
+
+        /* When */
+        triad.popTo(mScreen1)
+
+        /* Then */
+        verify(mListener, times(1)).screenPopped(mScreen3)
+        verify(mListener, times(1)).screenPopped(mScreen2)
+        verify(mListener, never()).screenPopped(mScreen1)
+        verify(mListener, never()).screenPushed(any())
+    }
+
     @Test
     fun popTo_withScreenOnTop_doesNothing() {
         /* Given */
@@ -261,6 +290,22 @@ class TriadTest {
         assertBackstackHasEntries(triad.backstack, mScreen2)
     }
 
+    @Test
+    fun replaceWith_currentScreen_recreatesScreen() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.of(mScreen1, mScreen2), mListener)
+
+        /* When */
+        triad.replaceWith(mScreen2)
+
+        /* Then */
+        inOrder.verify(mListener).screenPopped(mScreen2)
+        inOrder.verify(mListener).screenPushed(mScreen2)
+        inOrder.verify(mListener).replace(eq(mScreen2), anyOrNull(), any())
+        verify(mListener, never()).screenPopped(mScreen1)
+        assertBackstackHasEntries(triad.backstack, mScreen1, mScreen2)
+    }
+
     @Test
     fun goBack_withSingleBackstackEntry_popsScreen() {
         /* Given */
@@ -319,6 +364,39 @@ class TriadTest {
         assertBackstackHasEntries(triad.backstack, mScreen2, mScreen3)
     }
 
+    @Test
+    fun forward_withSharedBottomScreens_onlyNotifiesChangedScreens() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.of(mScreen1, mScreen2), mListener)
+
+        /* When */
+        triad.forward(Backstack.of(mScreen1, mScreen3))
+
+        /* Then */
+        verify(mListener, times(1)).screenPopped(mScreen2)
+        verify(mListener, times(1)).screenPushed(mScreen3)
+        verify(mListener, never()).screenPopped(mScreen1)
+        verify(mListener, never()).screenPushed(mScreen1)
+        verify(mListener).forward(eq(mScreen3), anyOrNull(), any())
+        assertBackstackHasEntries(triad.backstack, mScreen1, mScreen3)
+    }
+
+    @Test
+    fun forward_withBackstackExtendingCurrentBackstack_onlyPushesNewScreens() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.of(mScreen1, mScreen2), mListener)
+
+        /* When */
+        triad.forward(Backstack.of(mScreen1, mScreen2, mScreen3))
+
+        /* Then */
+        verify(mListener, times(1)).screenPushed(mScreen3)
+        verify(mListener, never()).screenPopped(any())
+        verify(mListener, never()).screenPushed(mScreen1)
+        verify(mListener, never()).screenPushed(mScreen2)
+        assertBackstackHasEntries(triad.backstack, mScreen1, mScreen2, mScreen3)
+    }
+
     @Test(expected = IllegalStateException::class)
     fun backward_withAnEmptyBackstack_throwsIllegalStateException() {
         /* Given */
@@ -349,6 +427,25 @@ class TriadTest {
         assertBackstackHasEntries(triad.backstack, mScreen2, mScreen3)
     }
 
+    @Test
+    fun backward_toBottomOfCurrentBackstack_onlyPopsRemovedScreens() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.of(mScreen1, mScreen2, mScreen3), mListener)
+
+        /* When */
+        triad.backward(Backstack.single(mScreen1))
+
+        /* Then */
+        inOrder.verify(mListener).screenPopped(mScreen3)
+        inOrder.verify(mListener).screenPopped(mScreen2)
+        inOrder.verify(mListener).backward(eq(mScreen1), anyOrNull(), any())
+        verify(mListener, times(1)).screenPopped(mScreen3)
+        verify(mListener, times(1)).screenPopped(mScreen2)
+        verify(mListener, never()).screenPopped(mScreen1)
+        verify(mListener, never()).screenPushed(any())
+        assertBackstackHasEntries(triad.backstack, mScreen1)
+    }
+
     @Test(expected = IllegalStateException::class)
     fun replace_withAnEmptyBackstack_throwsIllegalStateException() {
         /* Given */
@@ -378,6 +475,494 @@ class TriadTest {
         assertBackstackHasEntries(triad.backstack, mScreen2, mScreen3)
     }
 
+    @Test
+    fun replace_withSharedBottomScreens_onlyNotifiesChangedScreens() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.of(mScreen1, mScreen2), mListener)
+
+        /* When */
+        triad.replace(Backstack.of(mScreen1, mScreen3))
+
+        /* Then */
+        verify(mListener, times(1)).screenPopped(mScreen2)
+        verify(mListener, times(1)).screenPushed(mScreen3)
+        verify(mListener, never()).screenPopped(mScreen1)
+        verify(mListener, never()).screenPushed(mScreen1)
+        verify(mListener).replace(eq(mScreen3), anyOrNull(), any())
+        assertBackstackHasEntries(triad.backstack, mScreen1, mScreen3)
+    }
+
+    @Test
+    fun queuedTransitions_areCoalescedIntoSingleNetTransition() {
+        /* Given */
+        val intermediateScreen = mock<Screen<Any>>()
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), mPausingListener)
+        triad.goTo(mScreen2)
+
+        /* When */
+        triad.goTo(mScreen3)
+        triad.goTo(intermediateScreen)
+        triad.popTo(mScreen3)
+        pendingCallback!!.onComplete()
+
+        /* Then */
+        verify(mPausingListener, times(1)).screenPushed(mScreen3)
+        verify(mPausingListener, times(1)).forward(eq(mScreen3), anyOrNull(), any())
+        verify(mPausingListener, never()).screenPushed(intermediateScreen)
+        verify(mPausingListener, never()).screenPopped(intermediateScreen)
+        verify(mPausingListener, never()).forward(eq(intermediateScreen), anyOrNull(), any())
+    }
+
+    @Test
+    fun queuedTransitions_withoutNetChange_doNotNotifyListener() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), mPausingListener)
+        triad.goTo(mScreen2)
+
+        /* When */
+        triad.goTo(mScreen3)
+        triad.popTo(mScreen2)
+        pendingCallback!!.onComplete()
+
+        /* Then */
+        verify(mPausingListener, never()).screenPushed(mScreen3)
+        verify(mPausingListener, never()).forward(eq(mScreen3), anyOrNull(), any())
+        assertThat(triad.isTransitioning, `is`(false))
+        assertBackstackHasEntries(triad.backstack, mScreen1, mScreen2)
+    }
+
+    @Test
+    fun getQueueDepth_whileTransitioning_returnsNumberOfQueuedTransitions() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), mPausingListener)
+        triad.goTo(mScreen2)
+
+        /* When */
+        triad.goTo(mScreen3)
+        triad.goTo(mScreen1)
+
+        /* Then */
+        assertThat(triad.queueDepth, `is`(2))
+    }
+
+    @Test
+    fun getQueueDepth_afterTransitionCompletes_returnsZero() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), mPausingListener)
+        triad.goTo(mScreen2)
+        triad.goTo(mScreen3)
+
+        /* When */
+        pendingCallback!!.onComplete()
+
+        /* Then */
+        assertThat(triad.queueDepth, `is`(0))
+    }
+
+    @Test
+    fun getSnapshot_whileTransitioning_holdsCurrentBackstackAndTransitioning() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), mPausingListener)
+
+        /* When */
+        triad.goTo(mScreen2)
+
+        /* Then */
+        val snapshot = triad.snapshot
+        assertThat(snapshot.isTransitioning, `is`(true))
+        assertBackstackHasEntries(snapshot.backstack, mScreen1)
+    }
+
+    @Test
+    fun getSnapshot_afterTransitionCompletes_holdsNewBackstack() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), mPausingListener)
+        triad.goTo(mScreen2)
+
+        /* When */
+        pendingCallback!!.onComplete()
+
+        /* Then */
+        val snapshot = triad.snapshot
+        assertThat(snapshot.isTransitioning, `is`(false))
+        assertBackstackHasEntries(snapshot.backstack, mScreen1, mScreen2)
+    }
+
+    @Test
+    fun setMaxQueueDepth_dropNewest_discardsRequestedTransition() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), mPausingListener)
+        triad.setMaxQueueDepth(1, Triad.OverflowPolicy.DROP_NEWEST)
+        triad.goTo(mScreen2)
+        triad.goTo(mScreen3)
+
+        /* When */
+        triad.goTo(mScreen1)
+        pendingCallback!!.onComplete()
+        pendingCallback!!.onComplete()
+
+        /* Then */
+        assertThat(triad.queueDepth, `is`(0))
+        assertBackstackHasEntries(triad.backstack, mScreen1, mScreen2, mScreen3)
+    }
+
+    @Test
+    fun setMaxQueueDepth_dropOldest_discardsOldestQueuedTransition() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), mPausingListener)
+        triad.setMaxQueueDepth(1, Triad.OverflowPolicy.DROP_OLDEST)
+        triad.goTo(mScreen2)
+        triad.goTo(mScreen3)
+
+        /* When */
+        triad.goTo(mScreen1)
+        pendingCallback!!.onComplete()
+        pendingCallback!!.onComplete()
+
+        /* Then */
+        verify(mPausingListener, never()).screenPushed(mScreen3)
+        assertBackstackHasEntries(triad.backstack, mScreen1, mScreen2, mScreen1)
+    }
+
+    @Test
+    fun setMaxQueueDepth_collapse_foldsQueuedTransitions() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), mPausingListener)
+        triad.setMaxQueueDepth(1, Triad.OverflowPolicy.COLLAPSE)
+        triad.goTo(mScreen2)
+        triad.goTo(mScreen3)
+
+        /* When */
+        triad.goTo(mScreen1)
+        pendingCallback!!.onComplete()
+        pendingCallback!!.onComplete()
+
+        /* Then */
+        assertThat(triad.queueDepth, `is`(0))
+        verify(mPausingListener, never()).forward(eq(mScreen3), anyOrNull(), any())
+        assertBackstackHasEntries(triad.backstack, mScreen1, mScreen2, mScreen3, mScreen1)
+    }
+
+    @Test
+    fun backstackPolicy_maxDepth_popsOldestScreenOnce() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.of(mScreen1, mScreen2), mListener)
+        triad.setBackstackPolicy(BackstackPolicy.Builder().maxDepth(2).build())
+
+        /* When */
+        triad.goTo(mScreen3)
+        triad.goBack()
+
+        /* Then */
+        verify(mListener, times(1)).screenPopped(mScreen1)
+        verify(mListener).forward(eq(mScreen3), anyOrNull(), any())
+        assertBackstackHasEntries(triad.backstack, mScreen2)
+    }
+
+    @Test
+    fun backstackPolicy_singleInstancePerKey_popsEarlierScreenOnce() {
+        /* Given */
+        whenever(mScreen1.key).thenReturn("a")
+        whenever(mScreen2.key).thenReturn("b")
+        whenever(mScreen3.key).thenReturn("a")
+        val triad = TriadFactory.newInstance(Backstack.of(mScreen1, mScreen2), mListener)
+        triad.setBackstackPolicy(BackstackPolicy.Builder().singleInstancePerKey().build())
+
+        /* When */
+        triad.goTo(mScreen3)
+
+        /* Then */
+        verify(mListener, times(1)).screenPopped(mScreen1)
+        verify(mListener).screenPushed(mScreen3)
+        verify(mListener).forward(eq(mScreen3), anyOrNull(), any())
+        assertBackstackHasEntries(triad.backstack, mScreen2, mScreen3)
+    }
+
+    @Test
+    fun backstackPolicy_collapseCycles_movesBackToEarlierScreen() {
+        /* Given */
+        whenever(mScreen1.key).thenReturn("a")
+        whenever(mScreen2.key).thenReturn("b")
+        whenever(mScreen3.key).thenReturn("a")
+        val triad = TriadFactory.newInstance(Backstack.of(mScreen1, mScreen2), mListener)
+        triad.setBackstackPolicy(BackstackPolicy.Builder().collapseCycles().build())
+
+        /* When */
+        triad.goTo(mScreen3)
+
+        /* Then */
+        verify(mListener, times(1)).screenPopped(mScreen2)
+        verify(mListener).backward(eq(mScreen1), anyOrNull(), any())
+        verify(mListener, never()).screenPushed(mScreen3)
+        verify(mListener, never()).forward(any(), anyOrNull(), any())
+        assertBackstackHasEntries(triad.backstack, mScreen1)
+    }
+
+    @Test
+    fun backstackPolicy_maxDepth_manyScreens_popsEachOldestScreenOnce() {
+        /* Given */
+        val screens = List(10) { mock<Screen<Any>>() }
+        val triad = TriadFactory.newInstance(Backstack.single(screens[0]), mListener)
+        triad.setBackstackPolicy(BackstackPolicy.Builder().maxDepth(3).build())
+
+        /* When */
+        screens.drop(1).forEach { triad.goTo(it) }
+
+        /* Then */
+        screens.take(7).forEach { verify(mListener, times(1)).screenPopped(it) }
+        screens.takeLast(3).forEach { verify(mListener, never()).screenPopped(it) }
+        assertBackstackHasEntries(triad.backstack, screens[7], screens[8], screens[9])
+    }
+
+    @Test
+    fun backstackPolicy_collapseCycles_discardsPreparedScreen() {
+        /* Given */
+        whenever(mScreen1.key).thenReturn("a")
+        whenever(mScreen2.key).thenReturn("b")
+        whenever(mScreen3.key).thenReturn("a")
+        val listener = preparingListener()
+        val triad = TriadFactory.newInstance(Backstack.of(mScreen1, mScreen2), listener)
+        triad.setBackstackPolicy(BackstackPolicy.Builder().collapseCycles().build())
+        val preparedScreen = triad.prepare(mScreen3)
+
+        /* When */
+        preparedScreen.goTo()
+
+        /* Then */
+        verify(listener).screenDiscarded(mScreen3)
+        verify(listener, never()).screenDiscarded(mScreen1)
+        verify(listener).backward(eq(mScreen1), anyOrNull(), any())
+    }
+
+    @Test
+    fun transaction_commit_notifiesListenerOnceForNetChange() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), mListener)
+
+        /* When */
+        triad.beginTransaction()
+              .goTo(mScreen2)
+              .goTo(mScreen3)
+              .commit()
+
+        /* Then */
+        inOrder.verify(mListener).screenPushed(mScreen2)
+        inOrder.verify(mListener).screenPushed(mScreen3)
+        inOrder.verify(mListener).forward(eq(mScreen3), anyOrNull(), any())
+        verify(mListener, never()).forward(eq(mScreen2), anyOrNull(), any())
+        assertBackstackHasEntries(triad.backstack, mScreen1, mScreen2, mScreen3)
+    }
+
+    @Test
+    fun transaction_withIntermediateScreens_doesNotNotifyIntermediateScreens() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.of(mScreen1, mScreen2), mListener)
+
+        /* When */
+        triad.beginTransaction()
+              .goTo(mScreen3)
+              .popTo(mScreen2)
+              .replaceWith(mScreen3)
+              .commit()
+
+        /* Then */
+        verify(mListener, times(1)).screenPushed(mScreen3)
+        verify(mListener, times(1)).screenPopped(mScreen2)
+        verify(mListener, times(1)).replace(eq(mScreen3), anyOrNull(), any())
+        verify(mListener, never()).forward(any(), anyOrNull(), any())
+        assertBackstackHasEntries(triad.backstack, mScreen1, mScreen3)
+    }
+
+    @Test
+    fun transaction_commitWithDirection_notifiesGivenDirection() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.of(mScreen1, mScreen2), mListener)
+
+        /* When */
+        triad.beginTransaction()
+              .replaceWith(mScreen3)
+              .commit(Triad.Direction.BACKWARD)
+
+        /* Then */
+        verify(mListener).backward(eq(mScreen3), anyOrNull(), any())
+        verify(mListener, never()).replace(any(), anyOrNull(), any())
+        assertBackstackHasEntries(triad.backstack, mScreen1, mScreen3)
+    }
+
+    @Test(expected = IllegalStateException::class)
+    fun transaction_committedTwice_throwsIllegalStateException() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), mListener)
+        val transaction = triad.beginTransaction().goTo(mScreen2)
+        transaction.commit()
+
+        /* When */
+        transaction.commit()
+    }
+
+    @Test
+    fun prepare_preparingListener_notifiesScreenPrepared() {
+        /* Given */
+        val listener = preparingListener()
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), listener)
+
+        /* When */
+        val preparedScreen = triad.prepare(mScreen2)
+
+        /* Then */
+        verify(listener).screenPrepared(mScreen2)
+        expect(preparedScreen.screen).toBe(mScreen2)
+    }
+
+    @Test
+    fun goTo_preparedScreen_doesNotNotifyScreenPushed() {
+        /* Given */
+        val listener = preparingListener()
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), listener)
+        val preparedScreen = triad.prepare(mScreen2)
+
+        /* When */
+        preparedScreen.goTo()
+
+        /* Then */
+        verify(listener, never()).screenPushed(mScreen2)
+        verify(listener).forward(eq(mScreen2), anyOrNull(), any())
+        assertBackstackHasEntries(triad.backstack, mScreen1, mScreen2)
+    }
+
+    @Test
+    fun discard_unusedPreparedScreen_notifiesScreenDiscarded() {
+        /* Given */
+        val listener = preparingListener()
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), listener)
+        val preparedScreen = triad.prepare(mScreen2)
+
+        /* When */
+        preparedScreen.discard()
+
+        /* Then */
+        verify(listener).screenDiscarded(mScreen2)
+    }
+
+    @Test
+    fun discard_afterGoTo_doesNotNotifyScreenDiscarded() {
+        /* Given */
+        val listener = preparingListener()
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), listener)
+        val preparedScreen = triad.prepare(mScreen2)
+        preparedScreen.goTo()
+
+        /* When */
+        preparedScreen.discard()
+
+        /* Then */
+        verify(listener, never()).screenDiscarded(any())
+    }
+
+    @Test
+    fun goTo_preparedWithRegularListener_notifiesScreenPushed() {
+        /* Given */
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), mListener)
+        val preparedScreen = triad.prepare(mScreen2)
+
+        /* When */
+        preparedScreen.goTo()
+
+        /* Then */
+        verify(mListener).screenPushed(mScreen2)
+    }
+
+    @Test
+    fun reset_duringTransition_notifiesTransitionCancelled() {
+        /* Given */
+        val listener = mock<Triad.CancellationListener<Any>>()
+        var callback: Callback? = null
+        doAnswer { invocationOnMock ->
+            callback = invocationOnMock.arguments[2] as Callback
+            null
+        }.`when`(listener).forward(any(), anyOrNull(), any())
+
+        val triad = TriadFactory.emptyInstance()
+        triad.setListener(listener)
+        triad.startWith(mScreen1)
+
+        /* When */
+        triad.reset()
+
+        /* Then */
+        verify(listener).transitionCancelled(callback!!)
+    }
+
+    @Test
+    fun reset_afterTransition_doesNotNotifyTransitionCancelled() {
+        /* Given */
+        val listener = mock<Triad.CancellationListener<Any>>()
+        doAnswer { invocationOnMock ->
+            val callback = invocationOnMock.arguments[2] as Callback
+            callback.onComplete()
+        }.`when`(listener).forward(any(), anyOrNull(), any())
+
+        val triad = TriadFactory.emptyInstance()
+        triad.setListener(listener)
+        triad.startWith(mScreen1)
+
+        /* When */
+        triad.reset()
+
+        /* Then */
+        verify(listener, never()).transitionCancelled(any())
+    }
+
+    @Test
+    fun goBack_duringTransition_interruptibleListener_interruptsTransition() {
+        /* Given */
+        val listener = interruptibleListener()
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), listener)
+        triad.goTo(mScreen2)
+        val callback = pendingCallback!!
+
+        /* When */
+        val result = triad.goBack()
+
+        /* Then */
+        expect(result).toBe(true)
+        verify(listener).transitionInterrupted(callback)
+        verify(listener).screenPopped(mScreen2)
+        verify(listener).backward(eq(mScreen1), anyOrNull(), any())
+    }
+
+    @Test
+    fun goTo_duringTransition_interruptibleListener_executesImmediately() {
+        /* Given */
+        val listener = interruptibleListener()
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), listener)
+        triad.goTo(mScreen2)
+
+        /* When */
+        triad.goTo(mScreen3)
+
+        /* Then */
+        verify(listener).forward(eq(mScreen3), anyOrNull(), any())
+        assertBackstackHasEntries(triad.backstack, mScreen1, mScreen2)
+    }
+
+    @Test
+    fun interruptedCallback_onComplete_isIgnored() {
+        /* Given */
+        val listener = interruptibleListener()
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), listener)
+        triad.goTo(mScreen2)
+        val interruptedCallback = pendingCallback!!
+        triad.goTo(mScreen3)
+
+        /* When */
+        interruptedCallback.onComplete()
+        pendingCallback!!.onComplete()
+
+        /* Then */
+        assertBackstackHasEntries(triad.backstack, mScreen1, mScreen2, mScreen3)
+    }
+
     @Test(expected = IllegalStateException::class)
     fun startActivity_withoutActivityReference_throwsIllegalStateException() {
         /* Given */
@@ -429,6 +1014,78 @@ class TriadTest {
         verify(activity).startActivityForResult(eq(intent), any())
     }
 
+    /**
+     * Returns an interruptible listener that does not complete transitions by itself.
+     * Use [pendingCallback] to complete the last transition.
+     */
+    @Test
+    fun goTo_withMetrics_reportsCreateOnce() {
+        /* Given */
+        val metrics = mock<TransitionMetrics>()
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), mListener)
+        triad.setMetrics(metrics)
+
+        /* When */
+        triad.goTo(mScreen2)
+
+        /* Then */
+        verify(metrics).onPhase(eq(TransitionMetrics.Phase.CREATE), eq(TransitionMetrics.Type.GO_TO), eq(mScreen2.javaClass), any(), any())
+    }
+
+    @Test
+    fun goTo_deferringListener_doesNotReportCreate() {
+        /* Given */
+        val listener = mock<Triad.DeferringListener<Any>>()
+        whenever(listener.defersCreate()).thenReturn(true)
+        val metrics = mock<TransitionMetrics>()
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), listener)
+        triad.setMetrics(metrics)
+
+        /* When */
+        triad.goTo(mScreen2)
+
+        /* Then */
+        verify(listener).screenPushed(mScreen2)
+        verify(metrics, never()).onPhase(eq(TransitionMetrics.Phase.CREATE), any(), anyOrNull(), any(), any())
+    }
+
+    @Test
+    fun goTo_passesTypedCallback() {
+        /* When */
+        val triad = TriadFactory.newInstance(Backstack.single(mScreen1), mPausingListener)
+        triad.goTo(mScreen2)
+
+        /* Then */
+        expect((pendingCallback as Triad.TypedCallback).type()).toBe(TransitionMetrics.Type.GO_TO)
+    }
+
+    private fun interruptibleListener(): Triad.InterruptibleListener<Any> {
+        val listener = mock<Triad.InterruptibleListener<Any>>()
+        whenever(listener.interruptsTransitions()).thenReturn(true)
+
+        doAnswer { invocationOnMock ->
+            pendingCallback = invocationOnMock.arguments[2] as Callback
+            null
+        }.`when`(listener).forward(any(), anyOrNull(), any())
+        doAnswer { invocationOnMock ->
+            pendingCallback = invocationOnMock.arguments[2] as Callback
+            null
+        }.`when`(listener).backward(any(), anyOrNull(), any())
+
+        return listener
+    }
+
+    private fun preparingListener(): Triad.PreparingListener<Any> {
+        val listener = mock<Triad.PreparingListener<Any>>()
+
+        doAnswer { invocationOnMock ->
+            val callback = invocationOnMock.arguments[2] as Callback
+            callback.onComplete()
+        }.`when`(listener).forward(any(), anyOrNull(), any())
+
+        return listener
+    }
+
     @SuppressWarnings("rawtypes")
     private fun assertBackstackHasEntries(backstack: Backstack, vararg screens: Screen<Any>) {
         assertThat("Backstack size", backstack.size(), `is`(screens.size))
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad
+
+import android.view.View
+import android.view.ViewGroup
+import com.nhaarman.expect.expect
+import com.nhaarman.mockito_kotlin.mock
+import com.nhaarman.mockito_kotlin.whenever
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.CoreMatchers.nullValue
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+
+class ViewCacheTest {
+
+    private val screen1 = mock<Screen<Any>>()
+    private val screen2 = mock<Screen<Any>>()
+    private val screen3 = mock<Screen<Any>>()
+
+    private val view1 = mock<View>()
+    private val view2 = mock<View>()
+    private val view3 = mock<View>()
+
+    @Test
+    fun take_returnsPutView() {
+        /* Given */
+        val cache = ViewCache(2, 1000)
+        cache.put(screen1, view1)
+
+        /* When */
+        val result = cache.take(screen1)
+
+        /* Then */
+        expect(result).toBe(view1)
+        assertThat(cache.size(), `is`(0))
+    }
+
+    @Test
+    fun put_exceedingMaxViews_evictsLeastRecentlyUsed() {
+        /* Given */
+        val cache = ViewCache(2, 1000)
+        cache.put(screen1, view1)
+        cache.put(screen2, view2)
+
+        /* When */
+        cache.put(screen3, view3)
+
+        /* Then */
+        assertThat(cache.take(screen1), `is`(nullValue()))
+        expect(cache.take(screen2)).toBe(view2)
+        expect(cache.take(screen3)).toBe(view3)
+    }
+
+    @Test
+    fun put_exceedingMaxBytes_evictsLeastRecentlyUsed() {
+        /* Given */
+        whenever(view1.width).thenReturn(10)
+        whenever(view1.height).thenReturn(10)
+        whenever(view2.width).thenReturn(10)
+        whenever(view2.height).thenReturn(10)
+        val cache = ViewCache(10, 600)
+        cache.put(screen1, view1)
+
+        /* When */
+        cache.put(screen2, view2)
+
+        /* Then */
+        assertThat(cache.take(screen1), `is`(nullValue()))
+        expect(cache.take(screen2)).toBe(view2)
+    }
+
+    @Test
+    fun put_viewWithParent_isNotCached() {
+        /* Given */
+        val cache = ViewCache(2, 1000)
+        whenever(view1.parent).thenReturn(mock<ViewGroup>())
+
+        /* When */
+        cache.put(screen1, view1)
+
+        /* Then */
+        assertThat(cache.size(), `is`(0))
+    }
+
+    @Test
+    fun remove_evictsView() {
+        /* Given */
+        val cache = ViewCache(2, 1000)
+        cache.put(screen1, view1)
+
+        /* When */
+        cache.remove(screen1)
+
+        /* Then */
+        assertThat(cache.take(screen1), `is`(nullValue()))
+        assertThat(cache.bytes(), `is`(0L))
+    }
+
+    @Test
+    fun evictLeastRecentlyUsed_returnsEvictedBytes() {
+        /* Given */
+        whenever(view1.width).thenReturn(10)
+        whenever(view1.height).thenReturn(10)
+        val cache = ViewCache(2, 1000)
+        cache.put(screen1, view1)
+        cache.put(screen2, view2)
+
+        /* When */
+        val result = cache.evictLeastRecentlyUsed()
+
+        /* Then */
+        expect(result).toBe(400L)
+        assertThat(cache.take(screen1), `is`(nullValue()))
+        expect(cache.take(screen2)).toBe(view2)
+    }
+
+    @Test
+    fun bytesOf_returnsEstimateOfCachedView() {
+        /* Given */
+        whenever(view1.width).thenReturn(10)
+        whenever(view1.height).thenReturn(10)
+        val cache = ViewCache(2, 1000)
+        cache.put(screen1, view1)
+
+        /* Then */
+        expect(cache.bytesOf(screen1)).toBe(400L)
+        expect(cache.bytesOf(screen2)).toBe(0L)
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.triad
+
+import android.view.View
+import android.view.ViewGroup
+import com.nhaarman.expect.expect
+import com.nhaarman.mockito_kotlin.mock
+import com.nhaarman.mockito_kotlin.whenever
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.CoreMatchers.nullValue
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+
+class ViewPoolTest {
+
+    private val view1 = mock<View>()
+    private val view2 = mock<View>()
+    private val view3 = mock<View>()
+
+    @Test
+    fun take_returnsViewForSameLayout() {
+        /* Given */
+        val pool = ViewPool(2)
+        pool.put(1, view1)
+
+        /* When */
+        val result = pool.take(1)
+
+        /* Then */
+        expect(result).toBe(view1)
+        assertThat(pool.size(1), `is`(0))
+    }
+
+    @Test
+    fun take_otherLayout_returnsNull() {
+        /* Given */
+        val pool = ViewPool(2)
+        pool.put(1, view1)
+
+        /* When */
+        val result = pool.take(2)
+
+        /* Then */
+        assertThat(result, `is`(nullValue()))
+        assertThat(pool.size(1), `is`(1))
+    }
+
+    @Test
+    fun put_exceedingMaxViewsPerLayout_dropsView() {
+        /* Given */
+        val pool = ViewPool(2)
+        pool.put(1, view1)
+        pool.put(1, view2)
+
+        /* When */
+        pool.put(1, view3)
+
+        /* Then */
+        assertThat(pool.size(1), `is`(2))
+    }
+
+    @Test
+    fun put_sameViewTwice_addsOnce() {
+        /* Given */
+        val pool = ViewPool(2)
+        pool.put(1, view1)
+
+        /* When */
+        pool.put(1, view1)
+
+        /* Then */
+        assertThat(pool.size(1), `is`(1))
+    }
+
+    @Test
+    fun put_viewWithParent_isIgnored() {
+        /* Given */
+        val pool = ViewPool(2)
+        whenever(view1.parent).thenReturn(mock<ViewGroup>())
+
+        /* When */
+        pool.put(1, view1)
+
+        /* Then */
+        assertThat(pool.size(1), `is`(0))
+    }
+
+    @Test
+    fun clear_removesAllViews() {
+        /* Given */
+        val pool = ViewPool(2)
+        pool.put(1, view1)
+        pool.put(2, view2)
+
+        /* When */
+        pool.clear()
+
+        /* Then */
+        assertThat(pool.size(1), `is`(0))
+        assertThat(pool.size(2), `is`(0))
+    }
+}
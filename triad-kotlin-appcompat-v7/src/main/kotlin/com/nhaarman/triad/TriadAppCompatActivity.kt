@@ -63,6 +63,21 @@ abstract class TriadAppCompatActivity<ApplicationComponent : Any> : AppCompatAct
         super.onDestroy()
     }
 
+    override fun onTrimMemory(level: Int) {
+        super.onTrimMemory(level)
+        delegate.onTrimMemory(level)
+    }
+
+    override fun onLowMemory() {
+        super.onLowMemory()
+        delegate.onLowMemory()
+    }
+
+    /**
+     * Returns the [TriadDelegate] this Activity proxies to, to configure it.
+     */
+    protected val triadDelegate: TriadDelegate<ApplicationComponent> get() = delegate
+
     /**
      * Returns the [Triad] instance to be used to navigate between [Screen]s.
      */